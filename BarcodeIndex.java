@@ -0,0 +1,113 @@
+/**
+
+   * BarcodeIndex --- a direct-addressed lookup table for snack barcodes
+   * Every valid barcode [10001 - 99999] owns one slot holding the index of its snack
+   * Slots are allocated in pages of 1024 barcodes on first use, so a sparse index stays small
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to clear the slot table
+
+public class BarcodeIndex {
+
+   public static final int MIN_BARCODE = 10001; // lowest valid barcode
+   public static final int MAX_BARCODE = 99999; // highest valid barcode
+
+   public static final int BARCODE_COUNT = MAX_BARCODE - MIN_BARCODE + 1; // number of valid barcodes
+   public static final int PAGE_SHIFT = 10; // log2 of the number of barcodes per page
+   public static final int PAGE_SIZE = 1 << PAGE_SHIFT; // number of barcodes per page
+   public static final int PAGE_COUNT = (BARCODE_COUNT + PAGE_SIZE - 1) / PAGE_SIZE; // pages covering every barcode
+
+   private int[][] pages; // index + 1 of the snack owning each barcode, 0 when the barcode is free
+
+   /**
+      * BarcodeIndex Constructor ~
+      * Initializes an empty slot table covering the full barcode range
+      * @params No parameters
+      * @return No return value
+      */
+
+   public BarcodeIndex() {
+      this.pages = new int[PAGE_COUNT][];
+   }
+
+   /**
+      * get ~
+      * Gets the index stored for a barcode
+      * @param int barcode
+      * The barcode to look up
+      * @return int index of the snack, or -1 if the barcode is free or out of range
+      */
+
+   public int get(int barcode) {
+      if (barcode < MIN_BARCODE || barcode > MAX_BARCODE) {
+         return -1;
+      }
+      int slot = barcode - MIN_BARCODE;
+      int[] page = this.pages[slot >>> PAGE_SHIFT];
+      if (page == null) {
+         return -1;
+      }
+      // slots hold index + 1 so that a zeroed slot means "empty"
+      return page[slot & (PAGE_SIZE - 1)] - 1;
+   }
+
+   /**
+      * contains ~
+      * Indicates if a barcode is currently taken
+      * @param int barcode
+      * The barcode to check
+      * @return boolean true if the barcode is taken
+      */
+
+   public boolean contains(int barcode) {
+      return this.get(barcode) != -1;
+   }
+
+   /**
+      * put ~
+      * Stores the index of the snack owning a barcode
+      * @param int barcode
+      * A validated barcode in range [10001 - 99999]
+      * @param int index
+      * The index of the snack owning the barcode
+      * @return No return value
+      */
+
+   public void put(int barcode, int index) {
+      int slot = barcode - MIN_BARCODE;
+      int[] page = this.pages[slot >>> PAGE_SHIFT];
+      if (page == null) {
+         page = new int[PAGE_SIZE];
+         this.pages[slot >>> PAGE_SHIFT] = page;
+      }
+      page[slot & (PAGE_SIZE - 1)] = index + 1;
+   }
+
+   /**
+      * remove ~
+      * Frees the slot of a barcode
+      * @param int barcode
+      * A validated barcode in range [10001 - 99999]
+      * @return No return value
+      */
+
+   public void remove(int barcode) {
+      int slot = barcode - MIN_BARCODE;
+      int[] page = this.pages[slot >>> PAGE_SHIFT];
+      if (page != null) {
+         page[slot & (PAGE_SIZE - 1)] = 0;
+      }
+   }
+
+   /**
+      * clear ~
+      * Frees every slot
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void clear() {
+      Arrays.fill(this.pages, null);
+   }
+}
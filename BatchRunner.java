@@ -0,0 +1,804 @@
+/**
+
+   * BatchRunner --- runs a script of vending machine commands without the menu
+   * One command per line, blank lines and lines starting with # are skipped:
+   *    add <barcode> <calories> <price> <name>
+   *    remove <barcode>
+   *    remove-range <from barcode> <to barcode>
+   *    remove-over <price>
+   *    remove-upto <price>
+   *    remove-list <barcode> [barcode ...]
+   *    query <price>
+   *    calories <min> <max>
+   *    find <text>
+   *    list
+   *    page <size> [token]
+   *    seed
+   *    import <csv file>
+   *    save <snapshot file>
+   *    load <snapshot file>
+   *    restock <barcode> <quantity>
+   *    vend <barcode>
+   *    stock <barcode>
+   *    stats
+   *    report
+   *    names
+   * Runners over a fleet also accept:
+   *    machine <id>          switches to a machine, creating it if needed
+   *    machines              lists the machines of the fleet
+   *    fleet-query <price>   prints snacks that cost more than the price in every machine
+   *    fleet-find <barcode>  prints the machines holding a barcode
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.BufferedReader; // reads the script line by line
+import java.io.IOException; // thrown when the script cannot be read
+import java.io.Reader; // source of the script
+import java.nio.file.Paths; // locates CSV files to import
+import java.util.Arrays; // grows the barcode list of remove-list
+import java.util.Map; // results of fleet-wide price queries
+
+public class BatchRunner {
+
+   private static final int READ_BUFFER_SIZE = 64 * 1024; // characters read from the script at a time
+   private static final int LIST_PAGE_SIZE = 256; // snacks read per page by the list command
+
+   private SnackInventory snackList; // the inventory the commands run against
+   private VendingFleet fleet; // machines reachable with the machine command, null for a single inventory
+   private String machineId; // id of the machine the commands run against, null for a single inventory
+   private boolean fileCommandsEnabled = true; // false when commands come from the network and must not touch local files
+   private SnackPrinter printer; // buffered output for command results
+   private String line; // the command line being tokenized
+   private int position; // tokenizer position within line
+
+   /**
+      * BatchRunner Constructor ~
+      * Initializes a runner over an inventory
+      * @params SnackInventory snackList, SnackPrinter printer
+      * the inventory to run commands against and where to print results
+      * @return No return value
+      */
+
+   public BatchRunner(SnackInventory snackList, SnackPrinter printer) {
+      this.snackList = snackList;
+      this.printer = printer;
+   }
+
+   /**
+      * BatchRunner Constructor ~
+      * Initializes a runner over a fleet, starting on one of its machines
+      * @params VendingFleet fleet, String machineId, SnackPrinter printer
+      * the fleet, the id of the first machine to run commands against and where to print results
+      * @return No return value
+      */
+
+   public BatchRunner(VendingFleet fleet, String machineId, SnackPrinter printer) {
+      this.fleet = fleet;
+      this.machineId = machineId;
+      this.snackList = fleet.getOrCreateMachine(machineId).getInventory();
+      this.printer = printer;
+   }
+
+   /**
+      * run ~
+      * Runs every command in a script
+      * A failed command prints its error with the line number and the script continues
+      * @param Reader script
+      * the command script
+      * @exception IOException: when the script cannot be read
+      * @return int number of failed commands
+      */
+
+   public int run(Reader script) throws IOException {
+      BufferedReader reader = new BufferedReader(script, READ_BUFFER_SIZE);
+      int lineNumber = 0;
+      int commands = 0;
+      int failures = 0;
+
+      String nextLine = reader.readLine();
+      while (nextLine != null) {
+         lineNumber++;
+         String command = this.startLine(nextLine);
+         if (command != null) {
+            commands++;
+            try {
+               this.execute(command);
+            }
+            catch (Exception e) {
+               SnackStats.recordError(e);
+               failures++;
+               this.printer.println("Error on line " + lineNumber + ": " + e.getMessage());
+            }
+         }
+         nextLine = reader.readLine();
+      }
+
+      this.printer.println("Ran " + commands + " commands, " + failures + " failed.");
+      this.printer.flush();
+      return failures;
+   }
+
+   /**
+      * runCommand ~
+      * Runs a single command line and prints its result or its error
+      * Used by front ends that answer one command at a time, the caller flushes the printer
+      * @param String commandLine
+      * the command line, blank lines and lines starting with # do nothing
+      * @return boolean false if the command failed
+      */
+
+   public boolean runCommand(String commandLine) {
+      String command = this.startLine(commandLine);
+      if (command == null) {
+         return true;
+      }
+      try {
+         this.execute(command);
+         return true;
+      }
+      catch (Exception e) {
+         SnackStats.recordError(e);
+         this.printer.println("Error: " + e.getMessage());
+         return false;
+      }
+   }
+
+   /**
+      * getMachineId ~
+      * Gets the id of the machine the commands currently run against
+      * @param No parameters
+      * @return String machine id, or null for a runner over a single inventory
+      */
+
+   public String getMachineId() {
+      return this.machineId;
+   }
+
+   /**
+      * disableFileCommands ~
+      * Rejects import, save and load so remote clients cannot read or write local files
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void disableFileCommands() {
+      this.fileCommandsEnabled = false;
+   }
+
+   /**
+      * startLine ~
+      * Private method that starts tokenizing a line and reads its command
+      * @param String nextLine
+      * the line to tokenize
+      * @return String command, or null for blank lines and comments
+      */
+
+   private String startLine(String nextLine) {
+      this.line = nextLine;
+      this.position = 0;
+      String command = this.nextToken();
+      if (command == null || command.startsWith("#")) {
+         return null;
+      }
+      return command;
+   }
+
+   /**
+      * execute ~
+      * Private method that runs one command, reading its arguments from the tokenizer
+      * @param String command
+      * the first token of the line
+      * @exception Exception: when the command or its arguments are invalid
+      * @return No return value
+      */
+
+   private void execute(String command) throws Exception {
+      switch (command) {
+         case "add":
+            this.add();
+            break;
+         case "remove":
+            this.remove();
+            break;
+         case "remove-range":
+            this.removeRange();
+            break;
+         case "remove-over":
+            this.removeOver();
+            break;
+         case "remove-upto":
+            this.removeUpTo();
+            break;
+         case "remove-list":
+            this.removeList();
+            break;
+         case "query":
+            this.query();
+            break;
+         case "calories":
+            this.calories();
+            break;
+         case "find":
+            this.find();
+            break;
+         case "list":
+            this.list();
+            break;
+         case "page":
+            this.page();
+            break;
+         case "seed":
+            this.seed();
+            break;
+         case "import":
+            this.importCsv();
+            break;
+         case "save":
+            this.save();
+            break;
+         case "load":
+            this.load();
+            break;
+         case "restock":
+            this.restock();
+            break;
+         case "vend":
+            this.vend();
+            break;
+         case "stock":
+            this.stock();
+            break;
+         case "stats":
+            SnackStats.get().print(this.printer);
+            break;
+         case "report":
+            this.snackList.report().print(this.printer);
+            break;
+         case "machine":
+            this.machine();
+            break;
+         case "machines":
+            this.machines();
+            break;
+         case "fleet-query":
+            this.fleetQuery();
+            break;
+         case "fleet-find":
+            this.fleetFind();
+            break;
+         case "names":
+            this.names();
+            break;
+         default:
+            throw new SnackException("Unknown command: " + command);
+      }
+   }
+
+   /**
+      * add ~
+      * Private method for "add <barcode> <calories> <price> <name>"
+      * The name is the rest of the line, so it may contain spaces
+      * @param No parameters
+      * @exception Exception: when an argument is missing or invalid, or the barcode exists
+      * @return No return value
+      */
+
+   private void add() throws Exception {
+      int barcode = Integer.parseInt(this.requireToken("barcode"));
+      int calories = Integer.parseInt(this.requireToken("calories"));
+      double price = Double.parseDouble(this.requireToken("price"));
+      Snack newSnack = new Snack(barcode, calories, price, this.rest());
+      this.snackList.add(newSnack);
+      this.printer.println(newSnack.getName() + " successfully added!");
+   }
+
+   /**
+      * remove ~
+      * Private method for "remove <barcode>"
+      * @param No parameters
+      * @exception Exception: when the barcode is missing or not a number
+      * @return No return value
+      */
+
+   private void remove() throws Exception {
+      int barcode = Integer.parseInt(this.requireToken("barcode"));
+      Snack removedSnack = this.snackList.remove(barcode);
+      if (removedSnack == null) {
+         throw new SnackException("Sorry, no snack with barcode " + barcode + " was found.");
+      }
+      this.printer.println(removedSnack.getName() + " successfully removed!");
+   }
+
+   /**
+      * removeRange ~
+      * Private method for "remove-range <from barcode> <to barcode>", removes every snack in the inclusive range at once
+      * @param No parameters
+      * @exception Exception: when a barcode is missing or not a number
+      * @return No return value
+      */
+
+   private void removeRange() throws Exception {
+      int fromBarcode = Integer.parseInt(this.requireToken("from barcode"));
+      int toBarcode = Integer.parseInt(this.requireToken("to barcode"));
+      this.printRemoved(this.snackList.removeBarcodeRange(fromBarcode, toBarcode));
+   }
+
+   /**
+      * removeOver ~
+      * Private method for "remove-over <price>", removes every snack query would list for the price
+      * @param No parameters
+      * @exception Exception: when the price is missing, not a number or out of range
+      * @return No return value
+      */
+
+   private void removeOver() throws Exception {
+      double userPrice = VendingMachine.checkPriceComparison(Double.parseDouble(this.requireToken("price")));
+      this.printRemoved(this.snackList.removeOverPrice(VendingMachine.toThresholdCents(userPrice)));
+   }
+
+   /**
+      * removeUpTo ~
+      * Private method for "remove-upto <price>", removes every snack that costs the price or less
+      * @param No parameters
+      * @exception Exception: when the price is missing, not a number or out of range
+      * @return No return value
+      */
+
+   private void removeUpTo() throws Exception {
+      double userPrice = VendingMachine.checkPriceComparison(Double.parseDouble(this.requireToken("price")));
+      this.printRemoved(this.snackList.removeUpToPrice(VendingMachine.toThresholdCents(userPrice)));
+   }
+
+   /**
+      * removeList ~
+      * Private method for "remove-list <barcode> [barcode ...]", removes every listed snack at once
+      * @param No parameters
+      * @exception Exception: when no barcode is given or one is not a number
+      * @return No return value
+      */
+
+   private void removeList() throws Exception {
+      int[] barcodes = new int[8];
+      int count = 0;
+      String token = this.requireToken("barcode");
+      while (token != null) {
+         if (count == barcodes.length) {
+            barcodes = Arrays.copyOf(barcodes, count * 2);
+         }
+         barcodes[count++] = Integer.parseInt(token);
+         token = this.nextToken();
+      }
+      this.printRemoved(this.snackList.removeBarcodes(Arrays.copyOf(barcodes, count)));
+   }
+
+   /**
+      * printRemoved ~
+      * Private method that reports a bulk removal, one line per removed snack
+      * @param Snack[] removed
+      * the removed snacks
+      * @return No return value
+      */
+
+   private void printRemoved(Snack[] removed) {
+      this.printer.println("Removed " + removed.length + " snacks.");
+      for (int i = 0; i < removed.length; i++) {
+         this.printer.print(removed[i].getBarcode());
+         this.printer.print(' ');
+         this.printer.println(removed[i].getName());
+      }
+   }
+
+   /**
+      * query ~
+      * Private method for "query <price>", prints snacks that cost more than the price
+      * @param No parameters
+      * @exception Exception: when the price is missing, not a number or out of range
+      * @return No return value
+      */
+
+   private void query() throws Exception {
+      double userPrice = VendingMachine.checkPriceComparison(Double.parseDouble(this.requireToken("price")));
+      Snack[] snacksOverPrice = this.snackList.findOverPrice(VendingMachine.toThresholdCents(userPrice));
+      this.printer.println("Showing all items above " + VendingMachine.formatPrice(userPrice) + ":\n");
+      for (int i = 0; i < snacksOverPrice.length; i++) {
+         this.printer.printSnack(snacksOverPrice[i]);
+      }
+      if (snacksOverPrice.length == 0) {
+         this.printer.println("None\n");
+      }
+   }
+
+   /**
+      * calories ~
+      * Private method for "calories <min> <max>", prints snacks with calories in the inclusive range
+      * @param No parameters
+      * @exception Exception: when an argument is missing, not a number or out of range
+      * @return No return value
+      */
+
+   private void calories() throws Exception {
+      int minCalories = Integer.parseInt(this.requireToken("minimum calories"));
+      int maxCalories = Integer.parseInt(this.requireToken("maximum calories"));
+      VendingMachine.checkCalorieRange(minCalories, maxCalories);
+      Snack[] snacksInRange = this.snackList.findCalorieRange(minCalories, maxCalories);
+      this.printer.println("Showing all items from " + minCalories + " to " + maxCalories + " calories:\n");
+      for (int i = 0; i < snacksInRange.length; i++) {
+         this.printer.printSnack(snacksInRange[i]);
+      }
+      if (snacksInRange.length == 0) {
+         this.printer.println("None\n");
+      }
+   }
+
+   /**
+      * find ~
+      * Private method for "find <text>", prints snacks whose name contains the text, ignoring case
+      * Prints at most VendingMachine.NAME_SEARCH_LIMIT snacks, names starting with the text first
+      * @param No parameters
+      * @exception Exception: when the text is missing
+      * @return No return value
+      */
+
+   private void find() throws Exception {
+      String text = this.requireRest("text");
+      Snack[] matches = this.snackList.findByName(text, VendingMachine.NAME_SEARCH_LIMIT);
+      this.printer.println("Showing snacks matching \"" + text + "\":\n");
+      for (int i = 0; i < matches.length; i++) {
+         this.printer.printSnack(matches[i]);
+      }
+      if (matches.length == 0) {
+         this.printer.println("None\n");
+      }
+   }
+
+   /**
+      * list ~
+      * Private method for "list", prints every snack
+      * @param No parameters
+      * @exception Exception: never in practice, the listing starts from the first page
+      * @return No return value
+      */
+
+   private void list() throws Exception {
+      if (this.snackList.isEmpty()) {
+         this.printer.println("No snacks available.");
+      }
+      // walk the inventory a page at a time instead of copying it whole
+      long token = SnackPage.FIRST;
+      boolean more = true;
+      while (more) {
+         SnackPage page = this.snackList.page(token, LIST_PAGE_SIZE);
+         Snack[] snacks = page.getSnacks();
+         for (int i = 0; i < snacks.length; i++) {
+            this.printer.printSnack(snacks[i]);
+         }
+         token = page.getNextToken();
+         more = page.hasMore();
+      }
+   }
+
+   /**
+      * page ~
+      * Private method for "page <size> [token]", prints one page of snacks and the token of the next one
+      * Without a token the listing starts from the beginning
+      * @param No parameters
+      * @exception Exception: when the size is missing or not a positive number, or the token is not one this inventory handed out
+      * @return No return value
+      */
+
+   private void page() throws Exception {
+      int pageSize = Integer.parseInt(this.requireToken("page size"));
+      if (pageSize <= 0) {
+         throw new SnackException("Error. Page size must be at least 1.");
+      }
+      String token = this.nextToken();
+      SnackPage page = this.snackList.page(token == null ? SnackPage.FIRST : Long.parseLong(token), pageSize);
+      Snack[] snacks = page.getSnacks();
+      for (int i = 0; i < snacks.length; i++) {
+         this.printer.printSnack(snacks[i]);
+      }
+      if (page.hasMore()) {
+         this.printer.println("Next page: page " + pageSize + " " + page.getNextToken());
+      }
+      else {
+         this.printer.println("End of snacks.");
+      }
+   }
+
+   /**
+      * seed ~
+      * Private method for "seed", adds the three premade snacks
+      * @param No parameters
+      * @exception Exception: when a seeded barcode already exists
+      * @return No return value
+      */
+
+   private void seed() throws Exception {
+      if (!VendingMachine.seedSnacks(this.snackList)) {
+         throw new SnackException("Unable to seed snacks. One or more seeded barcodes exist.");
+      }
+      this.printer.println("Successfully injected seed snacks.");
+   }
+
+   /**
+      * importCsv ~
+      * Private method for "import <csv file>", bulk loads snacks and prints the reject report
+      * @param No parameters
+      * @exception Exception: when the path is missing or the file cannot be read
+      * @return No return value
+      */
+
+   private void importCsv() throws Exception {
+      this.requireFileCommands();
+      SnackCsvImporter.Result result = SnackCsvImporter.importFile(Paths.get(this.requireRest("csv file")), this.snackList);
+      result.print(this.printer);
+   }
+
+   /**
+      * save ~
+      * Private method for "save <snapshot file>"
+      * @param No parameters
+      * @exception Exception: when the path is missing or the file cannot be written
+      * @return No return value
+      */
+
+   private void save() throws Exception {
+      this.requireFileCommands();
+      SnackSnapshot.save(Paths.get(this.requireRest("snapshot file")), this.snackList);
+      this.printer.println("Saved " + this.snackList.size() + " snacks.");
+   }
+
+   /**
+      * load ~
+      * Private method for "load <snapshot file>", replaces the inventory
+      * @param No parameters
+      * @exception Exception: when the path is missing or the file is not a valid snapshot
+      * @return No return value
+      */
+
+   private void load() throws Exception {
+      this.requireFileCommands();
+      int count = SnackSnapshot.restore(Paths.get(this.requireRest("snapshot file")), this.snackList);
+      this.printer.println("Loaded " + count + " snacks.");
+   }
+
+   /**
+      * restock ~
+      * Private method for "restock <barcode> <quantity>"
+      * @param No parameters
+      * @exception Exception: when an argument is missing or invalid, or the snack does not exist
+      * @return No return value
+      */
+
+   private void restock() throws Exception {
+      int barcode = Integer.parseInt(this.requireToken("barcode"));
+      int quantity = Integer.parseInt(this.requireToken("quantity"));
+      int stock = this.snackList.restock(barcode, quantity);
+      this.printer.println("Barcode " + barcode + " restocked, " + stock + " in stock.");
+   }
+
+   /**
+      * vend ~
+      * Private method for "vend <barcode>", sells one unit of a snack
+      * @param No parameters
+      * @exception Exception: when the barcode is missing or invalid, or the snack does not exist or is sold out
+      * @return No return value
+      */
+
+   private void vend() throws Exception {
+      Snack snack = this.snackList.vend(Integer.parseInt(this.requireToken("barcode")));
+      this.printer.print("Vended ");
+      this.printer.print(snack.getName());
+      this.printer.print(" for ");
+      this.printer.printPrice(snack.getPriceCents());
+      this.printer.println();
+   }
+
+   /**
+      * stock ~
+      * Private method for "stock <barcode>", prints the units in stock of a snack
+      * @param No parameters
+      * @exception Exception: when the barcode is missing or invalid, or the snack does not exist
+      * @return No return value
+      */
+
+   private void stock() throws Exception {
+      int barcode = Integer.parseInt(this.requireToken("barcode"));
+      Snack snack = this.snackList.get(barcode);
+      if (snack == null) {
+         throw new SnackException("Error. No snack with barcode " + barcode + " exists.");
+      }
+      this.printer.println(snack.getName() + ": " + this.snackList.getStock(barcode) + " in stock.");
+   }
+
+   /**
+      * machine ~
+      * Private method for "machine <id>", runs the following commands against another machine
+      * @param No parameters
+      * @exception Exception: when the id is missing or the runner has no fleet
+      * @return No return value
+      */
+
+   private void machine() throws Exception {
+      String machineId = this.requireToken("machine id");
+      this.snackList = this.requireFleet().getOrCreateMachine(machineId).getInventory();
+      this.machineId = machineId;
+      this.printer.println("Using machine " + machineId + ".");
+   }
+
+   /**
+      * machines ~
+      * Private method for "machines", prints every machine id and its snack count
+      * @param No parameters
+      * @exception Exception: when the runner has no fleet
+      * @return No return value
+      */
+
+   private void machines() throws Exception {
+      VendingFleet fleet = this.requireFleet();
+      String[] machineIds = fleet.machineIds();
+      for (int i = 0; i < machineIds.length; i++) {
+         VendingMachine machine = fleet.getMachine(machineIds[i]);
+         if (machine != null) {
+            this.printer.println(machineIds[i] + " (" + machine.getInventory().size() + " snacks)");
+         }
+      }
+   }
+
+   /**
+      * fleetQuery ~
+      * Private method for "fleet-query <price>", prints snacks that cost more than the price in every machine
+      * @param No parameters
+      * @exception Exception: when the price is missing, not a number or out of range, or the runner has no fleet
+      * @return No return value
+      */
+
+   private void fleetQuery() throws Exception {
+      double userPrice = VendingMachine.checkPriceComparison(Double.parseDouble(this.requireToken("price")));
+      Map<String, Snack[]> snacksOverPrice = this.requireFleet().findOverPrice(VendingMachine.toThresholdCents(userPrice));
+      this.printer.println("Showing all items above " + VendingMachine.formatPrice(userPrice) + " in every machine:\n");
+      for (Map.Entry<String, Snack[]> entry : snacksOverPrice.entrySet()) {
+         this.printer.println("Machine " + entry.getKey() + ":\n");
+         Snack[] snacks = entry.getValue();
+         for (int i = 0; i < snacks.length; i++) {
+            this.printer.printSnack(snacks[i]);
+         }
+      }
+      if (snacksOverPrice.isEmpty()) {
+         this.printer.println("None\n");
+      }
+   }
+
+   /**
+      * fleetFind ~
+      * Private method for "fleet-find <barcode>", prints the machines holding a barcode
+      * @param No parameters
+      * @exception Exception: when the barcode is missing or not a number, or the runner has no fleet
+      * @return No return value
+      */
+
+   private void fleetFind() throws Exception {
+      int barcode = Integer.parseInt(this.requireToken("barcode"));
+      String[] machineIds = this.requireFleet().findMachinesHolding(barcode);
+      if (machineIds.length == 0) {
+         this.printer.println("No machine holds barcode " + barcode + ".");
+      }
+      else {
+         this.printer.println("Barcode " + barcode + " is held by: " + String.join(", ", machineIds));
+      }
+   }
+
+   /**
+      * names ~
+      * Private method for "names", prints how much storing each distinct snack name once saves
+      * @param No parameters
+      * @exception SnackException: when the inventory keeps its snacks as objects, which pool no names
+      * @return No return value
+      */
+
+   private void names() throws SnackException {
+      NamePool names = this.snackList.getNamePool();
+      if (names == null) {
+         throw new SnackException("Error. Names are only pooled when snacks are kept in columns, see --storage.");
+      }
+      this.printer.println(names.report());
+   }
+
+   /**
+      * requireFileCommands ~
+      * Private method that fails when file commands were disabled
+      * @param No parameters
+      * @exception SnackException: when file commands are disabled
+      * @return No return value
+      */
+
+   private void requireFileCommands() throws SnackException {
+      if (!this.fileCommandsEnabled) {
+         throw new SnackException("File commands are not available here.");
+      }
+   }
+
+   /**
+      * requireFleet ~
+      * Private method that gets the fleet or fails for runners over a single inventory
+      * @param No parameters
+      * @exception SnackException: when the runner has no fleet
+      * @return VendingFleet of this runner
+      */
+
+   private VendingFleet requireFleet() throws SnackException {
+      if (this.fleet == null) {
+         throw new SnackException("Fleet commands need a fleet.");
+      }
+      return this.fleet;
+   }
+
+   /**
+      * nextToken ~
+      * Private method that reads the next whitespace separated token of the line
+      * @param No parameters
+      * @return String token, or null at the end of the line
+      */
+
+   private String nextToken() {
+      int length = this.line.length();
+      while (this.position < length && Character.isWhitespace(this.line.charAt(this.position))) {
+         this.position++;
+      }
+      if (this.position == length) {
+         return null;
+      }
+      int start = this.position;
+      while (this.position < length && !Character.isWhitespace(this.line.charAt(this.position))) {
+         this.position++;
+      }
+      return this.line.substring(start, this.position);
+   }
+
+   /**
+      * requireToken ~
+      * Private method that reads the next token or fails naming the missing argument
+      * @param String argument
+      * name of the expected argument
+      * @exception SnackException: when the line has no more tokens
+      * @return String token
+      */
+
+   private String requireToken(String argument) throws SnackException {
+      String token = this.nextToken();
+      if (token == null) {
+         throw new SnackException("Missing " + argument + ".");
+      }
+      return token;
+   }
+
+   /**
+      * requireRest ~
+      * Private method that reads the trimmed remainder of the line or fails naming the missing argument
+      * @param String argument
+      * name of the expected argument
+      * @exception SnackException: when the rest of the line is blank
+      * @return String rest of the line, trimmed
+      */
+
+   private String requireRest(String argument) throws SnackException {
+      String rest = this.rest().trim();
+      if (rest.isEmpty()) {
+         throw new SnackException("Missing " + argument + ".");
+      }
+      return rest;
+   }
+
+   /**
+      * rest ~
+      * Private method that reads the remainder of the line
+      * @param No parameters
+      * @return String rest of the line, untrimmed
+      */
+
+   private String rest() {
+      String rest = this.line.substring(this.position);
+      this.position = this.line.length();
+      return rest;
+   }
+}
@@ -0,0 +1,154 @@
+/**
+
+   * CalorieIndex --- groups snacks into one bucket per calorie value
+   * Calories are limited to [0 - 2000], so there are only 2001 buckets to keep in order
+   * A bit per bucket marks the non-empty ones, so range queries skip empty buckets 64 at a time
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to grow and clear buckets
+
+public class CalorieIndex {
+
+   public static final int MIN_CALORIES = 0; // lowest valid calorie value
+   public static final int MAX_CALORIES = 2000; // highest valid calorie value
+
+   private Snack[][] buckets; // snacks of each calorie value, bucket 0 holds 0 calories
+   private int[] bucketSizes; // number of snacks held by each bucket
+   private long[] occupied; // bit set for every bucket holding at least one snack
+   private BarcodeIndex positions; // position of each barcode within its bucket
+
+   /**
+      * CalorieIndex Constructor ~
+      * Initializes an empty bucket for every calorie value
+      * @params No parameters
+      * @return No return value
+      */
+
+   public CalorieIndex() {
+      this.buckets = new Snack[MAX_CALORIES - MIN_CALORIES + 1][];
+      this.bucketSizes = new int[MAX_CALORIES - MIN_CALORIES + 1];
+      this.occupied = new long[(MAX_CALORIES - MIN_CALORIES + 64) / 64];
+      this.positions = new BarcodeIndex();
+   }
+
+   /**
+      * add ~
+      * Places a snack into the bucket of its calories
+      * @param Snack snack
+      * the snack to index
+      * @return No return value
+      */
+
+   public void add(Snack snack) {
+      int bucket = snack.getCalories() - MIN_CALORIES;
+      Snack[] bucketSnacks = this.buckets[bucket];
+      int bucketSize = this.bucketSizes[bucket];
+      if (bucketSnacks == null) {
+         bucketSnacks = new Snack[4];
+         this.buckets[bucket] = bucketSnacks;
+      }
+      else if (bucketSize == bucketSnacks.length) {
+         bucketSnacks = Arrays.copyOf(bucketSnacks, bucketSize * 2);
+         this.buckets[bucket] = bucketSnacks;
+      }
+      bucketSnacks[bucketSize] = snack;
+      this.positions.put(snack.getBarcode(), bucketSize);
+      this.bucketSizes[bucket] = bucketSize + 1;
+      this.occupied[bucket >>> 6] |= 1L << bucket;
+   }
+
+   /**
+      * remove ~
+      * Takes a snack out of the bucket of its calories
+      * The last snack of the bucket is swapped into the freed position
+      * @param Snack snack
+      * a snack that was previously added
+      * @return No return value
+      */
+
+   public void remove(Snack snack) {
+      int bucket = snack.getCalories() - MIN_CALORIES;
+      Snack[] bucketSnacks = this.buckets[bucket];
+      int last = this.bucketSizes[bucket] - 1;
+      int position = this.positions.get(snack.getBarcode());
+      Snack lastSnack = bucketSnacks[last];
+      bucketSnacks[position] = lastSnack;
+      this.positions.put(lastSnack.getBarcode(), position);
+      bucketSnacks[last] = null;
+      this.bucketSizes[bucket] = last;
+      if (last == 0) {
+         this.occupied[bucket >>> 6] &= ~(1L << bucket);
+      }
+   }
+
+   /**
+      * clear ~
+      * Empties every bucket
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void clear() {
+      Arrays.fill(this.buckets, null);
+      Arrays.fill(this.bucketSizes, 0);
+      Arrays.fill(this.occupied, 0);
+      this.positions.clear();
+   }
+
+   /**
+      * findBetween ~
+      * Collects the snacks with calories in a range, fewest calories first
+      * Every bucket in the range matches, so no calories are compared
+      * @param int minCalories, int maxCalories
+      * the inclusive calorie range, clamped to [0 - 2000]
+      * @return Snack[] of matching snacks
+      */
+
+   public Snack[] findBetween(int minCalories, int maxCalories) {
+      int first = Math.max(minCalories, MIN_CALORIES) - MIN_CALORIES;
+      int last = Math.min(maxCalories, MAX_CALORIES) - MIN_CALORIES;
+      if (first > last) {
+         return new Snack[0];
+      }
+
+      // size the result from the bucket counts so the matches are copied once
+      int total = 0;
+      for (int bucket = this.nextOccupied(first, last); bucket >= 0; bucket = this.nextOccupied(bucket + 1, last)) {
+         total += this.bucketSizes[bucket];
+      }
+      Snack[] matches = new Snack[total];
+      int count = 0;
+
+      for (int bucket = this.nextOccupied(first, last); bucket >= 0; bucket = this.nextOccupied(bucket + 1, last)) {
+         System.arraycopy(this.buckets[bucket], 0, matches, count, this.bucketSizes[bucket]);
+         count += this.bucketSizes[bucket];
+      }
+      return matches;
+   }
+
+   /**
+      * nextOccupied ~
+      * Private method that finds the next bucket holding snacks
+      * @param int from, int last
+      * the first bucket to look at and the last bucket of the range
+      * @return int bucket, or -1 if every bucket up to last is empty
+      */
+
+   private int nextOccupied(int from, int last) {
+      if (from > last) {
+         return -1;
+      }
+      int word = from >>> 6;
+      long bits = this.occupied[word] & (-1L << from);
+      while (bits == 0) {
+         word++;
+         if (word << 6 > last) {
+            return -1;
+         }
+         bits = this.occupied[word];
+      }
+      int bucket = (word << 6) + Long.numberOfTrailingZeros(bits);
+      return bucket <= last ? bucket : -1;
+   }
+}
@@ -0,0 +1,60 @@
+/**
+
+   * InventoryListener --- notified after every change to a SnackInventory
+   * Listeners run on the thread that changed the inventory, so they should return quickly
+   * @author Chuckee Kondo (Chaz)
+   */
+
+public interface InventoryListener {
+
+   /**
+      * snackAdded ~
+      * Called after a snack was added
+      * @param Snack snack
+      * the snack that was added
+      * @return No return value
+      */
+
+   void snackAdded(Snack snack);
+
+   /**
+      * snackRemoved ~
+      * Called after a snack was removed
+      * @param Snack snack
+      * the snack that was removed
+      * @return No return value
+      */
+
+   void snackRemoved(Snack snack);
+
+   /**
+      * stockChanged ~
+      * Called after a restock or a vend, possibly from several threads at once as stock is changed without locking
+      * @param Snack snack, int stock
+      * the snack whose stock changed and its units in stock right afterwards
+      * @return No return value
+      */
+
+   void stockChanged(Snack snack, int stock);
+
+   /**
+      * inventoryReplaced ~
+      * Called after every snack was swapped out at once, by a clear or a restore
+      * @param Snack[] snacks
+      * the snacks the inventory holds now in insertion order, empty after a clear, must not be changed
+      * @return No return value
+      */
+
+   void inventoryReplaced(Snack[] snacks);
+
+   /**
+      * changeCompleted ~
+      * Called on the changing thread after an add, remove, clear or replace, once the write lock is released
+      * and before the change returns to its caller. May wait, such as until the change is durable
+      * @param No parameters
+      * @exception SnackException: when the change was made but this listener could not complete it
+      * @return No return value
+      */
+
+   void changeCompleted() throws SnackException;
+}
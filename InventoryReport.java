@@ -0,0 +1,125 @@
+/**
+
+   * InventoryReport --- totals of an inventory taken at one moment
+   * SnackInventory keeps the totals up to date on every change, so a report costs the same for any catalog size
+   * @author Chuckee Kondo (Chaz)
+   */
+
+public class InventoryReport {
+
+   private int count; // number of snacks
+   private long totalPriceCents; // sum of every price in cents
+   private long totalCalories; // sum of every calorie value
+   private Snack cheapest; // a snack of the lowest price, null when empty
+   private Snack mostExpensive; // a snack of the highest price, null when empty
+
+   /**
+      * InventoryReport Constructor ~
+      * Initializes a report
+      * @params int count, long totalPriceCents, long totalCalories, Snack cheapest, Snack mostExpensive
+      * the totals and the extreme snacks, null when the inventory is empty
+      * @return No return value
+      */
+
+   public InventoryReport(int count, long totalPriceCents, long totalCalories, Snack cheapest, Snack mostExpensive) {
+      this.count = count;
+      this.totalPriceCents = totalPriceCents;
+      this.totalCalories = totalCalories;
+      this.cheapest = cheapest;
+      this.mostExpensive = mostExpensive;
+   }
+
+   /**
+      * getCount ~
+      * Gets the number of snacks
+      * @param No parameters
+      * @return int number of snacks
+      */
+
+   public int getCount() {
+      return this.count;
+   }
+
+   /**
+      * getTotalPriceCents ~
+      * Gets the sum of every price
+      * @param No parameters
+      * @return long cents
+      */
+
+   public long getTotalPriceCents() {
+      return this.totalPriceCents;
+   }
+
+   /**
+      * getAveragePriceCents ~
+      * Gets the mean price, rounded to the nearest cent
+      * @param No parameters
+      * @return int cents, 0 when empty
+      */
+
+   public int getAveragePriceCents() {
+      return this.count == 0 ? 0 : (int) Math.round((double) this.totalPriceCents / this.count);
+   }
+
+   /**
+      * getTotalCalories ~
+      * Gets the sum of every calorie value
+      * @param No parameters
+      * @return long calories
+      */
+
+   public long getTotalCalories() {
+      return this.totalCalories;
+   }
+
+   /**
+      * getCheapest ~
+      * Gets a snack of the lowest price
+      * @param No parameters
+      * @return Snack, or null when empty
+      */
+
+   public Snack getCheapest() {
+      return this.cheapest;
+   }
+
+   /**
+      * getMostExpensive ~
+      * Gets a snack of the highest price
+      * @param No parameters
+      * @return Snack, or null when empty
+      */
+
+   public Snack getMostExpensive() {
+      return this.mostExpensive;
+   }
+
+   /**
+      * print ~
+      * Prints the totals, one per line
+      * @param SnackPrinter printer
+      * where to print the report
+      * @return No return value
+      */
+
+   public void print(SnackPrinter printer) {
+      printer.println("Snacks: " + this.count);
+      if (this.count == 0) {
+         return;
+      }
+      printer.print("Total price: ");
+      printer.printPrice((int) this.totalPriceCents); // at most 89999 snacks of $5.00, well within an int
+      printer.println();
+      printer.print("Average price: ");
+      printer.printPrice(this.getAveragePriceCents());
+      printer.println();
+      printer.println("Total calories: " + this.totalCalories);
+      printer.print("Cheapest: " + this.cheapest.getName() + " (" + this.cheapest.getBarcode() + ") at ");
+      printer.printPrice(this.cheapest.getPriceCents());
+      printer.println();
+      printer.print("Most expensive: " + this.mostExpensive.getName() + " (" + this.mostExpensive.getBarcode() + ") at ");
+      printer.printPrice(this.mostExpensive.getPriceCents());
+      printer.println();
+   }
+}
@@ -0,0 +1,165 @@
+/**
+
+   * LatencyHistogram --- a lock-free log-linear histogram of durations in nanoseconds
+   * Values below 16 get a bucket each, larger values get 16 buckets per power of two,
+   * so every recorded value is kept within about 6% like an HDR histogram with one significant digit
+   * Each bucket is its own LongAdder, so threads recording at once add to separate cells instead of retrying
+   * on one shared counter, and the largest value is only written when it grows
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.concurrent.atomic.AtomicLong; // largest value recorded
+import java.util.concurrent.atomic.LongAdder; // count of each bucket and total of every value
+
+public class LatencyHistogram {
+
+   private static final int SUB_BUCKET_BITS = 4; // log2 of the buckets per power of two
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // buckets per power of two
+   private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS; // covers every positive long
+
+   private final LongAdder[] counts = new LongAdder[BUCKET_COUNT]; // values recorded in each bucket
+   private final LongAdder total = new LongAdder(); // sum of every value
+   private final AtomicLong max = new AtomicLong(); // largest value
+
+   /**
+      * LatencyHistogram Constructor ~
+      * Initializes an empty histogram
+      * @params No parameters
+      * @return No return value
+      */
+
+   public LatencyHistogram() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         this.counts[i] = new LongAdder();
+      }
+   }
+
+   /**
+      * record ~
+      * Adds one duration to the histogram
+      * @param long nanos
+      * the duration, negative values count as 0
+      * @return No return value
+      */
+
+   public void record(long nanos) {
+      long value = Math.max(nanos, 0);
+      this.counts[bucketOf(value)].increment();
+      this.total.add(value);
+      if (value > this.max.get()) {
+         this.max.accumulateAndGet(value, Math::max);
+      }
+   }
+
+   /**
+      * getCount ~
+      * Gets the number of recorded durations
+      * @param No parameters
+      * @return long number of values
+      */
+
+   public long getCount() {
+      long count = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         count += this.counts[i].sum();
+      }
+      return count;
+   }
+
+   /**
+      * getMean ~
+      * Gets the mean of the recorded durations
+      * @param No parameters
+      * @return double mean in nanoseconds, 0 when empty
+      */
+
+   public double getMean() {
+      long count = this.getCount();
+      return count == 0 ? 0 : (double) this.total.sum() / count;
+   }
+
+   /**
+      * getMax ~
+      * Gets the largest recorded duration
+      * @param No parameters
+      * @return long nanoseconds
+      */
+
+   public long getMax() {
+      return this.max.get();
+   }
+
+   /**
+      * getPercentile ~
+      * Gets the duration below which a share of the recorded values fall
+      * @param double percentile
+      * the share in percent, such as 99
+      * @return long upper bound of the bucket holding the percentile, in nanoseconds, 0 when empty
+      */
+
+   public long getPercentile(double percentile) {
+      long count = this.getCount();
+      if (count == 0) {
+         return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         seen += this.counts[i].sum();
+         if (seen >= rank) {
+            return Math.min(highestValueOf(i), this.max.get());
+         }
+      }
+      return this.max.get();
+   }
+
+   /**
+      * reset ~
+      * Forgets every recorded duration, values recorded meanwhile may be kept or dropped
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void reset() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         this.counts[i].reset();
+      }
+      this.total.reset();
+      this.max.set(0);
+   }
+
+   /**
+      * bucketOf ~
+      * Private method that finds the bucket of a value
+      * @param long value
+      * a value of at least 0
+      * @return int bucket index
+      */
+
+   private static int bucketOf(long value) {
+      if (value < SUB_BUCKETS) {
+         return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value); // at least SUB_BUCKET_BITS
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   /**
+      * highestValueOf ~
+      * Private method that finds the largest value a bucket holds
+      * @param int bucket
+      * the bucket index
+      * @return long largest value of the bucket
+      */
+
+   private static long highestValueOf(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+         return bucket;
+      }
+      int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      long subBucket = bucket % SUB_BUCKETS;
+      long lowest = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+      return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+   }
+}
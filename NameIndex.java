@@ -0,0 +1,439 @@
+/**
+
+   * NameIndex --- finds snacks by part of their name, ignoring case
+   * Lowercased names are kept sorted, so the snacks whose name starts with a search are one range found by descent
+   * Every piece of one, two and three characters (unigram, bigram, trigram) of a lowercased name
+   * lists the barcodes of the snacks containing it. The other matches only come from the list of the rarest trigram
+   * of a search, or from the list of the search itself when it is shorter, so no search walks every name
+   * Short lists are sorted arrays, a list holding more barcodes than a bitmap of every barcode would take
+   * becomes that bitmap, so adding to the lists of common pieces costs the same however long they grow
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to grow and search posting lists and trim results
+import java.util.BitSet; // posting lists holding many barcodes
+import java.util.Locale; // lowercases names the same way everywhere
+import java.util.Map; // entries of the name tree
+import java.util.TreeMap; // lowercased names in order, for prefix ranges
+
+public class NameIndex {
+
+   private static final int MAX_GRAM = 3; // longest piece of a name that is indexed
+   private static final int DENSE_SIZE = BarcodeIndex.BARCODE_COUNT / 32; // barcodes a posting list holds before a bitmap is smaller
+
+   private GramTable postings; // barcodes holding each unigram, bigram and trigram
+   private TreeMap<String, Posting> names; // barcodes of each lowercased name, in name order
+   private Snack[][] snackPages; // snack of each barcode in pages allocated on first use
+   private String[][] namePages; // lowercased name of each barcode, alongside snackPages
+
+   /**
+      * Posting --- the barcodes holding one piece of a name, a sorted array while short and a bitmap once long
+      */
+
+   private static class Posting {
+      private int[] barcodes = new int[2]; // sorted barcodes, null once dense
+      private BitSet dense; // bit of every barcode minus MIN_BARCODE, null while the array is used
+      private int size; // number of barcodes held
+   }
+
+   /**
+      * GramTable --- posting lists by packed piece, open addressing on primitive keys so lookups do not box
+      */
+
+   private static class GramTable {
+      private long[] keys = new long[64]; // packed pieces, 0 marks a free cell as a packed piece never is 0
+      private Posting[] values = new Posting[64]; // posting list of the piece in the same cell
+      private int size; // number of cells in use
+
+      /**
+         * get ~
+         * Finds the posting list of a piece
+         * @param long key
+         * the packed piece
+         * @return Posting of the piece, or null
+         */
+
+      private Posting get(long key) {
+         int mask = this.keys.length - 1;
+         for (int i = cell(key, mask); this.keys[i] != 0; i = (i + 1) & mask) {
+            if (this.keys[i] == key) {
+               return this.values[i];
+            }
+         }
+         return null;
+      }
+
+      /**
+         * put ~
+         * Stores the posting list of a piece that has none yet
+         * @param long key, Posting posting
+         * the packed piece and its new posting list
+         * @return No return value
+         */
+
+      private void put(long key, Posting posting) {
+         if ((this.size + 1) * 2 > this.keys.length) {
+            long[] oldKeys = this.keys;
+            Posting[] oldValues = this.values;
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new Posting[oldKeys.length * 2];
+            this.size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+               if (oldKeys[i] != 0) {
+                  this.put(oldKeys[i], oldValues[i]);
+               }
+            }
+         }
+         int mask = this.keys.length - 1;
+         int i = cell(key, mask);
+         while (this.keys[i] != 0) {
+            i = (i + 1) & mask;
+         }
+         this.keys[i] = key;
+         this.values[i] = posting;
+         this.size++;
+      }
+
+      /**
+         * remove ~
+         * Drops the posting list of a piece, moving later cells of the probe run back so lookups still find them
+         * @param long key
+         * the packed piece
+         * @return No return value
+         */
+
+      private void remove(long key) {
+         int mask = this.keys.length - 1;
+         int hole = cell(key, mask);
+         while (this.keys[hole] != key) {
+            if (this.keys[hole] == 0) {
+               return;
+            }
+            hole = (hole + 1) & mask;
+         }
+         for (int i = (hole + 1) & mask; this.keys[i] != 0; i = (i + 1) & mask) {
+            // a cell may fill the hole unless its home lies after the hole, up to the cell itself
+            int home = cell(this.keys[i], mask);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+               this.keys[hole] = this.keys[i];
+               this.values[hole] = this.values[i];
+               hole = i;
+            }
+         }
+         this.keys[hole] = 0;
+         this.values[hole] = null;
+         this.size--;
+      }
+
+      /**
+         * clear ~
+         * Drops every posting list
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void clear() {
+         Arrays.fill(this.keys, 0);
+         Arrays.fill(this.values, null);
+         this.size = 0;
+      }
+
+      /**
+         * cell ~
+         * Private method that spreads a packed piece over the table
+         * @param long key, int mask
+         * the packed piece and the table length minus one
+         * @return int home cell of the piece
+         */
+
+      private static int cell(long key, int mask) {
+         return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+      }
+   }
+
+   /**
+      * NameIndex Constructor ~
+      * Initializes an empty index
+      * @params No parameters
+      * @return No return value
+      */
+
+   public NameIndex() {
+      this.postings = new GramTable();
+      this.names = new TreeMap<String, Posting>();
+      this.snackPages = new Snack[BarcodeIndex.PAGE_COUNT][];
+      this.namePages = new String[BarcodeIndex.PAGE_COUNT][];
+   }
+
+   /**
+      * add ~
+      * Indexes the name and every unigram, bigram and trigram of a snack
+      * @param Snack snack
+      * the snack to index
+      * @return No return value
+      */
+
+   public void add(Snack snack) {
+      int slot = snack.getBarcode() - BarcodeIndex.MIN_BARCODE;
+      int page = slot >>> BarcodeIndex.PAGE_SHIFT;
+      if (this.snackPages[page] == null) {
+         this.snackPages[page] = new Snack[BarcodeIndex.PAGE_SIZE];
+         this.namePages[page] = new String[BarcodeIndex.PAGE_SIZE];
+      }
+      String name = lowercase(snack.getName());
+      this.snackPages[page][slot & (BarcodeIndex.PAGE_SIZE - 1)] = snack;
+      this.namePages[page][slot & (BarcodeIndex.PAGE_SIZE - 1)] = name;
+
+      Posting named = this.names.get(name);
+      if (named == null) {
+         named = new Posting();
+         this.names.put(name, named);
+      }
+      insert(named, snack.getBarcode());
+      for (int length = 1; length <= MAX_GRAM; length++) {
+         for (int i = 0; i + length <= name.length(); i++) {
+            long gram = gram(name, i, length);
+            Posting posting = this.postings.get(gram);
+            if (posting == null) {
+               posting = new Posting();
+               this.postings.put(gram, posting);
+            }
+            insert(posting, snack.getBarcode());
+         }
+      }
+   }
+
+   /**
+      * remove ~
+      * Drops a snack from its name and from the posting list of every unigram, bigram and trigram of its name
+      * @param Snack snack
+      * a snack that was previously added
+      * @return No return value
+      */
+
+   public void remove(Snack snack) {
+      int slot = snack.getBarcode() - BarcodeIndex.MIN_BARCODE;
+      int page = slot >>> BarcodeIndex.PAGE_SHIFT;
+      String name = this.namePages[page][slot & (BarcodeIndex.PAGE_SIZE - 1)];
+      this.snackPages[page][slot & (BarcodeIndex.PAGE_SIZE - 1)] = null;
+      this.namePages[page][slot & (BarcodeIndex.PAGE_SIZE - 1)] = null;
+
+      Posting named = this.names.get(name);
+      if (named != null && delete(named, snack.getBarcode()) && named.size == 0) {
+         this.names.remove(name);
+      }
+      for (int length = 1; length <= MAX_GRAM; length++) {
+         for (int i = 0; i + length <= name.length(); i++) {
+            long gram = gram(name, i, length);
+            Posting posting = this.postings.get(gram);
+            if (posting != null && delete(posting, snack.getBarcode()) && posting.size == 0) {
+               this.postings.remove(gram);
+            }
+         }
+      }
+   }
+
+   /**
+      * clear ~
+      * Empties the index
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void clear() {
+      this.postings.clear();
+      this.names.clear();
+      Arrays.fill(this.snackPages, null);
+      Arrays.fill(this.namePages, null);
+   }
+
+   /**
+      * find ~
+      * Collects up to limit snacks whose name contains the text, ignoring case
+      * Names starting with the text come first in name order, read from the name tree, then the other names
+      * holding the text in barcode order, read from a posting list and confirmed against the name
+      * @param String text, int limit
+      * the text to look for, trimmed, and the most snacks to return
+      * @return Snack[] of matching snacks
+      */
+
+   public Snack[] find(String text, int limit) {
+      String query = lowercase(text.trim());
+      if (query.isEmpty() || limit <= 0) {
+         return new Snack[0];
+      }
+      Snack[] matches = new Snack[limit];
+      int count = 0;
+
+      // names starting with the text sit together in the tree, right from the text itself
+      for (Map.Entry<String, Posting> entry : this.names.tailMap(query, true).entrySet()) {
+         if (count == limit || !entry.getKey().startsWith(query)) {
+            break;
+         }
+         Posting named = entry.getValue();
+         for (int barcode = next(named, BarcodeIndex.MIN_BARCODE); barcode >= 0 && count < limit; barcode = next(named, barcode + 1)) {
+            matches[count++] = this.snack(barcode);
+         }
+      }
+      if (count == limit) {
+         return matches;
+      }
+
+      // only snacks holding every piece of the text can match, so check the snacks of the rarest one,
+      // a text shorter than a trigram is a piece itself and its snacks all hold it
+      Posting rarest = null;
+      int length = Math.min(query.length(), MAX_GRAM);
+      for (int i = 0; i + length <= query.length(); i++) {
+         Posting posting = this.postings.get(gram(query, i, length));
+         if (posting == null) {
+            return Arrays.copyOf(matches, count);
+         }
+         if (rarest == null || posting.size < rarest.size) {
+            rarest = posting;
+         }
+      }
+      for (int barcode = next(rarest, BarcodeIndex.MIN_BARCODE); barcode >= 0 && count < limit; barcode = next(rarest, barcode + 1)) {
+         String name = this.name(barcode);
+         if (!name.startsWith(query) && (query.length() <= MAX_GRAM || name.contains(query))) {
+            matches[count++] = this.snack(barcode);
+         }
+      }
+      return Arrays.copyOf(matches, count);
+   }
+
+   /**
+      * snack ~
+      * Private method that gets the indexed snack of a barcode
+      * @param int barcode
+      * an indexed barcode
+      * @return Snack with the barcode
+      */
+
+   private Snack snack(int barcode) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      return this.snackPages[slot >>> BarcodeIndex.PAGE_SHIFT][slot & (BarcodeIndex.PAGE_SIZE - 1)];
+   }
+
+   /**
+      * name ~
+      * Private method that gets the lowercased name of an indexed barcode
+      * @param int barcode
+      * an indexed barcode
+      * @return String lowercased name
+      */
+
+   private String name(int barcode) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      return this.namePages[slot >>> BarcodeIndex.PAGE_SHIFT][slot & (BarcodeIndex.PAGE_SIZE - 1)];
+   }
+
+   /**
+      * lowercase ~
+      * Private method that lowercases a name independently of the default locale
+      * @param String name
+      * @return String lowercased name
+      */
+
+   private static String lowercase(String name) {
+      return name.toLowerCase(Locale.ROOT);
+   }
+
+   /**
+      * gram ~
+      * Private method that packs one to three characters of a name and their count into one key
+      * @param String name, int start, int length
+      * the lowercased name, the position of the first character and the number of characters
+      * @return long key of the piece, never 0
+      */
+
+   private static long gram(String name, int start, int length) {
+      long key = length;
+      for (int i = 0; i < length; i++) {
+         key = (key << 16) | name.charAt(start + i);
+      }
+      return key;
+   }
+
+   /**
+      * insert ~
+      * Private method that adds a barcode to a posting list, keeping it sorted and free of repeats
+      * Turns the list into a bitmap once it holds more than DENSE_SIZE barcodes, so the array copy stays short
+      * @param Posting posting, int barcode
+      * @return No return value
+      */
+
+   private static void insert(Posting posting, int barcode) {
+      if (posting.dense != null) {
+         if (!posting.dense.get(barcode - BarcodeIndex.MIN_BARCODE)) {
+            posting.dense.set(barcode - BarcodeIndex.MIN_BARCODE);
+            posting.size++;
+         }
+         return;
+      }
+      int position = Arrays.binarySearch(posting.barcodes, 0, posting.size, barcode);
+      if (position >= 0) {
+         return; // the piece appears more than once in the name
+      }
+      if (posting.size == DENSE_SIZE) {
+         posting.dense = new BitSet(BarcodeIndex.BARCODE_COUNT);
+         for (int i = 0; i < posting.size; i++) {
+            posting.dense.set(posting.barcodes[i] - BarcodeIndex.MIN_BARCODE);
+         }
+         posting.barcodes = null;
+         insert(posting, barcode);
+         return;
+      }
+      position = -position - 1;
+      if (posting.size == posting.barcodes.length) {
+         posting.barcodes = Arrays.copyOf(posting.barcodes, Math.min(posting.size * 2, DENSE_SIZE));
+      }
+      System.arraycopy(posting.barcodes, position, posting.barcodes, position + 1, posting.size - position);
+      posting.barcodes[position] = barcode;
+      posting.size++;
+   }
+
+   /**
+      * delete ~
+      * Private method that takes a barcode out of a posting list
+      * @param Posting posting, int barcode
+      * @return boolean true if the barcode was in the list
+      */
+
+   private static boolean delete(Posting posting, int barcode) {
+      if (posting.dense != null) {
+         if (!posting.dense.get(barcode - BarcodeIndex.MIN_BARCODE)) {
+            return false; // already removed for an earlier repeat of the piece
+         }
+         posting.dense.clear(barcode - BarcodeIndex.MIN_BARCODE);
+         posting.size--;
+         return true;
+      }
+      int position = Arrays.binarySearch(posting.barcodes, 0, posting.size, barcode);
+      if (position < 0) {
+         return false; // already removed for an earlier repeat of the piece
+      }
+      System.arraycopy(posting.barcodes, position + 1, posting.barcodes, position, posting.size - position - 1);
+      posting.size--;
+      return true;
+   }
+
+   /**
+      * next ~
+      * Private method that walks a posting list in barcode order
+      * @param Posting posting, int from
+      * the posting list and the smallest barcode wanted
+      * @return int first barcode of the list at or after from, or -1 past the end
+      */
+
+   private static int next(Posting posting, int from) {
+      if (posting.dense != null) {
+         int slot = posting.dense.nextSetBit(from - BarcodeIndex.MIN_BARCODE);
+         return slot < 0 ? -1 : slot + BarcodeIndex.MIN_BARCODE;
+      }
+      int position = Arrays.binarySearch(posting.barcodes, 0, posting.size, from);
+      if (position < 0) {
+         position = -position - 1;
+      }
+      return position < posting.size ? posting.barcodes[position] : -1;
+   }
+}
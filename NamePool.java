@@ -0,0 +1,340 @@
+/**
+
+   * NamePool --- stores each distinct snack name once and hands out an id for it
+   * Names are kept back to back in one byte arena, as Latin-1 when every character fits and as UTF-8 otherwise
+   * Lookups hash the encoded bytes into an open-addressing table of ids, so the pool holds no String objects
+   * Every id is counted: acquire adds a reference and release drops one, and a name whose last reference
+   * is released leaves the pool, so the pool only holds the names of live snacks
+   * Safe to share between threads, so the SnackTables of several columnar inventories can use one pool
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.nio.charset.StandardCharsets; // names are encoded as Latin-1 or UTF-8
+import java.util.Arrays; // used to grow the arena and the columns
+
+public class NamePool {
+
+   private static final int STRING_OVERHEAD = 40; // approximate bytes of a String and its byte[] besides the characters
+   private static final int ID_OVERHEAD = 21; // bytes of one id: start, length, references, encoding and two table slots
+   private static final int MAX_LOAD_PERCENT = 50; // table is grown once it is this full
+
+   private byte[] arena = new byte[256]; // encoded names, back to back, with gaps left by released names
+   private int arenaEnd; // bytes of the arena in use, including gaps
+   private int liveBytes; // bytes of the arena held by live names
+   private int[] starts = new int[16]; // start of each name in the arena
+   private int[] lengths = new int[16]; // encoded length of each name
+   private int[] references = new int[16]; // references to each name, 0 for a free id
+   private boolean[] utf8 = new boolean[16]; // true for names encoded as UTF-8 rather than Latin-1
+   private int idEnd; // ids handed out so far, live or free
+   private int[] freeIds = new int[16]; // released ids waiting to be handed out again
+   private int freeCount; // number of ids in freeIds
+   private int count; // number of live names
+   private int[] table = new int[32]; // id + 1 of the name hashed to each slot, 0 when empty
+   private long referenceCount; // references to every live name
+   private long stringBytes; // approximate heap bytes the referenced names would take as separate Strings
+
+   /**
+      * NamePool Constructor ~
+      * Initializes an empty pool
+      * @params No parameters
+      * @return No return value
+      */
+
+   public NamePool() {
+   }
+
+   /**
+      * acquire ~
+      * Finds the id of a name and adds a reference to it, storing the name first if the pool does not hold it
+      * @param String name
+      * the name, stored exactly as given
+      * @return int id of the name, valid until its last reference is released
+      */
+
+   public synchronized int acquire(String name) {
+      boolean isUtf8 = !isLatin1(name);
+      byte[] encoded = name.getBytes(isUtf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+      int mask = this.table.length - 1;
+      int slot = hash(encoded, 0, encoded.length) & mask;
+      int id = -1;
+      while (this.table[slot] != 0) {
+         int candidate = this.table[slot] - 1;
+         if (this.utf8[candidate] == isUtf8 && this.matches(candidate, encoded)) {
+            id = candidate;
+            break;
+         }
+         slot = (slot + 1) & mask;
+      }
+
+      this.referenceCount++;
+      if (id != -1) {
+         this.references[id]++;
+         this.stringBytes += this.stringBytesOf(id);
+         return id;
+      }
+      id = this.append(encoded, isUtf8);
+      this.table[slot] = id + 1;
+      this.references[id] = 1;
+      this.stringBytes += this.stringBytesOf(id);
+      this.count++;
+      if (this.count * 100 > this.table.length * MAX_LOAD_PERCENT) {
+         this.rehash(this.table.length * 2);
+      }
+      return id;
+   }
+
+   /**
+      * release ~
+      * Drops one reference to a name, removing the name once nothing references it
+      * @param int id
+      * an id returned by acquire and not yet released by this holder
+      * @return No return value
+      */
+
+   public synchronized void release(int id) {
+      this.referenceCount--;
+      this.stringBytes -= this.stringBytesOf(id);
+      if (--this.references[id] > 0) {
+         return;
+      }
+
+      // backward-shift deletion, so probes for the names that follow still find them
+      int mask = this.table.length - 1;
+      int slot = hash(this.arena, this.starts[id], this.starts[id] + this.lengths[id]) & mask;
+      while (this.table[slot] != id + 1) {
+         slot = (slot + 1) & mask;
+      }
+      int hole = slot;
+      slot = (slot + 1) & mask;
+      while (this.table[slot] != 0) {
+         int moved = this.table[slot] - 1;
+         int home = hash(this.arena, this.starts[moved], this.starts[moved] + this.lengths[moved]) & mask;
+         // move the entry into the hole unless its home lies cyclically after the hole, up to its slot
+         if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+            this.table[hole] = this.table[slot];
+            hole = slot;
+         }
+         slot = (slot + 1) & mask;
+      }
+      this.table[hole] = 0;
+
+      this.liveBytes -= this.lengths[id];
+      this.count--;
+      if (this.freeCount == this.freeIds.length) {
+         this.freeIds = Arrays.copyOf(this.freeIds, this.freeCount * 2);
+      }
+      this.freeIds[this.freeCount++] = id;
+   }
+
+   /**
+      * get ~
+      * Decodes the name with an id
+      * @param int id
+      * a live id returned by acquire
+      * @return String name
+      */
+
+   public synchronized String get(int id) {
+      return new String(this.arena, this.starts[id], this.lengths[id],
+         this.utf8[id] ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+   }
+
+   /**
+      * size ~
+      * Gets the number of distinct live names
+      * @param No parameters
+      * @return int number of names
+      */
+
+   public synchronized int size() {
+      return this.count;
+   }
+
+   /**
+      * getReferences ~
+      * Gets the number of references to live names, counting repeats
+      * @param No parameters
+      * @return long number of references
+      */
+
+   public synchronized long getReferences() {
+      return this.referenceCount;
+   }
+
+   /**
+      * getStringBytes ~
+      * Estimates the heap the referenced names would take as one String per reference
+      * @param No parameters
+      * @return long approximate bytes
+      */
+
+   public synchronized long getStringBytes() {
+      return this.stringBytes;
+   }
+
+   /**
+      * getPoolBytes ~
+      * Gets the bytes the live names take in the pool, their encoded bytes and the bookkeeping of their ids
+      * @param No parameters
+      * @return long bytes
+      */
+
+   public synchronized long getPoolBytes() {
+      return this.liveBytes + (long) this.count * ID_OVERHEAD;
+   }
+
+   /**
+      * report ~
+      * Describes how much the pool saves over one String per reference, counting only live names
+      * @param No parameters
+      * @return String one line report
+      */
+
+   public synchronized String report() {
+      long pooled = this.getPoolBytes();
+      return this.referenceCount + " names, " + this.count + " distinct, "
+         + this.stringBytes + " bytes as strings, " + pooled + " bytes pooled, "
+         + Math.max(this.stringBytes - pooled, 0) + " bytes saved.";
+   }
+
+   /**
+      * append ~
+      * Private method that copies an encoded name to the end of the arena under a free or new id
+      * Compacts the arena first when released names left more than half of it unused
+      * @param byte[] encoded, boolean isUtf8
+      * the encoded name and its encoding
+      * @return int id of the new name, with no references yet
+      */
+
+   private int append(byte[] encoded, boolean isUtf8) {
+      if (this.arenaEnd + encoded.length > this.arena.length) {
+         if (this.liveBytes < this.arenaEnd / 2) {
+            this.compactArena();
+         }
+         if (this.arenaEnd + encoded.length > this.arena.length) {
+            this.arena = Arrays.copyOf(this.arena, Math.max(this.arena.length * 2, this.arenaEnd + encoded.length));
+         }
+      }
+      int id;
+      if (this.freeCount > 0) {
+         id = this.freeIds[--this.freeCount];
+      }
+      else {
+         if (this.idEnd == this.starts.length) {
+            int newLength = this.starts.length * 2;
+            this.starts = Arrays.copyOf(this.starts, newLength);
+            this.lengths = Arrays.copyOf(this.lengths, newLength);
+            this.references = Arrays.copyOf(this.references, newLength);
+            this.utf8 = Arrays.copyOf(this.utf8, newLength);
+         }
+         id = this.idEnd++;
+      }
+      System.arraycopy(encoded, 0, this.arena, this.arenaEnd, encoded.length);
+      this.starts[id] = this.arenaEnd;
+      this.lengths[id] = encoded.length;
+      this.utf8[id] = isUtf8;
+      this.arenaEnd += encoded.length;
+      this.liveBytes += encoded.length;
+      return id;
+   }
+
+   /**
+      * compactArena ~
+      * Private method that copies the live names into a fresh arena in arena order, keeping their ids
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void compactArena() {
+      byte[] compacted = new byte[this.arena.length];
+      int end = 0;
+      for (int id = 0; id < this.idEnd; id++) {
+         if (this.references[id] > 0) {
+            System.arraycopy(this.arena, this.starts[id], compacted, end, this.lengths[id]);
+            this.starts[id] = end;
+            end += this.lengths[id];
+         }
+      }
+      this.arena = compacted;
+      this.arenaEnd = end;
+   }
+
+   /**
+      * matches ~
+      * Private method that compares a stored name with encoded bytes
+      * @param int id, byte[] encoded
+      * @return boolean true if the bytes are the same
+      */
+
+   private boolean matches(int id, byte[] encoded) {
+      int start = this.starts[id];
+      return Arrays.equals(this.arena, start, start + this.lengths[id], encoded, 0, encoded.length);
+   }
+
+   /**
+      * stringBytesOf ~
+      * Private method that estimates the heap bytes of the name of an id as a String
+      * @param int id
+      * @return long approximate bytes, Latin-1 names take one byte per character and others two
+      */
+
+   private long stringBytesOf(int id) {
+      int characters = this.utf8[id] ? this.get(id).length() * 2 : this.lengths[id];
+      return STRING_OVERHEAD + (characters + 7) / 8 * 8;
+   }
+
+   /**
+      * rehash ~
+      * Private method that moves every live id into a larger table
+      * @param int newLength
+      * the new table length, a power of two
+      * @return No return value
+      */
+
+   private void rehash(int newLength) {
+      int[] newTable = new int[newLength];
+      int mask = newLength - 1;
+      for (int id = 0; id < this.idEnd; id++) {
+         if (this.references[id] == 0) {
+            continue; // a free id
+         }
+         int slot = hash(this.arena, this.starts[id], this.starts[id] + this.lengths[id]) & mask;
+         while (newTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+         }
+         newTable[slot] = id + 1;
+      }
+      this.table = newTable;
+   }
+
+   /**
+      * isLatin1 ~
+      * Private method that checks if every character of a name fits in one Latin-1 byte
+      * @param String name
+      * @return boolean true if the name can be stored as Latin-1
+      */
+
+   private static boolean isLatin1(String name) {
+      for (int i = 0; i < name.length(); i++) {
+         if (name.charAt(i) > 0xFF) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+      * hash ~
+      * Private method that hashes a range of bytes
+      * @param byte[] bytes, int start, int end
+      * @return int spread hash
+      */
+
+   private static int hash(byte[] bytes, int start, int end) {
+      int hash = 1;
+      for (int i = start; i < end; i++) {
+         hash = 31 * hash + bytes[i];
+      }
+      return hash ^ (hash >>> 16);
+   }
+}
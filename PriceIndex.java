@@ -0,0 +1,160 @@
+/**
+
+   * PriceIndex --- groups snacks into one bucket per cent of price
+   * Prices are limited to [1.00 - 5.00], so there are only 401 buckets to keep in order
+   * A bit per bucket marks the non-empty ones, so the cheapest and most expensive snacks are found in a few words
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to grow and clear buckets
+
+public class PriceIndex {
+
+   public static final int MIN_CENTS = 100; // lowest valid price in cents
+   public static final int MAX_CENTS = 500; // highest valid price in cents
+
+   private Snack[][] buckets; // snacks of each cent value, bucket 0 holds $1.00
+   private int[] bucketSizes; // number of snacks held by each bucket
+   private long[] occupied; // bit set for every bucket holding at least one snack
+   private BarcodeIndex positions; // position of each barcode within its bucket
+
+   /**
+      * PriceIndex Constructor ~
+      * Initializes an empty bucket for every cent value
+      * @params No parameters
+      * @return No return value
+      */
+
+   public PriceIndex() {
+      this.buckets = new Snack[MAX_CENTS - MIN_CENTS + 1][];
+      this.bucketSizes = new int[MAX_CENTS - MIN_CENTS + 1];
+      this.occupied = new long[(MAX_CENTS - MIN_CENTS + 64) / 64];
+      this.positions = new BarcodeIndex();
+   }
+
+   /**
+      * add ~
+      * Places a snack into the bucket of its price
+      * @param Snack snack
+      * the snack to index
+      * @return No return value
+      */
+
+   public void add(Snack snack) {
+      int bucket = snack.getPriceCents() - MIN_CENTS;
+      Snack[] bucketSnacks = this.buckets[bucket];
+      int bucketSize = this.bucketSizes[bucket];
+      if (bucketSnacks == null) {
+         bucketSnacks = new Snack[4];
+         this.buckets[bucket] = bucketSnacks;
+      }
+      else if (bucketSize == bucketSnacks.length) {
+         bucketSnacks = Arrays.copyOf(bucketSnacks, bucketSize * 2);
+         this.buckets[bucket] = bucketSnacks;
+      }
+      bucketSnacks[bucketSize] = snack;
+      this.positions.put(snack.getBarcode(), bucketSize);
+      this.bucketSizes[bucket] = bucketSize + 1;
+      this.occupied[bucket >>> 6] |= 1L << bucket;
+   }
+
+   /**
+      * remove ~
+      * Takes a snack out of the bucket of its price
+      * The last snack of the bucket is swapped into the freed position
+      * @param Snack snack
+      * a snack that was previously added
+      * @return No return value
+      */
+
+   public void remove(Snack snack) {
+      int bucket = snack.getPriceCents() - MIN_CENTS;
+      Snack[] bucketSnacks = this.buckets[bucket];
+      int last = this.bucketSizes[bucket] - 1;
+      int position = this.positions.get(snack.getBarcode());
+      Snack lastSnack = bucketSnacks[last];
+      bucketSnacks[position] = lastSnack;
+      this.positions.put(lastSnack.getBarcode(), position);
+      bucketSnacks[last] = null;
+      this.bucketSizes[bucket] = last;
+      if (last == 0) {
+         this.occupied[bucket >>> 6] &= ~(1L << bucket);
+      }
+   }
+
+   /**
+      * clear ~
+      * Empties every bucket
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void clear() {
+      Arrays.fill(this.buckets, null);
+      Arrays.fill(this.bucketSizes, 0);
+      Arrays.fill(this.occupied, 0);
+      this.positions.clear();
+   }
+
+   /**
+      * cheapest ~
+      * Finds a snack of the lowest price held
+      * @param No parameters
+      * @return Snack of the lowest price, or null when empty
+      */
+
+   public Snack cheapest() {
+      for (int word = 0; word < this.occupied.length; word++) {
+         if (this.occupied[word] != 0) {
+            return this.buckets[(word << 6) + Long.numberOfTrailingZeros(this.occupied[word])][0];
+         }
+      }
+      return null;
+   }
+
+   /**
+      * mostExpensive ~
+      * Finds a snack of the highest price held
+      * @param No parameters
+      * @return Snack of the highest price, or null when empty
+      */
+
+   public Snack mostExpensive() {
+      for (int word = this.occupied.length - 1; word >= 0; word--) {
+         if (this.occupied[word] != 0) {
+            return this.buckets[(word << 6) + 63 - Long.numberOfLeadingZeros(this.occupied[word])][0];
+         }
+      }
+      return null;
+   }
+
+   /**
+      * findOver ~
+      * Collects the snacks that cost more than a price, cheapest first
+      * Every bucket above the price matches, so no snack prices are compared
+      * @param int priceCents
+      * the price to compare against in cents
+      * @return Snack[] of matching snacks
+      */
+
+   public Snack[] findOver(int priceCents) {
+      int first = Math.max(priceCents + 1 - MIN_CENTS, 0);
+
+      // size the result from the bucket counts so the matches are copied once
+      int total = 0;
+      for (int bucket = first; bucket < this.bucketSizes.length; bucket++) {
+         total += this.bucketSizes[bucket];
+      }
+      Snack[] matches = new Snack[total];
+      int count = 0;
+
+      for (int bucket = first; bucket < this.bucketSizes.length; bucket++) {
+         int bucketSize = this.bucketSizes[bucket];
+         if (bucketSize > 0) {
+            System.arraycopy(this.buckets[bucket], 0, matches, count, bucketSize);
+            count += bucketSize;
+         }
+      }
+      return matches;
+   }
+}
@@ -1,17 +1,18 @@
 /**
 
    * Snack --- initialize a Snack object in Java
+   * Snacks are immutable: the constructors validate every value once and throw SnackException,
+   * the static check methods return a SnackError instead. Indexes key on these values, so a change
+   * is made by removing the snack from its inventory and adding a new one
    * @author Chuckee Kondo (Chaz)
    */
 
-import java.text.*; //to access DecimalFormat
-   
 public class Snack {
 
-   private int barcode; // barcode identifier
-   private int calories; // number of calories in the snack
-   private double price; // price of the snack
-   private String name; // name of the snack
+   private final int barcode; // barcode identifier
+   private final int calories; // number of calories in the snack
+   private final int priceCents; // price of the snack in cents
+   private final String name; // name of the snack
    
    /**
       * Snack Constructor ~
@@ -21,93 +22,115 @@ public class Snack {
       * @return No return value
       */
    
-   public Snack(int barcode, int calories, double price, String name) throws Exception {
-      this.setBarcode(barcode);
-      this.setCalories(calories);
-      this.setPrice(price);
-      this.setName(name); 
+   public Snack(int barcode, int calories, double price, String name) throws SnackException {
+      // the price is stored rounded to the nearest cent, an invalid price becomes -1 cents so it fails in the usual order
+      this(barcode, calories, checkPrice(price) == null ? (int) Math.round(price * 100) : -1, name);
    }
    
    /**
-      * setBarcode ~
-      * Validates and Updates the barcode value
-      * valid values range from 10001 to 99999
-      * @param int newBarcode
-      * number to represent the new barcode
-      * @exception SnackException: when parameter is out of range
+      * Snack Constructor ~
+      * Initializes a Snack object with a price in whole cents and validates parameters
+      * @params int barcode, int calories, int priceCents, String name
+      * @exception throws SnackException
       * @return No return value
       */
    
-   public void setBarcode(int newBarcode) throws Exception {
-      if (newBarcode > 99999 || newBarcode < 10001) {
-         SnackException barcodeError = new SnackException("Error. Valid barcode range is [10001 - 99999]");
-         throw barcodeError; 
+   public Snack(int barcode, int calories, int priceCents, String name) throws SnackException {
+      SnackError error = checkBarcode(barcode);
+      if (error == null) {
+         error = checkCalories(calories);
       }
-      else {
-         this.barcode = newBarcode;
+      if (error == null) {
+         error = checkPriceCents(priceCents);
       }
+      if (error == null) {
+         error = checkName(name);
+      }
+      if (error != null) {
+         throw error.exception();
+      }
+      this.barcode = barcode;
+      this.calories = calories;
+      this.priceCents = priceCents;
+      // trim to eliminate leading and trailing spaces
+      this.name = name.trim();
    }
    
    /**
-      * setCalories ~
-      * Validates and Updates calories value
-      * valid values range from 0 to 2000
-      * @param int newCalorieValue
-      * number to represent the new amount of calories
-      * @exception SnackException: when parameter is out of range
-      * @return No return value
+      * check ~
+      * Validates every value of a snack without throwing
+      * @params int barcode, int calories, double price, String name
+      * @return SnackError of the first invalid value, or null if all are valid
       */
    
-   public void setCalories(int newCalorieValue) throws Exception {
-      if (newCalorieValue < 0 || newCalorieValue > 2000) {
-         SnackException calorieError = new SnackException("Error. Valid calorie range is [0, 2000]");
-         throw calorieError; 
+   public static SnackError check(int barcode, int calories, double price, String name) {
+      SnackError error = checkBarcode(barcode);
+      if (error == null) {
+         error = checkCalories(calories);
+      }
+      if (error == null) {
+         error = checkPrice(price);
       }
-      else {
-         this.calories = newCalorieValue;
+      if (error == null) {
+         error = checkName(name);
       }
+      return error;
    }
    
    /**
-      * setPrice ~
-      * Validates and Updates the price value
-      * valid values range from 1.00 to 5.00
-      * @param double newPrice
-      * number to represent the new price
-      * @exception SnackException: when parameter is out of range
-      * @return No return value
+      * checkBarcode ~
+      * Validates a barcode without throwing
+      * @param int barcode
+      * @return SnackError BARCODE_RANGE if out of range, or null
       */
    
-   public void setPrice(double newPrice) throws Exception {
-      if (newPrice < 1.00 || newPrice > 5.00) {
-         SnackException priceError = new SnackException("Error. Valid price range is [1.00, 5.00]");
-         throw priceError; 
-      }
-      else {
-         this.price = newPrice;
-      }
+   public static SnackError checkBarcode(int barcode) {
+      return barcode > 99999 || barcode < 10001 ? SnackError.BARCODE_RANGE : null;
    }
    
    /**
-      * setName ~
-      * Validates and Updates the name value
-      * valid values range from 2 characters and up
-      * @param String newName
-      * number to represent the new name
-      * @exception SnackException: when parameter is out of range
-      * @return No return value
+      * checkCalories ~
+      * Validates calories without throwing
+      * @param int calories
+      * @return SnackError CALORIE_RANGE if out of range, or null
       */
    
-   public void setName(String newName) throws Exception {
-      // trim prior to eliminate leading and trailing spaces
-      String trimmedName = newName.trim();
-      if (trimmedName.length() <= 1) {
-         SnackException nameError = new SnackException("Error. Name must be two or more characters.");
-         throw nameError; 
-      }
-      else {
-         this.name = trimmedName;
-      }
+   public static SnackError checkCalories(int calories) {
+      return calories < 0 || calories > 2000 ? SnackError.CALORIE_RANGE : null;
+   }
+   
+   /**
+      * checkPrice ~
+      * Validates a price in dollars without throwing
+      * @param double price
+      * @return SnackError PRICE_RANGE if out of range, or null
+      */
+   
+   public static SnackError checkPrice(double price) {
+      // written so NaN is out of range too
+      return price >= 1.00 && price <= 5.00 ? null : SnackError.PRICE_RANGE;
+   }
+   
+   /**
+      * checkPriceCents ~
+      * Validates a price in cents without throwing
+      * @param int priceCents
+      * @return SnackError PRICE_RANGE if out of range, or null
+      */
+   
+   public static SnackError checkPriceCents(int priceCents) {
+      return priceCents < 100 || priceCents > 500 ? SnackError.PRICE_RANGE : null;
+   }
+   
+   /**
+      * checkName ~
+      * Validates a name without throwing
+      * @param String name
+      * @return SnackError NAME_LENGTH if shorter than two characters once trimmed, or null
+      */
+   
+   public static SnackError checkName(String name) {
+      return name.trim().length() <= 1 ? SnackError.NAME_LENGTH : null;
    }
    
    /**
@@ -134,15 +157,25 @@ public class Snack {
    
    /**
       * getPrice ~
-      * Gets price value
-      * Utilizes private helper method: formatPrice
+      * Gets price value in dollars
+      * Kept for callers that work with double prices, use getPriceCents for exact comparisons
       * @param No parameters
       * @return double price
       */
    
    public double getPrice() {
-      String formattedPrice = this.formatPrice();
-      return this.price;
+      return this.priceCents / 100.0;
+   }
+   
+   /**
+      * getPriceCents ~
+      * Gets price value in cents
+      * @param No parameters
+      * @return int price in cents
+      */
+   
+   public int getPriceCents() {
+      return this.priceCents;
    }
    
    /**
@@ -159,31 +192,18 @@ public class Snack {
    /**
       * toString ~
       * Formats object items into a concatenated string
-      * Utilizes private helper method: formatPrice
+      * Utilizes SnackPrinter.appendPrice to format the price
       * @param No parameters
       * @return String of object values
       */
    
    public String toString() {
-      String barcodeString = "Barcode: " + this.barcode;
-      String calorieString = "Calories: " + this.calories;
-      String priceString = "Price: " + this.formatPrice();
-      String nameString = "Name: " + this.name;
-      return barcodeString + "\n" + calorieString + "\n" + priceString + "\n" + nameString;
-   }
-   
-   /**
-      * formatPrice ~
-      * Private method for formatting price using the DecimalFormat class
-      * Utilizes private helper method: formatPrice
-      * @param No parameters
-      * @return String of formatted price
-      */
-   
-   private String formatPrice() {
-      DecimalFormat formatter = new DecimalFormat("$#.00");
-      String output = formatter.format(this.price);
-      return output;
+      StringBuilder builder = new StringBuilder(64);
+      builder.append("Barcode: ").append(this.barcode);
+      builder.append("\nCalories: ").append(this.calories);
+      SnackPrinter.appendPrice(builder.append("\nPrice: "), this.priceCents);
+      builder.append("\nName: ").append(this.name);
+      return builder.toString();
    }
 
 }
@@ -0,0 +1,157 @@
+/**
+
+   * SnackChange --- one change to an inventory as published by a SnackFeed
+   * Sequence numbers start at 1 and grow by one per change of the feed, so a subscriber never sees a gap
+   * and can tell exactly where it left off
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // wraps the snacks of a replacement
+import java.util.Collections; // keeps subscribers from changing the snacks of a replacement
+import java.util.List; // the snacks of a replacement
+
+public class SnackChange {
+
+   /**
+      * Kind --- what happened to the inventory
+      * UPDATED reports a new stock level after a restock or a vend
+      * REPLACED carries no snack but every snack of the inventory afterwards, none after a clear
+      */
+
+   public enum Kind {
+      ADDED, REMOVED, UPDATED, REPLACED
+   }
+
+   private long sequence; // position of the change in its feed
+   private Kind kind; // what happened
+   private Snack snack; // the snack that changed, null for REPLACED
+   private int stock; // units in stock after an UPDATED change, 0 otherwise
+   private Snack[] snacks; // every snack after a REPLACED change, null otherwise
+
+   /**
+      * SnackChange Constructor ~
+      * Initializes a change
+      * @params long sequence, Kind kind, Snack snack, int stock
+      * the position in the feed, what happened, the snack or null and the units in stock afterwards
+      * @return No return value
+      */
+
+   public SnackChange(long sequence, Kind kind, Snack snack, int stock) {
+      this.sequence = sequence;
+      this.kind = kind;
+      this.snack = snack;
+      this.stock = stock;
+   }
+
+   /**
+      * SnackChange Constructor ~
+      * Initializes a REPLACED change
+      * @params long sequence, Snack[] snacks
+      * the position in the feed and every snack of the inventory afterwards, the array is kept and must not change
+      * @return No return value
+      */
+
+   public SnackChange(long sequence, Snack[] snacks) {
+      this.sequence = sequence;
+      this.kind = Kind.REPLACED;
+      this.snacks = snacks;
+   }
+
+   /**
+      * numbered ~
+      * Copies a change under a new position in the feed, a replacement shares its snacks with the copy
+      * @param long sequence
+      * the position in the feed
+      * @return SnackChange with the same content
+      */
+
+   public SnackChange numbered(long sequence) {
+      return this.snacks != null ? new SnackChange(sequence, this.snacks) : new SnackChange(sequence, this.kind, this.snack, this.stock);
+   }
+
+   /**
+      * getSequence ~
+      * Gets the position of the change in its feed
+      * @param No parameters
+      * @return long sequence number, starting at 1
+      */
+
+   public long getSequence() {
+      return this.sequence;
+   }
+
+   /**
+      * getKind ~
+      * Gets what happened
+      * @param No parameters
+      * @return Kind of change
+      */
+
+   public Kind getKind() {
+      return this.kind;
+   }
+
+   /**
+      * getSnack ~
+      * Gets the snack that changed
+      * @param No parameters
+      * @return Snack, or null for REPLACED
+      */
+
+   public Snack getSnack() {
+      return this.snack;
+   }
+
+   /**
+      * getStock ~
+      * Gets the units in stock after an UPDATED change
+      * @param No parameters
+      * @return int units in stock, 0 for other kinds
+      */
+
+   public int getStock() {
+      return this.stock;
+   }
+
+   /**
+      * getSnacks ~
+      * Gets every snack of the inventory after a REPLACED change
+      * @param No parameters
+      * @return List<Snack> in insertion order that cannot be changed, empty for other kinds
+      */
+
+   public List<Snack> getSnacks() {
+      return this.snacks == null ? Collections.<Snack>emptyList() : Collections.unmodifiableList(Arrays.asList(this.snacks));
+   }
+
+   /**
+      * print ~
+      * Prints the change on one line: sequence, kind, then barcode and name, then stock for UPDATED,
+      * or the number of snacks for REPLACED
+      * @param SnackPrinter printer
+      * where to print the change
+      * @return No return value
+      */
+
+   public void print(SnackPrinter printer) {
+      printer.print(Long.toString(this.sequence));
+      printer.print(' ');
+      printer.print(this.kind.name());
+      if (this.snack != null) {
+         printer.print(' ');
+         printer.print(this.snack.getBarcode());
+         printer.print(' ');
+         printer.print(this.snack.getName());
+      }
+      if (this.kind == Kind.UPDATED) {
+         printer.print(" stock ");
+         printer.print(this.stock);
+      }
+      if (this.snacks != null) {
+         printer.print(' ');
+         printer.print(this.snacks.length);
+         printer.print(" snacks");
+      }
+      printer.println();
+   }
+}
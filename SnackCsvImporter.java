@@ -0,0 +1,399 @@
+/**
+
+   * SnackCsvImporter --- loads a catalog of snacks from a CSV file
+   * Each row is barcode,calories,price,name and an optional header row is skipped, as is a leading UTF-8 byte order mark
+   * The file is memory-mapped and split into chunks that are validated in parallel
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.IOException; // thrown when the file cannot be read
+import java.nio.MappedByteBuffer; // memory-mapped view of the file
+import java.nio.channels.FileChannel; // used to map the file
+import java.nio.charset.StandardCharsets; // rows are decoded as UTF-8
+import java.nio.file.Path; // location of the file
+import java.nio.file.StandardOpenOption; // opens the file read-only
+import java.util.ArrayList; // holds rejected rows
+import java.util.Arrays; // grows the arrays of valid snacks
+import java.util.List; // holds rejected rows
+import java.util.stream.IntStream; // runs chunks in parallel
+
+public class SnackCsvImporter {
+
+   private static final int MIN_CHUNK_SIZE = 256 * 1024; // smallest number of bytes worth a separate task
+   private static final long NOT_A_NUMBER = Long.MIN_VALUE; // returned by parseWhole for text that is not a whole number
+
+   /**
+      * Reject --- a CSV row that could not be imported
+      */
+
+   public static class Reject {
+      private int line; // line number of the row, starting from 1
+      private String message; // reason the row was rejected
+
+      /**
+         * Reject Constructor ~
+         * Initializes a rejected row
+         * @params int line, String message
+         * @return No return value
+         */
+
+      public Reject(int line, String message) {
+         this.line = line;
+         this.message = message;
+      }
+
+      /**
+         * getLine ~
+         * Gets the line number of the row
+         * @param No parameters
+         * @return int line number
+         */
+
+      public int getLine() {
+         return this.line;
+      }
+
+      /**
+         * getMessage ~
+         * Gets the reason the row was rejected
+         * @param No parameters
+         * @return String reason
+         */
+
+      public String getMessage() {
+         return this.message;
+      }
+   }
+
+   /**
+      * Result --- the outcome of an import
+      */
+
+   public static class Result {
+      private int imported; // number of snacks added to the inventory
+      private List<Reject> rejects; // rows that were not imported, in line order
+
+      /**
+         * Result Constructor ~
+         * Initializes an import result
+         * @params int imported, List<Reject> rejects
+         * @return No return value
+         */
+
+      public Result(int imported, List<Reject> rejects) {
+         this.imported = imported;
+         this.rejects = rejects;
+      }
+
+      /**
+         * getImported ~
+         * Gets the number of snacks added to the inventory
+         * @param No parameters
+         * @return int number of snacks
+         */
+
+      public int getImported() {
+         return this.imported;
+      }
+
+      /**
+         * getRejects ~
+         * Gets the rows that were not imported
+         * @param No parameters
+         * @return List<Reject> rejected rows in line order
+         */
+
+      public List<Reject> getRejects() {
+         return this.rejects;
+      }
+
+      /**
+         * print ~
+         * Prints a summary line followed by one line per rejected row
+         * @param SnackPrinter printer
+         * where to print the report
+         * @return No return value
+         */
+
+      public void print(SnackPrinter printer) {
+         printer.println("Imported " + this.imported + " snacks, " + this.rejects.size() + " rejected.");
+         for (Reject reject : this.rejects) {
+            printer.println("Line " + reject.getLine() + ": " + reject.getMessage());
+         }
+      }
+   }
+
+   /**
+      * Chunk --- the validated rows of one slice of the file
+      */
+
+   private static class Chunk {
+      private Snack[] snacks = new Snack[16]; // valid snacks in file order
+      private int[] snackLines = new int[16]; // line of each valid snack, relative to the chunk
+      private int count; // number of valid snacks
+      private List<Reject> rejects = new ArrayList<Reject>(); // invalid rows, lines relative to the chunk
+      private int lines; // number of lines in the chunk
+   }
+
+   /**
+      * importFile ~
+      * Validates every row of a CSV file in parallel and adds the valid snacks to an inventory
+      * Rows whose barcode is already taken, in the inventory or earlier in the file, are rejected
+      * @param Path path
+      * the CSV file
+      * @param SnackInventory inventory
+      * the inventory to add snacks to
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when the file is too large to map
+      * @return Result with the number imported and the rejected rows
+      */
+
+   public static Result importFile(Path path, SnackInventory inventory) throws IOException, SnackException {
+      Chunk[] chunks;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         long fileSize = channel.size();
+         if (fileSize > Integer.MAX_VALUE) {
+            throw new SnackException("Error. CSV file is larger than 2 GB.");
+         }
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+         int[] bounds = splitAtLines(buffer, (int) fileSize);
+
+         // validate each chunk on its own thread
+         chunks = IntStream.range(0, bounds.length - 1)
+            .parallel()
+            .mapToObj(i -> parseChunk(buffer, bounds[i], bounds[i+1], i == 0))
+            .toArray(Chunk[]::new);
+      }
+
+      int total = 0;
+      for (Chunk chunk : chunks) {
+         total += chunk.count;
+      }
+      // insert every valid snack in file order under one lock
+      Snack[] snacks = new Snack[total];
+      int offset = 0;
+      for (Chunk chunk : chunks) {
+         System.arraycopy(chunk.snacks, 0, snacks, offset, chunk.count);
+         offset += chunk.count;
+      }
+      boolean[] added = inventory.addAll(snacks, total);
+
+      // collect rejects with absolute line numbers
+      List<Reject> rejects = new ArrayList<Reject>();
+      int imported = 0;
+      int firstLine = 0; // lines before the current chunk
+      offset = 0;
+      for (Chunk chunk : chunks) {
+         int nextReject = 0;
+         for (int i = 0; i < chunk.count; i++) {
+            // keep rejects in line order by emitting the validation rejects that come first
+            while (nextReject < chunk.rejects.size() && chunk.rejects.get(nextReject).getLine() < chunk.snackLines[i]) {
+               Reject reject = chunk.rejects.get(nextReject++);
+               rejects.add(new Reject(firstLine + reject.getLine(), reject.getMessage()));
+            }
+            if (added[offset + i]) {
+               imported++;
+            }
+            else {
+               rejects.add(new Reject(firstLine + chunk.snackLines[i], SnackError.BARCODE_DUPLICATE.getMessage()));
+            }
+         }
+         while (nextReject < chunk.rejects.size()) {
+            Reject reject = chunk.rejects.get(nextReject++);
+            rejects.add(new Reject(firstLine + reject.getLine(), reject.getMessage()));
+         }
+         firstLine += chunk.lines;
+         offset += chunk.count;
+      }
+      return new Result(imported, rejects);
+   }
+
+   /**
+      * splitAtLines ~
+      * Private method that cuts the file into roughly equal chunks ending on line breaks
+      * @param MappedByteBuffer buffer, int size
+      * the mapped file and its length
+      * @return int[] chunk boundaries, starting with 0 and ending with size
+      */
+
+   private static int[] splitAtLines(MappedByteBuffer buffer, int size) {
+      int chunkCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, size / MIN_CHUNK_SIZE));
+      int[] bounds = new int[chunkCount + 1];
+      int count = 1;
+      for (int i = 1; i < chunkCount; i++) {
+         int bound = Math.max((int) ((long) size * i / chunkCount), bounds[count-1]);
+         // move forward past the next line break
+         while (bound < size && buffer.get(bound) != '\n') {
+            bound++;
+         }
+         if (bound < size) {
+            bound++;
+         }
+         if (bound > bounds[count-1] && bound < size) {
+            bounds[count++] = bound;
+         }
+      }
+      bounds[count++] = size;
+      int[] trimmed = new int[count];
+      System.arraycopy(bounds, 0, trimmed, 0, count);
+      return trimmed;
+   }
+
+   /**
+      * parseChunk ~
+      * Private method that validates every row of one chunk
+      * @param MappedByteBuffer buffer, int start, int end
+      * the mapped file and the byte range of the chunk
+      * @param boolean firstChunk
+      * true if the chunk may start with a header row
+      * @return Chunk of valid snacks and rejected rows
+      */
+
+   private static Chunk parseChunk(MappedByteBuffer buffer, int start, int end, boolean firstChunk) {
+      // copy the chunk out of the mapping once, then decode rows from the copy
+      byte[] bytes = new byte[end - start];
+      buffer.slice(start, end - start).get(bytes);
+
+      Chunk chunk = new Chunk();
+      int lineStart = 0;
+      // skip the UTF-8 byte order mark that spreadsheet exports put in front of the header
+      if (firstChunk && bytes.length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+         lineStart = 3;
+      }
+      while (lineStart < bytes.length) {
+         int lineEnd = lineStart;
+         while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+            lineEnd++;
+         }
+         chunk.lines++;
+
+         // drop the \r of Windows line endings
+         int rowEnd = lineEnd;
+         if (rowEnd > lineStart && bytes[rowEnd-1] == '\r') {
+            rowEnd--;
+         }
+         String row = new String(bytes, lineStart, rowEnd - lineStart, StandardCharsets.UTF_8);
+         // compared without case folding by locale, so a Turkish default locale still finds the header
+         boolean header = firstChunk && chunk.lines == 1 && row.trim().regionMatches(true, 0, "barcode", 0, 7);
+         if (!header && !row.trim().isEmpty()) {
+            parseRow(row, chunk);
+         }
+         lineStart = lineEnd + 1;
+      }
+      return chunk;
+   }
+
+   /**
+      * parseRow ~
+      * Private method that validates one row with the same rules as the Snack setters
+      * Invalid rows are rejected through Snack.check, so a file full of bad rows throws nothing
+      * The name is everything after the third comma and may be wrapped in double quotes
+      * @param String row
+      * the row text
+      * @param Chunk chunk
+      * the chunk collecting the outcome
+      * @return No return value
+      */
+
+   private static void parseRow(String row, Chunk chunk) {
+      int firstComma = row.indexOf(',');
+      int secondComma = firstComma < 0 ? -1 : row.indexOf(',', firstComma + 1);
+      int thirdComma = secondComma < 0 ? -1 : row.indexOf(',', secondComma + 1);
+      if (thirdComma < 0) {
+         chunk.rejects.add(new Reject(chunk.lines, "Error. Expected barcode,calories,price,name."));
+         return;
+      }
+      long barcode = parseWhole(row, 0, firstComma);
+      long calories = parseWhole(row, firstComma + 1, secondComma);
+      double price = parseDecimal(row.substring(secondComma + 1, thirdComma).trim());
+      if (barcode == NOT_A_NUMBER || calories == NOT_A_NUMBER || Double.isNaN(price)) {
+         chunk.rejects.add(new Reject(chunk.lines, "Error. Expected numbers for barcode, calories and price."));
+         return;
+      }
+      String name = row.substring(thirdComma + 1).trim();
+      if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length()-1) == '"') {
+         name = name.substring(1, name.length()-1).replace("\"\"", "\"");
+      }
+
+      Snack snack;
+      try {
+         snack = new Snack((int) barcode, (int) calories, price, name);
+      }
+      catch (SnackException e) {
+         // the shared stackless exceptions of SnackError make a rejected row as cheap as a check
+         chunk.rejects.add(new Reject(chunk.lines, e.getMessage()));
+         return;
+      }
+      if (chunk.count == chunk.snacks.length) {
+         chunk.snacks = Arrays.copyOf(chunk.snacks, chunk.count * 2);
+         chunk.snackLines = Arrays.copyOf(chunk.snackLines, chunk.count * 2);
+      }
+      chunk.snacks[chunk.count] = snack;
+      chunk.snackLines[chunk.count] = chunk.lines;
+      chunk.count++;
+   }
+
+   /**
+      * parseWhole ~
+      * Private method that reads a whole number between two positions without throwing
+      * Numbers outside the int range come back as Integer.MIN_VALUE, which fails every range check
+      * @param String row, int start, int end
+      * the row text and the range holding the number, spaces around it are ignored
+      * @return long the number, or NOT_A_NUMBER if the text is not a whole number
+      */
+
+   private static long parseWhole(String row, int start, int end) {
+      while (start < end && Character.isWhitespace(row.charAt(start))) {
+         start++;
+      }
+      while (end > start && Character.isWhitespace(row.charAt(end-1))) {
+         end--;
+      }
+      boolean negative = start < end && row.charAt(start) == '-';
+      if (start < end && (row.charAt(start) == '-' || row.charAt(start) == '+')) {
+         start++;
+      }
+      if (start == end) {
+         return NOT_A_NUMBER;
+      }
+      long value = 0;
+      for (int i = start; i < end; i++) {
+         char digit = row.charAt(i);
+         if (digit < '0' || digit > '9') {
+            return NOT_A_NUMBER;
+         }
+         if (value <= Integer.MAX_VALUE) {
+            value = value * 10 + (digit - '0');
+         }
+      }
+      if (value > Integer.MAX_VALUE) {
+         return Integer.MIN_VALUE;
+      }
+      return negative ? -value : value;
+   }
+
+   /**
+      * parseDecimal ~
+      * Private method that reads a price, rejecting text with characters no number has before it can throw
+      * @param String text
+      * the trimmed price text
+      * @return double the price, or NaN if the text is not a number
+      */
+
+   private static double parseDecimal(String text) {
+      if (text.isEmpty()) {
+         return Double.NaN;
+      }
+      for (int i = 0; i < text.length(); i++) {
+         if ("0123456789.+-eEdDfF".indexOf(text.charAt(i)) < 0) {
+            return Double.NaN;
+         }
+      }
+      try {
+         return Double.parseDouble(text);
+      }
+      catch (NumberFormatException mismatch) {
+         return Double.NaN;
+      }
+   }
+}
@@ -0,0 +1,56 @@
+/**
+
+   * SnackError --- the ways a snack can fail validation
+   * Validation methods return one of these, or null when the value is valid, so bulk loads can reject rows without throwing
+   * Each kind holds one preallocated SnackException for callers that still need to throw
+   * @author Chuckee Kondo (Chaz)
+   */
+
+public enum SnackError {
+
+   BARCODE_RANGE("Error. Valid barcode range is [10001 - 99999]"),
+   CALORIE_RANGE("Error. Valid calorie range is [0, 2000]"),
+   PRICE_RANGE("Error. Valid price range is [1.00, 5.00]"),
+   NAME_LENGTH("Error. Name must be two or more characters."),
+   BARCODE_DUPLICATE("Error. Barcode already exists."),
+   PRICE_QUERY_RANGE("Error: Out of range. Snack prices only range from 1.00 to 5.00."),
+   CALORIE_QUERY_ORDER("Error. Minimum calories cannot be above maximum calories.");
+
+   private final String message; // message shown to the user
+   private final SnackException exception; // shared stackless exception for this kind
+
+   /**
+      * SnackError Constructor ~
+      * Initializes an error kind and its shared exception
+      * @params String message
+      * the message shown to the user
+      * @return No return value
+      */
+
+   SnackError(String message) {
+      this.message = message;
+      this.exception = new SnackException(message);
+   }
+
+   /**
+      * getMessage ~
+      * Gets the message shown to the user
+      * @param No parameters
+      * @return String message
+      */
+
+   public String getMessage() {
+      return this.message;
+   }
+
+   /**
+      * exception ~
+      * Gets the shared exception of this kind, which allocates nothing when thrown
+      * @param No parameters
+      * @return SnackException with this message
+      */
+
+   public SnackException exception() {
+      return this.exception;
+   }
+}
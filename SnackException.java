@@ -1,6 +1,7 @@
 /**
 
    * SnackException --- initialize an Exception object to be thrown
+   * Stackless, since only the message is ever shown, so throwing one in a bulk path stays cheap
    * @author Chuckee Kondo (Chaz)
    */
 
@@ -16,6 +17,7 @@ public class SnackException extends Exception {
       */
    
    public SnackException(String initializedMessage) {
+      super(null, null, false, false); // skip the stack trace and suppressed exceptions
       this.setMessage(initializedMessage);
    }
    
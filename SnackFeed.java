@@ -0,0 +1,641 @@
+/**
+
+   * SnackFeed --- publishes every change to an inventory as a java.util.concurrent.Flow stream
+   * Inventory changes only add to a lock-free queue and never wait for a subscriber, so none can hold up a vend or a writer.
+   * A drainer thread numbers the queued changes and hands them to every subscriber in batches of up to MAX_BATCH,
+   * so while subscribers fall behind they receive fewer, larger batches.
+   * Nothing grows without limit: once QUEUE_CAPACITY changes wait for the drainer the feed drops the next ones and
+   * fails every subscriber, and a subscriber holding more than SUBSCRIBER_LIMIT undelivered changes is failed on its own.
+   * Failed subscribers get onError and can subscribe again from a snapshot.
+   * A replacement of the whole inventory, such as a restore, is queued and published as one REPLACED change
+   * carrying the new snacks, so it takes one place in the queue however large it is.
+   * Every change of a barcode is queued under a lock of its barcode, and stock updates read the stock again under it,
+   * so concurrent vends cannot queue their stock out of order and an update never carries the stock of an earlier
+   * snack with the same barcode. Vends do not lock the inventory, so an update can still be reported after
+   * the removal of its snack, and the drainer drops every UPDATED change for a barcode no longer in the inventory.
+   * The feed closes itself when its last subscriber leaves, then it stops listening to the inventory.
+   * Subscribers only see changes made after they subscribed, a snapshot of the inventory gives the state before that.
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.ArrayDeque; // changes waiting for one subscriber
+import java.util.ArrayList; // collects a batch of changes
+import java.util.Arrays; // copies the subscription array
+import java.util.List; // the item type of the stream
+import java.util.concurrent.ConcurrentLinkedQueue; // lock-free queue of changes waiting for the drainer
+import java.util.concurrent.ExecutorService; // runs the deliveries
+import java.util.concurrent.Executors; // creates the delivery threads
+import java.util.concurrent.Flow; // the reactive streams interfaces
+import java.util.concurrent.atomic.AtomicBoolean; // tells producers the drainer is parked
+import java.util.concurrent.atomic.AtomicInteger; // bounds the queue and serializes each delivery
+import java.util.concurrent.locks.ReentrantLock; // orders the changes of each barcode
+import java.util.concurrent.locks.LockSupport; // parks and wakes the drainer
+
+public class SnackFeed implements InventoryListener, Flow.Publisher<List<SnackChange>> {
+
+   private static final int QUEUE_CAPACITY = 65536; // changes waiting for the drainer before the feed drops changes
+   private static final int MAX_BATCH = 512; // most changes delivered in one onNext
+   private static final int SUBSCRIBER_LIMIT = 65536; // undelivered changes a subscriber may hold before it is failed
+   private static final int BARCODE_LOCKS = 64; // locks ordering the changes of the barcodes, a power of two
+   private static final ExecutorService DELIVERIES = Executors.newCachedThreadPool(runnable -> daemon(runnable, "snack-feed-deliver")); // calls the subscribers of every feed
+
+   private final SnackInventory inventory; // the watched inventory
+   private final ConcurrentLinkedQueue<SnackChange> queue = new ConcurrentLinkedQueue<SnackChange>(); // changes waiting for the drainer, not numbered yet
+   private final AtomicInteger queued = new AtomicInteger(); // changes in queue
+   private final AtomicBoolean parked = new AtomicBoolean(); // true while the drainer waits for changes
+   private final ReentrantLock[] barcodeLocks = new ReentrantLock[BARCODE_LOCKS]; // lock of each group of barcodes, held while a change is queued
+   private final Snack[] live = new Snack[BarcodeIndex.MAX_BARCODE - BarcodeIndex.MIN_BARCODE + 1]; // snack of each barcode as of the drained changes, only used by the drainer
+   private final Thread drainer; // numbers queued changes and hands them to the subscriptions
+   private volatile Subscription[] subscriptions = new Subscription[0]; // current subscribers, replaced on change under this
+   private volatile boolean overflowed; // true once a change was dropped because the queue was full
+   private volatile boolean closed; // true once the feed was closed
+   private long nextSequence = 1; // sequence number of the next change, only used by the drainer
+
+   /**
+      * Subscription --- one subscriber of the feed and the changes waiting for it
+      * The drainer adds changes and a delivery thread hands them over, at most one delivery runs at a time
+      */
+
+   private final class Subscription implements Flow.Subscription {
+
+      private final Flow.Subscriber<? super List<SnackChange>> subscriber; // receives the batches
+      private final ArrayDeque<SnackChange> pending = new ArrayDeque<SnackChange>(); // changes not delivered yet, guarded by this
+      private final AtomicInteger work = new AtomicInteger(1); // signals not handled yet, held at 1 until start so nothing precedes onSubscribe
+      private long requested; // batches the subscriber asked for and has not received, guarded by this
+      private Throwable failure; // error to deliver once, guarded by this
+      private boolean completed; // true once the feed closed, guarded by this
+      private volatile boolean cancelled; // true once nothing more may be delivered
+
+      /**
+         * Subscription Constructor ~
+         * Initializes a subscription
+         * @params Flow.Subscriber subscriber
+         * the subscriber
+         * @return No return value
+         */
+
+      private Subscription(Flow.Subscriber<? super List<SnackChange>> subscriber) {
+         this.subscriber = subscriber;
+      }
+
+      /**
+         * request ~
+         * Asks for more batches
+         * @param long n
+         * number of batches, must be positive
+         * @return No return value
+         */
+
+      public void request(long n) {
+         synchronized (this) {
+            if (n <= 0) {
+               this.failure = new IllegalArgumentException("Error. Request at least one batch.");
+            }
+            else {
+               this.requested = this.requested + n < 0 ? Long.MAX_VALUE : this.requested + n;
+            }
+         }
+         this.signal();
+      }
+
+      /**
+         * cancel ~
+         * Stops the deliveries and leaves the feed, which closes once nobody is left
+         * @param No parameters
+         * @return No return value
+         */
+
+      public void cancel() {
+         this.cancelled = true;
+         synchronized (this) {
+            this.pending.clear();
+         }
+         SnackFeed.this.unsubscribe(this);
+      }
+
+      /**
+         * offer ~
+         * Adds changes for the subscriber, failing it when it holds too many already
+         * @param List<SnackChange> changes
+         * changes in sequence order
+         * @return No return value
+         */
+
+      private void offer(List<SnackChange> changes) {
+         synchronized (this) {
+            if (this.failure != null || this.completed) {
+               return;
+            }
+            if (this.pending.size() + changes.size() > SUBSCRIBER_LIMIT) {
+               this.pending.clear();
+               this.failure = new SnackException("Error. Subscriber fell more than " + SUBSCRIBER_LIMIT + " changes behind.");
+            }
+            else {
+               this.pending.addAll(changes);
+            }
+         }
+         this.signal();
+      }
+
+      /**
+         * fail ~
+         * Ends the subscription with an error as soon as the current onNext returns, undelivered changes are dropped
+         * @param Throwable error
+         * the reason
+         * @return No return value
+         */
+
+      private void fail(Throwable error) {
+         synchronized (this) {
+            if (this.failure == null) {
+               this.pending.clear();
+               this.failure = error;
+            }
+         }
+         this.signal();
+      }
+
+      /**
+         * complete ~
+         * Ends the subscription normally once the pending changes are delivered
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void complete() {
+         synchronized (this) {
+            this.completed = true;
+         }
+         this.signal();
+      }
+
+      /**
+         * start ~
+         * Lets deliveries begin once onSubscribe returned, handing over anything that arrived meanwhile
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void start() {
+         DELIVERIES.execute(this::deliver);
+      }
+
+      /**
+         * signal ~
+         * Starts a delivery unless one is running, which then picks up the new work
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void signal() {
+         if (this.work.getAndIncrement() == 0) {
+            DELIVERIES.execute(this::deliver);
+         }
+      }
+
+      /**
+         * deliver ~
+         * Hands out batches while the subscriber asks for them, then the error or completion
+         * Calls the subscriber without holding any lock, so a subscriber stuck in onNext only stalls its own deliveries
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void deliver() {
+         int missed = 1;
+         while (true) {
+            while (!this.cancelled) {
+               List<SnackChange> batch = null;
+               Throwable error = null;
+               boolean done = false;
+               synchronized (this) {
+                  if (this.failure != null) {
+                     error = this.failure;
+                  }
+                  else if (this.requested > 0 && !this.pending.isEmpty()) {
+                     batch = new ArrayList<SnackChange>(Math.min(this.pending.size(), MAX_BATCH));
+                     while (batch.size() < MAX_BATCH && !this.pending.isEmpty()) {
+                        batch.add(this.pending.poll());
+                     }
+                     this.requested--;
+                  }
+                  else if (this.completed && this.pending.isEmpty()) {
+                     done = true;
+                  }
+               }
+               if (error != null || done) {
+                  this.cancelled = true;
+                  SnackFeed.this.unsubscribe(this);
+                  if (error != null) {
+                     this.subscriber.onError(error);
+                  }
+                  else {
+                     this.subscriber.onComplete();
+                  }
+                  break;
+               }
+               if (batch == null) {
+                  break;
+               }
+               try {
+                  this.subscriber.onNext(batch);
+               }
+               catch (RuntimeException e) {
+                  this.cancel(); // a subscriber that throws is dropped
+               }
+            }
+            missed = this.work.addAndGet(-missed);
+            if (missed == 0) {
+               return;
+            }
+         }
+      }
+   }
+
+   /**
+      * SnackFeed Constructor ~
+      * Private constructor, use open
+      * @params SnackInventory inventory
+      * the inventory to watch
+      * @return No return value
+      */
+
+   private SnackFeed(SnackInventory inventory) {
+      this.inventory = inventory;
+      for (int i = 0; i < BARCODE_LOCKS; i++) {
+         this.barcodeLocks[i] = new ReentrantLock();
+      }
+      this.drainer = daemon(this::drain, "snack-feed-drain");
+   }
+
+   /**
+      * open ~
+      * Starts publishing the changes of an inventory
+      * @param SnackInventory inventory
+      * the inventory to watch
+      * @return SnackFeed attached to the inventory
+      */
+
+   public static SnackFeed open(SnackInventory inventory) {
+      SnackFeed feed = new SnackFeed(inventory);
+      inventory.addListener(feed);
+      // changes queued meanwhile may already be in the snapshot, draining them again leaves the same snacks
+      for (Snack snack : inventory.snapshot()) {
+         feed.live[snack.getBarcode() - BarcodeIndex.MIN_BARCODE] = snack;
+      }
+      feed.drainer.start();
+      return feed;
+   }
+
+   /**
+      * subscribe ~
+      * Adds a subscriber, which receives batches of changes in sequence order as it requests them
+      * A closed feed fails the subscriber right away, VendingMachine.watch opens a new feed instead
+      * @param Flow.Subscriber subscriber
+      * the subscriber, each request(n) asks for n more batches
+      * @return No return value
+      */
+
+   public void subscribe(Flow.Subscriber<? super List<SnackChange>> subscriber) {
+      if (!this.trySubscribe(subscriber)) {
+         Subscription subscription = new Subscription(subscriber);
+         subscriber.onSubscribe(subscription);
+         subscription.fail(new SnackException("Error. The feed is closed."));
+         subscription.start();
+      }
+   }
+
+   /**
+      * trySubscribe ~
+      * Adds a subscriber unless the feed is closed
+      * @param Flow.Subscriber subscriber
+      * the subscriber, each request(n) asks for n more batches
+      * @return boolean false if the feed is closed and the subscriber was not called
+      */
+
+   public boolean trySubscribe(Flow.Subscriber<? super List<SnackChange>> subscriber) {
+      Subscription subscription = new Subscription(subscriber);
+      synchronized (this) {
+         if (this.closed) {
+            return false;
+         }
+         Subscription[] newSubscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + 1);
+         newSubscriptions[this.subscriptions.length] = subscription;
+         this.subscriptions = newSubscriptions;
+      }
+      subscriber.onSubscribe(subscription);
+      subscription.start();
+      return true;
+   }
+
+   /**
+      * getSubscriberCount ~
+      * Gets the number of current subscribers
+      * @param No parameters
+      * @return int number of subscribers
+      */
+
+   public int getSubscriberCount() {
+      return this.subscriptions.length;
+   }
+
+   /**
+      * isClosed ~
+      * Indicates if the feed stopped publishing
+      * @param No parameters
+      * @return boolean true once closed
+      */
+
+   public boolean isClosed() {
+      return this.closed;
+   }
+
+   /**
+      * snackAdded ~
+      * Publishes an added snack
+      * @param Snack snack
+      * the snack that was added
+      * @return No return value
+      */
+
+   public void snackAdded(Snack snack) {
+      ReentrantLock lock = this.lockOf(snack);
+      lock.lock();
+      try {
+         this.enqueue(SnackChange.Kind.ADDED, snack, 0);
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+      * snackRemoved ~
+      * Publishes a removed snack
+      * @param Snack snack
+      * the snack that was removed
+      * @return No return value
+      */
+
+   public void snackRemoved(Snack snack) {
+      ReentrantLock lock = this.lockOf(snack);
+      lock.lock();
+      try {
+         this.enqueue(SnackChange.Kind.REMOVED, snack, 0);
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+      * stockChanged ~
+      * Publishes the new stock of a snack, read again under the lock of its barcode
+      * Concurrent vends can report their stock out of order, reading it under the lock as the update is queued
+      * means every later update of the barcode carries a stock at least as recent
+      * @param Snack snack, int stock
+      * the restocked or vended snack and its units in stock afterwards, which may already be stale
+      * @return No return value
+      */
+
+   public void stockChanged(Snack snack, int stock) {
+      ReentrantLock lock = this.lockOf(snack);
+      lock.lock();
+      try {
+         this.enqueue(SnackChange.Kind.UPDATED, snack, this.inventory.getStock(snack.getBarcode()));
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+      * inventoryReplaced ~
+      * Publishes the replacement as one change carrying the new snacks
+      * @param Snack[] snacks
+      * the snacks the inventory holds now, the inventory hands over an array it does not change
+      * @return No return value
+      */
+
+   public void inventoryReplaced(Snack[] snacks) {
+      // every barcode may change, so no stock read before the replacement may be queued after it
+      for (ReentrantLock lock : this.barcodeLocks) {
+         lock.lock();
+      }
+      try {
+         this.enqueue(new SnackChange(0, snacks)); // numbered by the drainer
+      }
+      finally {
+         for (ReentrantLock lock : this.barcodeLocks) {
+            lock.unlock();
+         }
+      }
+   }
+
+   /**
+      * changeCompleted ~
+      * Nothing to finish, changes were queued when they were made
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void changeCompleted() {
+   }
+
+   /**
+      * close ~
+      * Stops publishing, subscribers get onComplete once the changes already handed to them are delivered
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void close() {
+      Subscription[] current;
+      synchronized (this) {
+         if (this.closed) {
+            return;
+         }
+         this.closed = true;
+         current = this.subscriptions;
+         this.subscriptions = new Subscription[0];
+      }
+      this.inventory.removeListener(this);
+      LockSupport.unpark(this.drainer);
+      for (Subscription subscription : current) {
+         subscription.complete();
+      }
+   }
+
+   /**
+      * unsubscribe ~
+      * Private method that drops a subscription and closes the feed once none is left
+      * @param Subscription subscription
+      * the subscription that ended
+      * @return No return value
+      */
+
+   private void unsubscribe(Subscription subscription) {
+      synchronized (this) {
+         Subscription[] current = this.subscriptions;
+         int index = -1;
+         for (int i = 0; i < current.length && index == -1; i++) {
+            if (current[i] == subscription) {
+               index = i;
+            }
+         }
+         if (index == -1) {
+            return;
+         }
+         Subscription[] newSubscriptions = new Subscription[current.length - 1];
+         System.arraycopy(current, 0, newSubscriptions, 0, index);
+         System.arraycopy(current, index + 1, newSubscriptions, index, newSubscriptions.length - index);
+         this.subscriptions = newSubscriptions;
+         if (newSubscriptions.length > 0) {
+            return;
+         }
+      }
+      this.close();
+   }
+
+   /**
+      * lockOf ~
+      * Private method that finds the lock ordering the changes of a barcode
+      * @param Snack snack
+      * the snack that changed
+      * @return ReentrantLock of its barcode
+      */
+
+   private ReentrantLock lockOf(Snack snack) {
+      return this.barcodeLocks[snack.getBarcode() & (BARCODE_LOCKS - 1)];
+   }
+
+   /**
+      * enqueue ~
+      * Private method that queues a change for the drainer without locking or waiting
+      * When the queue is full the change is dropped and the drainer fails every subscriber, as they missed it
+      * @param SnackChange.Kind kind, Snack snack, int stock
+      * what happened, the snack or null and the units in stock afterwards
+      * @return No return value
+      */
+
+   private void enqueue(SnackChange.Kind kind, Snack snack, int stock) {
+      this.enqueue(new SnackChange(0, kind, snack, stock)); // numbered by the drainer
+   }
+
+   /**
+      * enqueue ~
+      * Private method that queues an unnumbered change for the drainer without locking or waiting
+      * @param SnackChange change
+      * the change, numbered 0
+      * @return No return value
+      */
+
+   private void enqueue(SnackChange change) {
+      if (this.closed) {
+         return;
+      }
+      if (this.queued.incrementAndGet() > QUEUE_CAPACITY) {
+         this.queued.decrementAndGet();
+         this.overflowed = true;
+      }
+      else {
+         this.queue.offer(change);
+      }
+      if (this.parked.get() && this.parked.compareAndSet(true, false)) {
+         LockSupport.unpark(this.drainer);
+      }
+   }
+
+   /**
+      * drain ~
+      * Private method run by the drainer, numbers queued changes and hands them out in batches until the feed closes
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void drain() {
+      List<SnackChange> batch = new ArrayList<SnackChange>();
+      while (!this.closed) {
+         SnackChange change = this.queue.poll();
+         if (change != null) {
+            this.queued.decrementAndGet();
+            change = this.number(change);
+            if (change != null) {
+               batch.add(change);
+            }
+            if (batch.size() < MAX_BATCH) {
+               continue;
+            }
+         }
+         if (!batch.isEmpty()) {
+            for (Subscription subscription : this.subscriptions) {
+               subscription.offer(batch);
+            }
+            batch = new ArrayList<SnackChange>();
+         }
+         if (this.overflowed) {
+            this.overflowed = false;
+            for (Subscription subscription : this.subscriptions) {
+               subscription.fail(new SnackException("Error. The feed fell behind and dropped changes."));
+            }
+         }
+         if (change == null) {
+            // check the queue again after parking is announced, so a change queued meanwhile is not missed
+            this.parked.set(true);
+            if (this.queue.isEmpty() && !this.overflowed && !this.closed) {
+               LockSupport.park(this);
+            }
+            this.parked.set(false);
+         }
+      }
+   }
+
+   /**
+      * number ~
+      * Private method that gives a queued change its sequence number and tracks the snack of each barcode
+      * Barcodes are compared rather than snacks, as a columnar inventory hands out a new view every time
+      * @param SnackChange change
+      * the queued change
+      * @return SnackChange numbered copy, or null for a stock update of a barcode no longer in the inventory
+      */
+
+   private SnackChange number(SnackChange change) {
+      Snack snack = change.getSnack();
+      switch (change.getKind()) {
+         case ADDED:
+            this.live[snack.getBarcode() - BarcodeIndex.MIN_BARCODE] = snack;
+            break;
+         case REMOVED:
+            this.live[snack.getBarcode() - BarcodeIndex.MIN_BARCODE] = null;
+            break;
+         case REPLACED:
+            Arrays.fill(this.live, null);
+            for (Snack added : change.getSnacks()) {
+               this.live[added.getBarcode() - BarcodeIndex.MIN_BARCODE] = added;
+            }
+            break;
+         case UPDATED:
+            snack = this.live[snack.getBarcode() - BarcodeIndex.MIN_BARCODE];
+            if (snack == null) {
+               return null; // the vend or restock finished after the snack was removed
+            }
+            // the stock was read for the barcode, so report it with the snack the barcode holds now
+            return new SnackChange(this.nextSequence++, SnackChange.Kind.UPDATED, snack, change.getStock());
+      }
+      return change.numbered(this.nextSequence++);
+   }
+
+   /**
+      * daemon ~
+      * Private method that creates a background thread that does not keep the program running
+      * @param Runnable runnable, String name
+      * the work of the thread and its name
+      * @return Thread not yet started
+      */
+
+   private static Thread daemon(Runnable runnable, String name) {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+   }
+}
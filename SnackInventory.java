@@ -0,0 +1,1133 @@
+/**
+
+   * SnackInventory --- a thread-safe container for the snacks of a vending machine
+   * Keeps snacks in insertion order with amortized appends and tombstoned removals
+   * Barcode lookups are lock-free, range queries share a read lock and changes take the write lock
+   * Every change also publishes a new version of a SnackTrie, so snapshots are taken in constant time
+   * and stay consistent for as long as they are read without holding up writers
+   * Each change publishes exactly one version, so lock-free readers see a bulk change either whole or not at all
+   * Stock is counted per barcode and vended without locking, restocks share the read lock
+   * Adds, removes, queries, listings, vends and restocks are timed into SnackStats
+   * A columnar inventory, made by columnar, keeps its rows in a SnackTable instead and hands out Snack views on demand,
+   * it skips the trie and the indexes, so lookups take the read lock and queries scan primitive columns
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to grow arrays, iterate copies and find where a page starts
+import java.util.Iterator; // used to walk the live snacks
+import java.util.function.Predicate; // chooses the snacks of a bulk removal
+import java.util.concurrent.locks.ReentrantReadWriteLock; // guards the slots and the indexes
+
+public class SnackInventory implements Iterable<Snack> {
+
+   private static final int DEFAULT_CAPACITY = 16; // starting capacity when no hint is given
+
+   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // guards every field below except stock and published, listeners is also read without it
+   private final StockLevels stock = new StockLevels(); // units in stock of each barcode, updated without locking
+   private final SnackTable table; // rows of a columnar inventory, null when snacks are kept as objects
+   private volatile SnackTrie published = SnackTrie.EMPTY; // latest version of the live snacks by barcode, read without locking
+   private int size; // number of live snacks, readers without the lock use the size of published
+   private Snack[] slots; // snacks in insertion order, null marks a removed snack (tombstone)
+   private long[] sequences; // insertion number of each slot, ascending, kept for tombstones too
+   private long nextSequence = SnackPage.FIRST + 1; // insertion number of the next added snack
+   private int end; // number of slots in use, including tombstones
+   private BarcodeIndex barcodeIndex; // barcode to slot lookup table
+   private PriceIndex priceIndex; // snacks ordered by price for price queries
+   private CalorieIndex calorieIndex; // snacks ordered by calories for calorie range queries
+   private NameIndex nameIndex; // pieces of snack names for name searches
+   private long totalPriceCents; // sum of every live price, kept for reports
+   private long totalCalories; // sum of every live calorie value, kept for reports
+   private volatile InventoryListener[] listeners = new InventoryListener[0]; // notified after every change, replaced whole so stock changes can read it without locking
+
+   /**
+      * SnackInventory Constructor ~
+      * Initializes an empty inventory with the default capacity
+      * @params No parameters
+      * @return No return value
+      */
+
+   public SnackInventory() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+      * SnackInventory Constructor ~
+      * Initializes an empty inventory sized for an expected number of snacks
+      * @params int initialCapacity
+      * capacity hint for bulk loads
+      * @return No return value
+      */
+
+   public SnackInventory(int initialCapacity) {
+      this(initialCapacity, null);
+   }
+
+   /**
+      * SnackInventory Constructor ~
+      * Private constructor that initializes an empty inventory keeping snacks as objects or in columns
+      * @params int initialCapacity, NamePool names
+      * capacity hint for bulk loads and the name pool of a SnackTable to keep the snacks in, or null for objects
+      * @return No return value
+      */
+
+   private SnackInventory(int initialCapacity, NamePool names) {
+      if (names != null) {
+         this.table = new SnackTable(initialCapacity, names);
+         this.slots = new Snack[0];
+         this.sequences = new long[0];
+         return;
+      }
+      this.table = null;
+      this.slots = new Snack[Math.max(initialCapacity, 1)];
+      this.sequences = new long[this.slots.length];
+      this.barcodeIndex = new BarcodeIndex();
+      this.priceIndex = new PriceIndex();
+      this.calorieIndex = new CalorieIndex();
+      this.nameIndex = new NameIndex();
+   }
+
+   /**
+      * columnar ~
+      * Creates an empty inventory that keeps its snacks in primitive columns and a name arena
+      * Costs a few dozen bytes per snack instead of a Snack and a String, and scans walk the columns,
+      * but every snack handed out is a new view, lookups take the read lock and queries scan instead of using indexes
+      * @param int initialCapacity
+      * capacity hint for bulk loads
+      * @return SnackInventory backed by a SnackTable
+      */
+
+   public static SnackInventory columnar(int initialCapacity) {
+      return new SnackInventory(initialCapacity, new NamePool());
+   }
+
+   /**
+      * columnar ~
+      * Creates an empty columnar inventory that stores its names in a given pool
+      * @param int initialCapacity, NamePool names
+      * capacity hint for bulk loads and the pool, which inventories of a fleet can share to store each name once
+      * @return SnackInventory backed by a SnackTable
+      */
+
+   public static SnackInventory columnar(int initialCapacity, NamePool names) {
+      return new SnackInventory(initialCapacity, names);
+   }
+
+   /**
+      * getNamePool ~
+      * Gets the pool holding the names of a columnar inventory
+      * @param No parameters
+      * @return NamePool of the snacks, or null when snacks are kept as objects with their own Strings
+      */
+
+   public NamePool getNamePool() {
+      return this.table != null ? this.table.getNamePool() : null;
+   }
+
+   /**
+      * isColumnar ~
+      * Indicates if the inventory keeps its snacks in columns
+      * @param No parameters
+      * @return boolean true if the snacks are kept in a SnackTable
+      */
+
+   public boolean isColumnar() {
+      return this.table != null;
+   }
+
+   /**
+      * size ~
+      * Gets the number of snacks in the inventory
+      * @param No parameters
+      * @return int number of snacks
+      */
+
+   public int size() {
+      if (this.table != null) {
+         this.lock.readLock().lock();
+         try {
+            return this.table.size();
+         }
+         finally {
+            this.lock.readLock().unlock();
+         }
+      }
+      return this.published.size();
+   }
+
+   /**
+      * isEmpty ~
+      * Indicates if the inventory has no snacks
+      * @param No parameters
+      * @return boolean true if there are no snacks
+      */
+
+   public boolean isEmpty() {
+      return this.size() == 0;
+   }
+
+   /**
+      * ensureCapacity ~
+      * Grows the inventory once so a bulk load of snacks does not resize repeatedly
+      * @param int minCapacity
+      * number of snacks the inventory should hold without growing
+      * @return No return value
+      */
+
+   public void ensureCapacity(int minCapacity) {
+      this.lock.writeLock().lock();
+      try {
+         if (this.table != null) {
+            this.table.ensureCapacity(minCapacity);
+         }
+         else if (this.end + (minCapacity - this.size) > this.slots.length) {
+            this.compact(); // reclaim tombstones before deciding to grow
+            if (minCapacity > this.slots.length) {
+               this.resize(minCapacity);
+            }
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+   }
+
+   /**
+      * add ~
+      * Appends a snack to the end of the inventory
+      * The duplicate check and the append happen atomically
+      * @param Snack newSnack
+      * the snack to add
+      * @exception SnackException: when the barcode already exists
+      * @return No return value
+      */
+
+   public void add(Snack newSnack) throws SnackException {
+      if (!this.tryAdd(newSnack)) {
+         throw SnackError.BARCODE_DUPLICATE.exception();
+      }
+   }
+
+   /**
+      * tryAdd ~
+      * Appends a snack to the end of the inventory unless its barcode is taken, without throwing for a taken barcode
+      * The duplicate check and the append happen atomically
+      * @param Snack newSnack
+      * the snack to add
+      * @exception SnackException: when the snack was added but a listener could not complete the change
+      * @return boolean true if the snack was added, false if the barcode already exists
+      */
+
+   public boolean tryAdd(Snack newSnack) throws SnackException {
+      long start = SnackStats.start();
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         if (this.holds(newSnack.getBarcode())) {
+            return false;
+         }
+         if (this.table == null && this.end == this.slots.length) {
+            // reuse space held by tombstones before growing
+            if (this.end - this.size >= this.slots.length / 4 && this.end > this.size) {
+               this.compact();
+            }
+            else {
+               this.resize(this.slots.length * 2);
+            }
+         }
+         this.append(newSnack);
+         if (this.table == null) {
+            this.published = this.published.with(newSnack);
+         }
+         notified = this.listeners;
+         for (InventoryListener listener : notified) {
+            listener.snackAdded(newSnack);
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      try {
+         complete(notified);
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.ADD, start);
+      }
+      return true;
+   }
+
+   /**
+      * addAll ~
+      * Appends many snacks under one write lock, skipping those whose barcode is taken
+      * Room is made once up front, so a bulk load neither resizes repeatedly nor lets other writers in between
+      * @param Snack[] snacks, int count
+      * the snacks to add and how many of them, starting at index 0
+      * @exception SnackException: when the snacks were added but a listener could not complete the change
+      * @return boolean[] true at the index of every snack that was added, false where the barcode already existed
+      */
+
+   public boolean[] addAll(Snack[] snacks, int count) throws SnackException {
+      long start = SnackStats.start();
+      boolean[] added = new boolean[count];
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         if (this.table != null) {
+            this.table.ensureCapacity(this.size + count);
+         }
+         else if (this.end + count > this.slots.length) {
+            this.compact(); // reclaim tombstones before deciding to grow
+            if (this.end + count > this.slots.length) {
+               this.resize(Math.max(this.end + count, this.slots.length * 2));
+            }
+         }
+         SnackTrie version = this.published;
+         for (int i = 0; i < count; i++) {
+            if (!this.holds(snacks[i].getBarcode())) {
+               this.append(snacks[i]);
+               if (this.table == null) {
+                  version = version.with(snacks[i]);
+               }
+               added[i] = true;
+            }
+         }
+         this.published = version; // one version for the whole load
+         notified = this.listeners;
+         for (int i = 0; i < count; i++) {
+            if (added[i]) {
+               for (InventoryListener listener : notified) {
+                  listener.snackAdded(snacks[i]);
+               }
+            }
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      try {
+         complete(notified);
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.ADD, start);
+      }
+      return added;
+   }
+
+   /**
+      * get ~
+      * Finds the snack with a matching barcode without locking
+      * @param int barcode
+      * the barcode of the desired snack
+      * @return Snack with the barcode, or null if none exists
+      */
+
+   public Snack get(int barcode) {
+      if (this.table != null) {
+         this.lock.readLock().lock();
+         try {
+            return this.table.get(barcode);
+         }
+         finally {
+            this.lock.readLock().unlock();
+         }
+      }
+      return this.published.get(barcode);
+   }
+
+   /**
+      * contains ~
+      * Indicates if a snack with the barcode exists without locking
+      * @param int barcode
+      * the barcode to check
+      * @return boolean true if the barcode is taken
+      */
+
+   public boolean contains(int barcode) {
+      if (this.table != null) {
+         this.lock.readLock().lock();
+         try {
+            return this.table.contains(barcode);
+         }
+         finally {
+            this.lock.readLock().unlock();
+         }
+      }
+      return this.get(barcode) != null;
+   }
+
+   /**
+      * getStock ~
+      * Gets the units in stock of a snack without locking
+      * @param int barcode
+      * the barcode of the snack
+      * @return int units in stock, 0 if the snack does not exist
+      */
+
+   public int getStock(int barcode) {
+      if (this.table != null) {
+         // vends and restocks of a columnar inventory find their snack under the read lock, so they never
+         // race a removal and removed barcodes always read 0, reading without the lock keeps journals free of it
+         return this.stock.get(barcode);
+      }
+      if (!this.contains(barcode)) {
+         return 0;
+      }
+      return this.stock.get(barcode);
+   }
+
+   /**
+      * restock ~
+      * Adds units to the stock of a snack under the read lock, so restocks run side by side
+      * but never interleave with the removal of the snack
+      * New snacks start with no stock, and removing a snack drops its stock
+      * A journal records the new stock without holding up the restock, so it is durable within one commit interval
+      * @param int barcode, int quantity
+      * the barcode of the snack and the number of units to add
+      * @exception SnackException: when the snack does not exist, the quantity is not positive or the stock would overflow
+      * @return int units in stock afterwards
+      */
+
+   public int restock(int barcode, int quantity) throws SnackException {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         if (quantity <= 0) {
+            throw new SnackException("Error. Quantity must be at least 1.");
+         }
+         Snack snack = this.get(barcode);
+         if (snack == null) {
+            throw new SnackException("Error. No snack with barcode " + barcode + " exists.");
+         }
+         int newStock = this.stock.add(barcode, quantity);
+         for (InventoryListener listener : this.listeners) {
+            listener.stockChanged(snack, newStock);
+         }
+         return newStock;
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.RESTOCK, start);
+      }
+   }
+
+   /**
+      * vend ~
+      * Sells one unit of a snack, decrementing its stock atomically without locking
+      * Concurrent buyers of the same snack only race on its own counter
+      * A journal records the new stock without holding up the vend, so it is durable within one commit interval
+      * @param int barcode
+      * the barcode of the snack
+      * @exception SnackException: when the snack does not exist or is sold out
+      * @return Snack that was vended
+      */
+
+   public Snack vend(int barcode) throws SnackException {
+      long start = SnackStats.start();
+      try {
+         Snack snack = this.get(barcode);
+         if (snack == null) {
+            throw new SnackException("Error. No snack with barcode " + barcode + " exists.");
+         }
+         int newStock = this.stock.takeOne(barcode);
+         if (newStock < 0) {
+            throw new SnackException("Error. " + snack.getName() + " is sold out.");
+         }
+         for (InventoryListener listener : this.listeners) {
+            listener.stockChanged(snack, newStock);
+         }
+         return snack;
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.VEND, start);
+      }
+   }
+
+   /**
+      * remove ~
+      * Removes the snack with a matching barcode
+      * Leaves a tombstone and compacts once half the slots are tombstones
+      * @param int barcode
+      * the barcode of the snack to remove
+      * @exception SnackException: when the snack was removed but a listener could not complete the change
+      * @return Snack that was removed, or null if none exists
+      */
+
+   public Snack remove(int barcode) throws SnackException {
+      long start = SnackStats.start();
+      Snack removedSnack;
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         if (this.table != null) {
+            // the table leaves its own tombstone and compacts its rows
+            removedSnack = this.table.remove(barcode);
+            if (removedSnack == null) {
+               return null;
+            }
+            this.unindex(removedSnack);
+            this.size--;
+         }
+         else {
+            int slot = this.barcodeIndex.get(barcode);
+            if (slot == -1) {
+               return null;
+            }
+            removedSnack = this.slots[slot];
+            this.slots[slot] = null;
+            this.unindex(removedSnack);
+            this.size--;
+            this.published = this.published.without(barcode);
+
+            // drop trailing tombstones so appends can reuse the space right away
+            while (this.end > 0 && this.slots[this.end-1] == null) {
+               this.end--;
+            }
+
+            // compact when tombstones outnumber live snacks
+            if (this.end - this.size > this.size) {
+               this.compact();
+            }
+         }
+         notified = this.listeners;
+         for (InventoryListener listener : notified) {
+            listener.snackRemoved(removedSnack);
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      try {
+         complete(notified);
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.REMOVE, start);
+      }
+      return removedSnack;
+   }
+
+   /**
+      * removeIf ~
+      * Removes every snack a predicate accepts in one pass that also compacts the slots
+      * The predicate runs under the write lock, so it must be quick and must not use this inventory
+      * @param Predicate<Snack> filter
+      * returns true for the snacks to remove
+      * @exception SnackException: when snacks were removed but a listener could not complete the change
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeIf(Predicate<Snack> filter) throws SnackException {
+      long start = SnackStats.start();
+      Snack[] removed = new Snack[16];
+      int count = 0;
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         if (this.table != null) {
+            // the table compacts its rows in the same pass
+            removed = this.table.removeIf(filter);
+            count = removed.length;
+            for (int i = 0; i < count; i++) {
+               this.unindex(removed[i]);
+            }
+            this.size -= count;
+         }
+         else {
+            SnackTrie version = this.published;
+            int live = 0;
+            for (int i = 0; i < this.end; i++) {
+               Snack snack = this.slots[i];
+               if (snack == null) {
+                  continue;
+               }
+               if (filter.test(snack)) {
+                  if (count == removed.length) {
+                     removed = Arrays.copyOf(removed, count * 2);
+                  }
+                  removed[count++] = snack;
+                  this.unindex(snack);
+                  version = version.without(snack.getBarcode());
+               }
+               else {
+                  // slide survivors over removed snacks and tombstones as the pass goes
+                  if (live != i) {
+                     this.slots[live] = snack;
+                     this.sequences[live] = this.sequences[i];
+                     this.barcodeIndex.put(snack.getBarcode(), live);
+                  }
+                  live++;
+               }
+            }
+            for (int i = live; i < this.end; i++) {
+               this.slots[i] = null;
+            }
+            this.end = live;
+            this.size -= count;
+            this.published = version; // one version for the whole removal
+         }
+
+         notified = count == 0 ? new InventoryListener[0] : this.listeners;
+         for (int i = 0; i < count; i++) {
+            for (InventoryListener listener : notified) {
+               listener.snackRemoved(removed[i]);
+            }
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      try {
+         complete(notified);
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.REMOVE, start);
+      }
+      return Arrays.copyOf(removed, count);
+   }
+
+   /**
+      * removeBarcodeRange ~
+      * Removes every snack with a barcode in a range, in one pass
+      * @param int fromBarcode, int toBarcode
+      * the inclusive barcode range
+      * @exception SnackException: when snacks were removed but a listener could not complete the change
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeBarcodeRange(int fromBarcode, int toBarcode) throws SnackException {
+      return this.removeIf(snack -> snack.getBarcode() >= fromBarcode && snack.getBarcode() <= toBarcode);
+   }
+
+   /**
+      * removeOverPrice ~
+      * Removes every snack that costs more than a price, the snacks findOverPrice would list, in one pass
+      * @param int priceCents
+      * the price to compare against in cents
+      * @exception SnackException: when snacks were removed but a listener could not complete the change
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeOverPrice(int priceCents) throws SnackException {
+      return this.removeIf(snack -> snack.getPriceCents() > priceCents);
+   }
+
+   /**
+      * removeUpToPrice ~
+      * Removes every snack that costs a price or less, the snacks findOverPrice would leave out, in one pass
+      * @param int priceCents
+      * the price to compare against in cents
+      * @exception SnackException: when snacks were removed but a listener could not complete the change
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeUpToPrice(int priceCents) throws SnackException {
+      return this.removeIf(snack -> snack.getPriceCents() <= priceCents);
+   }
+
+   /**
+      * removeBarcodes ~
+      * Removes the snacks of a list of barcodes in one pass, barcodes that are not taken are ignored
+      * @param int[] barcodes
+      * the barcodes to remove
+      * @exception SnackException: when snacks were removed but a listener could not complete the change
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeBarcodes(int[] barcodes) throws SnackException {
+      BarcodeIndex chosen = new BarcodeIndex();
+      for (int i = 0; i < barcodes.length; i++) {
+         if (barcodes[i] >= BarcodeIndex.MIN_BARCODE && barcodes[i] <= BarcodeIndex.MAX_BARCODE) {
+            chosen.put(barcodes[i], i);
+         }
+      }
+      return this.removeIf(snack -> chosen.contains(snack.getBarcode()));
+   }
+
+   /**
+      * clear ~
+      * Removes every snack, keeping the current capacity
+      * @param No parameters
+      * @exception SnackException: when the snacks were removed but a listener could not complete the change
+      * @return No return value
+      */
+
+   public void clear() throws SnackException {
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         notified = this.replace(new Snack[0]);
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      complete(notified);
+   }
+
+   /**
+      * replaceAll ~
+      * Swaps every snack for a new set in one step, so readers see either the old or the new inventory
+      * Listeners hear of it as one replacement rather than a clear and an add per snack
+      * @param Snack[] snacks
+      * the new snacks in insertion order, the array is not kept
+      * @exception SnackException: when two of the snacks share a barcode, the inventory is left unchanged,
+      * or when the snacks were swapped but a listener could not complete the change
+      * @return No return value
+      */
+
+   public void replaceAll(Snack[] snacks) throws SnackException {
+      BarcodeIndex barcodes = new BarcodeIndex(); // catches duplicate barcodes before anything changes
+      for (int i = 0; i < snacks.length; i++) {
+         if (barcodes.contains(snacks[i].getBarcode())) {
+            throw SnackError.BARCODE_DUPLICATE.exception();
+         }
+         barcodes.put(snacks[i].getBarcode(), i);
+      }
+      long start = SnackStats.start();
+      InventoryListener[] notified;
+      this.lock.writeLock().lock();
+      try {
+         notified = this.replace(snacks.clone());
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+      try {
+         complete(notified);
+      }
+      finally {
+         SnackStats.record(SnackStats.Operation.ADD, start);
+      }
+   }
+
+   /**
+      * addListener ~
+      * Registers a listener to be notified after every change
+      * Listeners are called while the write lock is held, so they see changes in order, then changeCompleted
+      * is called on the same thread once the lock is released and before the change returns to its caller
+      * Stock changes are the exception, vends are reported without locking and restocks under the read lock,
+      * right after they happen
+      * @param InventoryListener listener
+      * the listener to notify
+      * @return No return value
+      */
+
+   public void addListener(InventoryListener listener) {
+      this.lock.writeLock().lock();
+      try {
+         InventoryListener[] newListeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+         newListeners[this.listeners.length] = listener;
+         this.listeners = newListeners;
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+   }
+
+   /**
+      * removeListener ~
+      * Stops notifying a listener
+      * @param InventoryListener listener
+      * the listener to stop notifying
+      * @return No return value
+      */
+
+   public void removeListener(InventoryListener listener) {
+      this.lock.writeLock().lock();
+      try {
+         for (int i = 0; i < this.listeners.length; i++) {
+            if (this.listeners[i] == listener) {
+               InventoryListener[] newListeners = new InventoryListener[this.listeners.length - 1];
+               System.arraycopy(this.listeners, 0, newListeners, 0, i);
+               System.arraycopy(this.listeners, i + 1, newListeners, i, newListeners.length - i);
+               this.listeners = newListeners;
+               return;
+            }
+         }
+      }
+      finally {
+         this.lock.writeLock().unlock();
+      }
+   }
+
+   /**
+      * toArray ~
+      * Copies the live snacks into a new array
+      * @param No parameters
+      * @return Snack[] in insertion order
+      */
+
+   public Snack[] toArray() {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         if (this.table != null) {
+            return this.table.toArray();
+         }
+         Snack[] snacks = new Snack[this.size];
+         int count = 0;
+         for (int i = 0; i < this.end; i++) {
+            if (this.slots[i] != null) {
+               snacks[count++] = this.slots[i];
+            }
+         }
+         return snacks;
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.LIST, start);
+      }
+   }
+
+   /**
+      * snapshot ~
+      * Gets the live snacks as of now in constant time, without locking or copying
+      * The snapshot is immutable, so long reads see one consistent inventory while changes go on
+      * A columnar inventory publishes no trie, so it builds one from views of its rows under the read lock
+      * @param No parameters
+      * @return SnackTrie of the live snacks, iterated in barcode order
+      */
+
+   public SnackTrie snapshot() {
+      if (this.table != null) {
+         SnackTrie version = SnackTrie.EMPTY;
+         for (Snack snack : this.toArray()) {
+            version = version.with(snack);
+         }
+         return version;
+      }
+      return this.published;
+   }
+
+   /**
+      * report ~
+      * Reads the totals kept up to date by every change, in constant time
+      * The cheapest and most expensive snacks come from the first and last non-empty price buckets,
+      * or from a scan of the price column in a columnar inventory
+      * @param No parameters
+      * @return InventoryReport of this moment
+      */
+
+   public InventoryReport report() {
+      this.lock.readLock().lock();
+      try {
+         if (this.table != null) {
+            return new InventoryReport(this.size, this.totalPriceCents, this.totalCalories,
+               this.table.cheapest(), this.table.mostExpensive());
+         }
+         return new InventoryReport(this.size, this.totalPriceCents, this.totalCalories,
+            this.priceIndex.cheapest(), this.priceIndex.mostExpensive());
+      }
+      finally {
+         this.lock.readLock().unlock();
+      }
+   }
+
+   /**
+      * page ~
+      * Reads the snacks that follow a resume token, in insertion order
+      * Finds the start with a binary search over the insertion numbers, so a page costs O(log n + pageSize)
+      * @param long after, int pageSize
+      * SnackPage.FIRST or the token of the previous page, and the most snacks to return
+      * @exception SnackException: when the token was never handed out by this inventory
+      * @return SnackPage of snacks and the token of the next page
+      */
+
+   public SnackPage page(long after, int pageSize) throws SnackException {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         if (this.table != null) {
+            return this.table.page(after, pageSize);
+         }
+         // tokens are insertion numbers already handed out, anything else would wrap or restart the listing
+         if (after < SnackPage.FIRST || after >= this.nextSequence) {
+            throw new SnackException("Error. Unknown page token " + after + ".");
+         }
+         // first slot added after the token, tombstones keep their numbers so the array stays sorted
+         int slot = Arrays.binarySearch(this.sequences, 0, this.end, after + 1);
+         if (slot < 0) {
+            slot = -slot - 1;
+         }
+         Snack[] snacks = new Snack[Math.max(0, Math.min(pageSize, this.size))];
+         int count = 0;
+         long nextToken = after;
+         while (slot < this.end && count < snacks.length) {
+            if (this.slots[slot] != null) {
+               snacks[count++] = this.slots[slot];
+               nextToken = this.sequences[slot];
+            }
+            slot++;
+         }
+         // skip tombstones to learn if another page exists
+         while (slot < this.end && this.slots[slot] == null) {
+            slot++;
+         }
+         return new SnackPage(count == snacks.length ? snacks : Arrays.copyOf(snacks, count), nextToken, slot < this.end);
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.LIST, start);
+      }
+   }
+
+   /**
+      * findOverPrice ~
+      * Finds the snacks that cost more than a price using the price index
+      * @param int priceCents
+      * the price to compare against in cents
+      * @return Snack[] of matching snacks, cheapest first
+      */
+
+   public Snack[] findOverPrice(int priceCents) {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         return this.table != null ? this.table.findOverPrice(priceCents) : this.priceIndex.findOver(priceCents);
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.PRICE_QUERY, start);
+      }
+   }
+
+   /**
+      * findCalorieRange ~
+      * Finds the snacks with calories in a range using the calorie index
+      * @param int minCalories, int maxCalories
+      * the inclusive calorie range
+      * @return Snack[] of matching snacks, fewest calories first
+      */
+
+   public Snack[] findCalorieRange(int minCalories, int maxCalories) {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         if (this.table != null) {
+            return this.table.findCalorieRange(minCalories, maxCalories);
+         }
+         return this.calorieIndex.findBetween(minCalories, maxCalories);
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.CALORIE_QUERY, start);
+      }
+   }
+
+   /**
+      * findByName ~
+      * Finds snacks whose name contains some text, ignoring case, using the name index
+      * @param String text, int limit
+      * the text to look for and the most snacks to return
+      * @return Snack[] of matching snacks, names starting with the text first
+      */
+
+   public Snack[] findByName(String text, int limit) {
+      long start = SnackStats.start();
+      this.lock.readLock().lock();
+      try {
+         return this.table != null ? this.table.findByName(text, limit) : this.nameIndex.find(text, limit);
+      }
+      finally {
+         this.lock.readLock().unlock();
+         SnackStats.record(SnackStats.Operation.NAME_SEARCH, start);
+      }
+   }
+
+   /**
+      * iterator ~
+      * Walks the live snacks in insertion order
+      * Walks a copy taken when the iteration starts, so it is consistent and never holds up writers
+      * @param No parameters
+      * @return Iterator of snacks
+      */
+
+   public Iterator<Snack> iterator() {
+      return Arrays.asList(this.toArray()).iterator();
+   }
+
+   /**
+      * complete ~
+      * Private method that lets the listeners of a change finish it once the write lock is released,
+      * such as a journal waiting for its records to reach the disk, so other writers are not held up meanwhile
+      * @param InventoryListener[] notified
+      * the listeners that were told of the change
+      * @exception SnackException: from the first listener that could not complete the change, after every listener ran
+      * @return No return value
+      */
+
+   private static void complete(InventoryListener[] notified) throws SnackException {
+      SnackException failure = null;
+      for (InventoryListener listener : notified) {
+         try {
+            listener.changeCompleted();
+         }
+         catch (SnackException e) {
+            if (failure == null) {
+               failure = e;
+            }
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
+   }
+
+   /**
+      * replace ~
+      * Private method that drops every snack and appends a new set with distinct barcodes, then notifies listeners
+      * Caller holds the write lock and completes the change with the returned listeners once it is released
+      * @param Snack[] snacks
+      * the new snacks in insertion order, handed to the listeners as is
+      * @return InventoryListener[] the listeners that were notified
+      */
+
+   private InventoryListener[] replace(Snack[] snacks) {
+      if (this.table != null) {
+         for (int barcode : this.table.barcodes()) {
+            this.stock.reset(barcode);
+         }
+         this.table.clear();
+         this.table.ensureCapacity(snacks.length);
+      }
+      else {
+         for (int i = 0; i < this.end; i++) {
+            if (this.slots[i] != null) {
+               this.stock.reset(this.slots[i].getBarcode());
+               this.slots[i] = null;
+            }
+         }
+         this.end = 0;
+         this.barcodeIndex.clear();
+         this.priceIndex.clear();
+         this.calorieIndex.clear();
+         this.nameIndex.clear();
+         if (snacks.length > this.slots.length) {
+            this.resize(snacks.length);
+         }
+      }
+      this.size = 0;
+      this.totalPriceCents = 0;
+      this.totalCalories = 0;
+      SnackTrie version = SnackTrie.EMPTY;
+      for (int i = 0; i < snacks.length; i++) {
+         this.append(snacks[i]);
+         if (this.table == null) {
+            version = version.with(snacks[i]);
+         }
+      }
+      this.published = version;
+      InventoryListener[] notified = this.listeners;
+      for (InventoryListener listener : notified) {
+         listener.inventoryReplaced(snacks);
+      }
+      return notified;
+   }
+
+   /**
+      * holds ~
+      * Private method that checks if a barcode is taken without creating a view, caller holds the write lock
+      * @param int barcode
+      * the barcode to check
+      * @return boolean true if the barcode is taken
+      */
+
+   private boolean holds(int barcode) {
+      return this.table != null ? this.table.contains(barcode) : this.barcodeIndex.contains(barcode);
+   }
+
+   /**
+      * append ~
+      * Private method that places a new snack after the last slot and adds it to every index and the totals,
+      * or copies it into a new row of a columnar inventory
+      * Caller holds the write lock, has checked the barcode is free and made room, and publishes the new version
+      * @param Snack newSnack
+      * the snack being added
+      * @return No return value
+      */
+
+   private void append(Snack newSnack) {
+      if (this.table != null) {
+         try {
+            this.table.add(newSnack);
+         }
+         catch (SnackException e) {
+            throw new IllegalStateException("Error. Barcode " + newSnack.getBarcode() + " was checked as free.", e);
+         }
+      }
+      else {
+         this.slots[this.end] = newSnack;
+         this.sequences[this.end] = this.nextSequence++;
+         this.barcodeIndex.put(newSnack.getBarcode(), this.end);
+         this.priceIndex.add(newSnack);
+         this.calorieIndex.add(newSnack);
+         this.nameIndex.add(newSnack);
+         this.end++;
+      }
+      this.totalPriceCents += newSnack.getPriceCents();
+      this.totalCalories += newSnack.getCalories();
+      this.size++;
+      this.stock.reset(newSnack.getBarcode()); // drop stock left by a restock that raced an earlier removal
+   }
+
+   /**
+      * unindex ~
+      * Private method that drops a removed snack from every index and the totals, a columnar inventory has only the totals
+      * Caller holds the write lock and takes care of the slot or row, the size and publishing the new version
+      * @param Snack snack
+      * the snack being removed
+      * @return No return value
+      */
+
+   private void unindex(Snack snack) {
+      if (this.table == null) {
+         this.barcodeIndex.remove(snack.getBarcode());
+         this.priceIndex.remove(snack);
+         this.calorieIndex.remove(snack);
+         this.nameIndex.remove(snack);
+      }
+      this.totalPriceCents -= snack.getPriceCents();
+      this.totalCalories -= snack.getCalories();
+      this.stock.reset(snack.getBarcode());
+   }
+
+   /**
+      * compact ~
+      * Private method that slides live snacks over tombstones in one pass, caller holds the write lock
+      * Keeps insertion order and updates barcodeIndex
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void compact() {
+      int live = 0;
+      for (int i = 0; i < this.end; i++) {
+         Snack snack = this.slots[i];
+         if (snack != null) {
+            if (live != i) {
+               this.slots[live] = snack;
+               this.sequences[live] = this.sequences[i];
+               this.barcodeIndex.put(snack.getBarcode(), live);
+            }
+            live++;
+         }
+      }
+      // clear the vacated slots so removed snacks can be collected
+      for (int i = live; i < this.end; i++) {
+         this.slots[i] = null;
+      }
+      this.end = live;
+   }
+
+   /**
+      * resize ~
+      * Private method that moves the slots into a new array, caller holds the write lock
+      * @param int newCapacity
+      * length of the new slots array
+      * @return No return value
+      */
+
+   private void resize(int newCapacity) {
+      Snack[] newSlots = new Snack[newCapacity];
+      System.arraycopy(this.slots, 0, newSlots, 0, this.end);
+      this.slots = newSlots;
+      this.sequences = Arrays.copyOf(this.sequences, newCapacity);
+   }
+}
@@ -0,0 +1,772 @@
+/**
+
+   * SnackJournal --- a write-ahead journal of inventory changes kept next to a snapshot
+   * Every add, remove, clear, restore and stock change is appended as a record. A background committer, woken when records
+   * arrive, writes the records collected meanwhile with a single fsync (group commit), and a change only returns
+   * to its caller once the commit holding its record is done, so nothing is acknowledged before it is durable.
+   * Once the journal passes a size threshold the committer rotates it and it is folded into a new snapshot in the background.
+   * Every journal file is numbered by a generation and the snapshot records the first generation it does not hold,
+   * so open replays exactly the records missing from the snapshot, in the order they were made.
+   * A failed write marks the journal unhealthy: later records are dropped and every change reports the failure.
+   * Record layout: payload length (int), CRC32 of payload (int), payload
+   *    add      type 1, barcode (int), calories (short), price cents (short), name length (int), UTF-8 name
+   *    remove   type 2, barcode (int)
+   *    clear    type 3, only read from older journals
+   *    replace  type 4, snack count (int), then each snack laid out like an add without the type
+   *    start    type 5, generation (long), first record of every journal file
+   *    stock    type 6, barcode (int), units in stock (int)
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.IOException; // thrown when the journal cannot be read or written
+import java.nio.ByteBuffer; // holds encoded records
+import java.nio.MappedByteBuffer; // memory-mapped view of a journal being replayed
+import java.nio.channels.FileChannel; // used to append to and map journal files
+import java.nio.charset.StandardCharsets; // names are stored as UTF-8
+import java.nio.file.Files; // used to rotate and delete journal files
+import java.nio.file.Path; // location of the journal files
+import java.nio.file.StandardCopyOption; // used to rotate journal files
+import java.nio.file.StandardOpenOption; // file open modes
+import java.util.LinkedHashMap; // snacks being replayed, in insertion order
+import java.util.Map; // snacks being replayed by barcode
+import java.util.concurrent.ExecutorService; // runs compactions in the background
+import java.util.concurrent.Executors; // creates the compaction thread
+import java.util.concurrent.TimeUnit; // units of the commit interval and shutdown wait
+import java.util.concurrent.locks.LockSupport; // parks the committer until records arrive
+import java.util.zip.CRC32; // checksum of each record
+
+public class SnackJournal implements InventoryListener {
+
+   private static final byte ADD = 1; // record type of an added snack
+   private static final byte REMOVE = 2; // record type of a removed snack
+   private static final byte CLEAR = 3; // record type of a cleared inventory, now journaled as an empty replace
+   private static final byte REPLACE = 4; // record type of an inventory swapped for a new set of snacks
+   private static final byte START = 5; // record type that opens a journal file with its generation
+   private static final byte STOCK = 6; // record type of the units in stock of a snack after a vend or restock
+   private static final int RECORD_HEADER_SIZE = 8; // payload length and checksum
+   private static final long COMMIT_INTERVAL_MILLIS = 5; // longest time the committer waits for more records before writing, unless a change is waiting
+   private static final long COMPACT_THRESHOLD = 16 * 1024 * 1024; // journal bytes that trigger a compaction
+
+   private Path snapshotPath; // snapshot the journal is applied on top of
+   private Path journalPath; // journal receiving new records
+   private Path oldJournalPath; // rotated journal waiting to be folded into the snapshot
+   private SnackInventory inventory; // the journaled inventory
+   private FileChannel channel; // open journal file, guarded by ioLock
+   private Object ioLock = new Object(); // serializes writes to channel, always taken before this
+   private ByteBuffer pending = ByteBuffer.allocate(64 * 1024); // records waiting for the next commit, guarded by this
+   private ByteBuffer writing = ByteBuffer.allocate(64 * 1024); // records being written, guarded by ioLock
+   private CRC32 checksum = new CRC32(); // reused to checksum records, guarded by this
+   private int recordStart; // position in pending of the record being put, guarded by this
+   private long journalSize; // bytes appended since the last rotation, guarded by this
+   private long appended; // bytes appended since open, guarded by this
+   private long committed; // bytes written and fsynced since open, guarded by this
+   private long generation; // generation of the journal file receiving records, guarded by ioLock
+   private boolean commitQueued; // true while a commit asked for by a waiting change has not started, guarded by this
+   private boolean closing; // true once close stops the committer, guarded by this
+   private boolean rotationDue; // true once the journal passed the threshold until the committer rotates it, guarded by this
+   private boolean compacting; // true from the moment a rotation is due until the rotated journal is folded into the snapshot, guarded by this
+   private volatile IOException failure; // first write failure, the journal is unhealthy once set
+   private int replayedRecords; // records replayed when the journal was opened
+   private Thread committer; // background group commits
+   private ExecutorService compactor; // background compactions
+
+   /**
+      * SnackJournal Constructor ~
+      * Private constructor, use open
+      * @params Path snapshotPath, SnackInventory inventory
+      * @return No return value
+      */
+
+   private SnackJournal(Path snapshotPath, SnackInventory inventory) {
+      this.snapshotPath = snapshotPath;
+      this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+      this.oldJournalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal.old");
+      this.inventory = inventory;
+   }
+
+   /**
+      * open ~
+      * Restores an inventory from a snapshot plus its journals and starts journaling its changes
+      * The journals are replayed in record order on a copy of the snapshot, which then replaces the inventory in one step,
+      * and the replayed state is saved as a fresh snapshot so the journal starts out empty
+      * @param Path snapshotPath
+      * the snapshot file, the journal files are kept next to it
+      * @param SnackInventory inventory
+      * the inventory to restore and journal
+      * @exception IOException: when the files cannot be read or written
+      * @exception SnackException: when the snapshot or a journal record is invalid
+      * @return SnackJournal attached to the inventory
+      */
+
+   public static SnackJournal open(Path snapshotPath, SnackInventory inventory) throws IOException, SnackException {
+      SnackJournal journal = new SnackJournal(snapshotPath, inventory);
+      boolean snapshotExists = Files.exists(snapshotPath);
+      long base = snapshotExists ? SnackSnapshot.loadGeneration(snapshotPath) : 0;
+      StockLevels stock = new StockLevels();
+      Map<Integer, Snack> state;
+      if (snapshotExists) {
+         state = snapshot(SnackSnapshot.load(snapshotPath, stock));
+      }
+      else {
+         state = snapshot(inventory.toArray());
+         for (int barcode : state.keySet()) {
+            stock.set(barcode, inventory.getStock(barcode));
+         }
+      }
+
+      // a rotated journal is left behind when the last compaction did not finish, it is skipped if the snapshot already holds it
+      long next = base;
+      Path[] journals = {journal.oldJournalPath, journal.journalPath};
+      for (Path path : journals) {
+         long generation = readGeneration(path);
+         if (generation < 0 || generation >= base) {
+            journal.replayedRecords += replay(path, state, stock);
+            next = Math.max(next, generation + 1);
+         }
+      }
+      Snack[] snacks = state.values().toArray(new Snack[0]);
+      if (snapshotExists || journal.replayedRecords > 0) {
+         inventory.replaceAll(snacks);
+         SnackSnapshot.restock(inventory, snacks, stock);
+      }
+      if (journal.replayedRecords > 0 || !snapshotExists) {
+         SnackSnapshot.save(snapshotPath, snacks, stockOf(snacks, stock), next);
+      }
+      Files.deleteIfExists(journal.oldJournalPath);
+
+      journal.generation = next;
+      journal.channel = FileChannel.open(journal.journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      journal.writeStart();
+      journal.compactor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "snack-journal-compact"));
+      journal.committer = daemon(journal::runCommitter, "snack-journal-commit");
+      journal.committer.start();
+      inventory.addListener(journal);
+      return journal;
+   }
+
+   /**
+      * getReplayedRecords ~
+      * Gets the number of journal records replayed by open
+      * @param No parameters
+      * @return int number of records
+      */
+
+   public int getReplayedRecords() {
+      return this.replayedRecords;
+   }
+
+   /**
+      * snackAdded ~
+      * Journals an added snack
+      * @param Snack snack
+      * the snack that was added
+      * @return No return value
+      */
+
+   public void snackAdded(Snack snack) {
+      byte[] name = snack.getName().getBytes(StandardCharsets.UTF_8);
+      synchronized (this) {
+         if (this.failure == null) {
+            putSnack(this.beginRecord(1 + 12 + name.length).put(ADD), snack, name);
+            this.endRecord();
+         }
+      }
+   }
+
+   /**
+      * snackRemoved ~
+      * Journals a removed snack
+      * @param Snack snack
+      * the snack that was removed
+      * @return No return value
+      */
+
+   public void snackRemoved(Snack snack) {
+      synchronized (this) {
+         if (this.failure == null) {
+            this.beginRecord(5).put(REMOVE).putInt(snack.getBarcode());
+            this.endRecord();
+         }
+      }
+   }
+
+   /**
+      * stockChanged ~
+      * Journals the units in stock of a vended or restocked snack without waiting for the commit,
+      * so vends stay lock-free and a crash loses at most the stock changes of the last commit interval
+      * Vends report out of order, so the record holds the stock read under the journal lock, never older
+      * than the stock of any record put before it
+      * @param Snack snack, int stock
+      * the snack whose stock changed and its units in stock right after the change
+      * @return No return value
+      */
+
+   public void stockChanged(Snack snack, int stock) {
+      synchronized (this) {
+         if (this.failure == null) {
+            this.beginRecord(9).put(STOCK).putInt(snack.getBarcode()).putInt(this.inventory.getStock(snack.getBarcode()));
+            this.endRecord();
+         }
+      }
+   }
+
+   /**
+      * inventoryReplaced ~
+      * Journals the whole new set of snacks as one record, so replay never sees half of a restore
+      * @param Snack[] snacks
+      * the snacks the inventory holds now
+      * @return No return value
+      */
+
+   public void inventoryReplaced(Snack[] snacks) {
+      byte[][] names = new byte[snacks.length][];
+      int payloadSize = 1 + 4;
+      for (int i = 0; i < snacks.length; i++) {
+         names[i] = snacks[i].getName().getBytes(StandardCharsets.UTF_8);
+         payloadSize += 12 + names[i].length;
+      }
+      synchronized (this) {
+         if (this.failure == null) {
+            ByteBuffer record = this.beginRecord(payloadSize).put(REPLACE).putInt(snacks.length);
+            for (int i = 0; i < snacks.length; i++) {
+               putSnack(record, snacks[i], names[i]);
+            }
+            this.endRecord();
+         }
+      }
+   }
+
+   /**
+      * changeCompleted ~
+      * Waits until every record appended so far is written and fsynced, asking the committer to start right away
+      * Changes made on other threads meanwhile join the same commit, so concurrent writers share one fsync
+      * @param No parameters
+      * @exception SnackException: when the journal failed, the change is in memory but not durable
+      * @return No return value
+      */
+
+   public void changeCompleted() throws SnackException {
+      boolean interrupted = false;
+      synchronized (this) {
+         long target = this.appended;
+         if (this.committed < target && this.failure == null && !this.commitQueued && !this.closing) {
+            this.commitQueued = true;
+            LockSupport.unpark(this.committer); // when closing, the final commit of close wakes this change
+         }
+         while (this.committed < target && this.failure == null) {
+            try {
+               this.wait();
+            }
+            catch (InterruptedException e) {
+               interrupted = true; // the record is already queued, so keep waiting for its commit
+            }
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+      this.checkHealthy();
+   }
+
+   /**
+      * isHealthy ~
+      * Indicates if every write so far succeeded, an unhealthy journal no longer records changes
+      * @param No parameters
+      * @return boolean true while the journal works
+      */
+
+   public boolean isHealthy() {
+      return this.failure == null;
+   }
+
+   /**
+      * checkHealthy ~
+      * Reports a failed journal
+      * @param No parameters
+      * @exception SnackException: when an earlier write failed
+      * @return No return value
+      */
+
+   public void checkHealthy() throws SnackException {
+      IOException cause = this.failure;
+      if (cause != null) {
+         throw new SnackException("Error. Change was made but the snack journal failed, it is not durable: " + cause);
+      }
+   }
+
+   /**
+      * sync ~
+      * Writes and fsyncs every record appended so far without waiting for the committer
+      * @param No parameters
+      * @exception IOException: when the journal cannot be written
+      * @return No return value
+      */
+
+   public void sync() throws IOException {
+      try {
+         synchronized (this.ioLock) {
+            this.commit();
+         }
+      }
+      catch (IOException e) {
+         this.fail(e);
+         throw e;
+      }
+   }
+
+   /**
+      * close ~
+      * Stops journaling, saves the inventory as a snapshot and deletes the journal files
+      * @param No parameters
+      * @exception IOException: when the journal or snapshot cannot be written
+      * @return No return value
+      */
+
+   public void close() throws IOException {
+      this.inventory.removeListener(this);
+      synchronized (this) {
+         this.closing = true;
+      }
+      LockSupport.unpark(this.committer);
+      this.compactor.shutdown();
+      try {
+         this.committer.join(TimeUnit.MINUTES.toMillis(1));
+         this.compactor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      long next;
+      synchronized (this.ioLock) {
+         this.commit();
+         this.channel.close();
+         next = this.generation + 1;
+      }
+      // a newer generation than both journals, so they are skipped if a crash keeps them around
+      SnackSnapshot.save(this.snapshotPath, this.inventory, next);
+      Files.deleteIfExists(this.journalPath);
+      Files.deleteIfExists(this.oldJournalPath);
+   }
+
+   /**
+      * beginRecord ~
+      * Private method that reserves room for a record in pending, caller holds this and checked the journal is healthy
+      * @param int payloadSize
+      * number of payload bytes the caller will put
+      * @return ByteBuffer positioned at the start of the payload
+      */
+
+   private ByteBuffer beginRecord(int payloadSize) {
+      if (this.pending.position() == 0) {
+         LockSupport.unpark(this.committer); // first record since the last commit, wake the committer
+      }
+      if (this.pending.remaining() < RECORD_HEADER_SIZE + payloadSize) {
+         ByteBuffer larger = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2, this.pending.position() + RECORD_HEADER_SIZE + payloadSize));
+         this.pending.flip();
+         larger.put(this.pending);
+         this.pending = larger;
+      }
+      this.recordStart = this.pending.position();
+      this.pending.putInt(payloadSize).putInt(0); // checksum is filled in by endRecord
+      return this.pending;
+   }
+
+   /**
+      * endRecord ~
+      * Private method that fills in the checksum of the record just put, caller holds this
+      * Marks a rotation as due once the journal passes the threshold, the committer carries it out
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void endRecord() {
+      int payloadStart = this.recordStart + RECORD_HEADER_SIZE;
+      int payloadSize = this.pending.position() - payloadStart;
+      this.checksum.reset();
+      this.checksum.update(this.pending.array(), payloadStart, payloadSize);
+      this.pending.putInt(this.recordStart + 4, (int) this.checksum.getValue());
+      this.journalSize += RECORD_HEADER_SIZE + payloadSize;
+      this.appended += RECORD_HEADER_SIZE + payloadSize;
+      if (this.journalSize >= COMPACT_THRESHOLD && !this.compacting) {
+         this.compacting = true;
+         this.rotationDue = true;
+      }
+   }
+
+   /**
+      * runCommitter ~
+      * Private method run by the committer thread until close
+      * Parks while nothing is pending, so an idle journal costs nothing. Once records arrive it waits up to
+      * the commit interval for more to join the commit, a change waiting for its commit cuts that wait short
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void runCommitter() {
+      long intervalNanos = TimeUnit.MILLISECONDS.toNanos(COMMIT_INTERVAL_MILLIS);
+      while (true) {
+         boolean idle;
+         boolean asked;
+         synchronized (this) {
+            if (this.closing) {
+               return;
+            }
+            idle = this.pending.position() == 0 && !this.rotationDue;
+            asked = this.commitQueued;
+         }
+         if (idle) {
+            LockSupport.park(this);
+         }
+         else {
+            if (!asked) {
+               LockSupport.parkNanos(this, intervalNanos);
+            }
+            this.commitInBackground();
+         }
+      }
+   }
+
+   /**
+      * commitInBackground ~
+      * Private method run by the committer once records are pending
+      * Rotates the journal after the commit once it passed the threshold, so rotation never holds up a writer
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void commitInBackground() {
+      boolean rotate;
+      synchronized (this) {
+         this.commitQueued = false;
+         rotate = this.rotationDue;
+         this.rotationDue = false;
+      }
+      try {
+         synchronized (this.ioLock) {
+            this.commit();
+            if (rotate) {
+               // finish the current journal, then start a new one
+               this.channel.close();
+               Files.move(this.journalPath, this.oldJournalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+               this.channel = FileChannel.open(this.journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+               this.generation++;
+               this.writeStart();
+               synchronized (this) {
+                  this.journalSize = this.pending.position();
+               }
+            }
+         }
+      }
+      catch (IOException e) {
+         this.fail(e);
+         return;
+      }
+      if (rotate) {
+         this.compactor.execute(this::compact);
+      }
+   }
+
+   /**
+      * compact ~
+      * Private method run by the compactor that folds the rotated journal into a new snapshot
+      * The rotated journal is replayed on the snapshot it was written against, so the new snapshot holds exactly
+      * the state the current journal starts from. It is saved with the generation of the current journal,
+      * which tells open to skip the rotated journal if a crash leaves it behind.
+      * No other rotation happens before the compaction is done, so the current generation is the one the rotation started
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void compact() {
+      long current;
+      synchronized (this.ioLock) {
+         current = this.generation;
+      }
+      try {
+         StockLevels stock = new StockLevels();
+         Map<Integer, Snack> state = snapshot(SnackSnapshot.load(this.snapshotPath, stock));
+         replay(this.oldJournalPath, state, stock);
+         Snack[] snacks = state.values().toArray(new Snack[0]);
+         SnackSnapshot.save(this.snapshotPath, snacks, stockOf(snacks, stock), current);
+         Files.deleteIfExists(this.oldJournalPath);
+      }
+      catch (IOException e) {
+         this.fail(e);
+      }
+      catch (SnackException e) {
+         this.fail(new IOException("Snack journal could not be folded into the snapshot: " + e.getMessage()));
+      }
+      synchronized (this) {
+         this.compacting = false;
+      }
+   }
+
+   /**
+      * fail ~
+      * Private method that marks the journal unhealthy and wakes every change waiting for a commit
+      * @param IOException e
+      * the write failure
+      * @return No return value
+      */
+
+   private synchronized void fail(IOException e) {
+      if (this.failure == null) {
+         this.failure = e;
+      }
+      this.pending.clear(); // records that can no longer be written are dropped
+      this.notifyAll();
+   }
+
+   /**
+      * commit ~
+      * Private method that writes every pending record with one fsync, caller holds ioLock
+      * Appenders keep filling the other buffer while the write and fsync run, and changes waiting for
+      * any of the written records are woken once the fsync is done
+      * @param No parameters
+      * @exception IOException: when the journal cannot be written
+      * @return No return value
+      */
+
+   private void commit() throws IOException {
+      long batchEnd;
+      synchronized (this) {
+         if (this.pending.position() == 0) {
+            return;
+         }
+         ByteBuffer full = this.pending;
+         this.pending = this.writing;
+         this.writing = full;
+         batchEnd = this.appended;
+      }
+      this.writing.flip();
+      while (this.writing.hasRemaining()) {
+         this.channel.write(this.writing);
+      }
+      this.channel.force(false);
+      this.writing.clear();
+      synchronized (this) {
+         this.committed = batchEnd;
+         this.notifyAll(); // acknowledge every change of the batch
+      }
+   }
+
+   /**
+      * writeStart ~
+      * Private method that writes the start record of a freshly opened journal file, caller holds ioLock
+      * It goes straight to the file ahead of every pending record and is fsynced by the next commit
+      * @param No parameters
+      * @exception IOException: when the journal cannot be written
+      * @return No return value
+      */
+
+   private void writeStart() throws IOException {
+      ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + 9);
+      record.putInt(9).putInt(0).put(START).putLong(this.generation);
+      CRC32 startChecksum = new CRC32(); // checksum is guarded by this, which the caller does not hold
+      startChecksum.update(record.array(), RECORD_HEADER_SIZE, 9);
+      record.putInt(4, (int) startChecksum.getValue());
+      record.flip();
+      while (record.hasRemaining()) {
+         this.channel.write(record);
+      }
+   }
+
+   /**
+      * readGeneration ~
+      * Private method that reads the generation from the start record of a journal file
+      * @param Path path
+      * the journal file
+      * @exception IOException: when the file cannot be read
+      * @return long generation, or -1 when the file is missing, empty or was written before journals had generations
+      */
+
+   private static long readGeneration(Path path) throws IOException {
+      if (!Files.exists(path)) {
+         return -1;
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + 9);
+         while (record.hasRemaining() && channel.read(record) >= 0) {
+            // read until the start record is complete or the file ends
+         }
+         if (record.hasRemaining() || record.getInt(0) != 9 || record.get(RECORD_HEADER_SIZE) != START) {
+            return -1;
+         }
+         CRC32 checksum = new CRC32();
+         checksum.update(record.array(), RECORD_HEADER_SIZE, 9);
+         return (int) checksum.getValue() == record.getInt(4) ? record.getLong(RECORD_HEADER_SIZE + 1) : -1;
+      }
+   }
+
+   /**
+      * snapshot ~
+      * Private method that copies snacks into the ordered map journals are replayed on
+      * @param Snack[] snacks
+      * the snacks, in insertion order
+      * @return Map<Integer, Snack> by barcode, iterating in insertion order
+      */
+
+   private static Map<Integer, Snack> snapshot(Snack[] snacks) {
+      Map<Integer, Snack> state = new LinkedHashMap<Integer, Snack>(snacks.length * 2 + 16);
+      for (Snack snack : snacks) {
+         state.put(snack.getBarcode(), snack);
+      }
+      return state;
+   }
+
+   /**
+      * stockOf ~
+      * Private method that lists the stock of snacks in their order, the way SnackSnapshot.save takes it
+      * @param Snack[] snacks, StockLevels stock
+      * the snacks and their stock
+      * @return int[] units in stock of each snack
+      */
+
+   private static int[] stockOf(Snack[] snacks, StockLevels stock) {
+      int[] units = new int[snacks.length];
+      for (int i = 0; i < snacks.length; i++) {
+         units[i] = stock.get(snacks[i].getBarcode());
+      }
+      return units;
+   }
+
+   /**
+      * replay ~
+      * Private method that applies every intact record of a journal file, in order, to the snacks being restored
+      * Stops at the first torn or damaged record, which can only be the tail of an interrupted write
+      * @param Path path, Map<Integer, Snack> state, StockLevels stock
+      * the journal file, the snacks to apply it to and their stock
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when an intact record holds an invalid snack
+      * @return int number of changes applied, the start record is not counted
+      */
+
+   private static int replay(Path path, Map<Integer, Snack> state, StockLevels stock) throws IOException, SnackException {
+      if (!Files.exists(path)) {
+         return 0;
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         CRC32 checksum = new CRC32();
+         int records = 0;
+         while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int payloadSize = buffer.getInt();
+            int expected = buffer.getInt();
+            if (payloadSize <= 0 || payloadSize > buffer.remaining()) {
+               break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), payloadSize);
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if ((int) checksum.getValue() != expected) {
+               break;
+            }
+            buffer.position(buffer.position() + payloadSize);
+            if (payload.get(0) != START) {
+               apply(payload, state, stock);
+               records++;
+            }
+         }
+         return records;
+      }
+   }
+
+   /**
+      * apply ~
+      * Private method that applies one record payload
+      * An add appends its snack, or replaces it in place in journals written before generations,
+      * which could repeat records their snapshot already held
+      * Snacks start without stock, as they do in the inventory, and stock records of snacks no longer there are skipped
+      * @param ByteBuffer payload, Map<Integer, Snack> state, StockLevels stock
+      * @exception SnackException: when the record holds an invalid snack or negative stock
+      * @return No return value
+      */
+
+   private static void apply(ByteBuffer payload, Map<Integer, Snack> state, StockLevels stock) throws SnackException {
+      byte type = payload.get();
+      if (type == ADD) {
+         Snack snack = getSnack(payload);
+         if (state.put(snack.getBarcode(), snack) == null) {
+            stock.reset(snack.getBarcode());
+         }
+      }
+      else if (type == REMOVE) {
+         int barcode = payload.getInt();
+         state.remove(barcode);
+         stock.reset(barcode);
+      }
+      else if (type == CLEAR || type == REPLACE) {
+         for (int barcode : state.keySet()) {
+            stock.reset(barcode);
+         }
+         state.clear();
+         int count = type == REPLACE ? payload.getInt() : 0;
+         for (int i = 0; i < count; i++) {
+            Snack snack = getSnack(payload);
+            state.put(snack.getBarcode(), snack);
+         }
+      }
+      else if (type == STOCK) {
+         int barcode = payload.getInt();
+         int units = payload.getInt();
+         if (units < 0) {
+            throw new SnackException("Error. Snack journal holds negative stock for barcode " + barcode + ".");
+         }
+         if (state.containsKey(barcode)) {
+            stock.set(barcode, units);
+         }
+      }
+      else {
+         throw new SnackException("Error. Snack journal holds an unknown record type " + type + ".");
+      }
+   }
+
+   /**
+      * putSnack ~
+      * Private method that encodes a snack the way add and replace records hold it
+      * @param ByteBuffer record, Snack snack, byte[] name
+      * the record being put, the snack and its UTF-8 name
+      * @return No return value
+      */
+
+   private static void putSnack(ByteBuffer record, Snack snack, byte[] name) {
+      record.putInt(snack.getBarcode()).putShort((short) snack.getCalories())
+         .putShort((short) snack.getPriceCents()).putInt(name.length).put(name);
+   }
+
+   /**
+      * getSnack ~
+      * Private method that decodes a snack put by putSnack
+      * @param ByteBuffer payload
+      * the record payload positioned at the snack
+      * @exception SnackException: when the record holds an invalid snack
+      * @return Snack decoded and validated
+      */
+
+   private static Snack getSnack(ByteBuffer payload) throws SnackException {
+      int barcode = payload.getInt();
+      int calories = payload.getShort();
+      int priceCents = payload.getShort();
+      byte[] name = new byte[payload.getInt()];
+      payload.get(name);
+      try {
+         return new Snack(barcode, calories, priceCents, new String(name, StandardCharsets.UTF_8));
+      }
+      catch (SnackException e) {
+         throw new SnackException("Error. Snack journal holds an invalid snack: " + e.getMessage());
+      }
+   }
+
+   /**
+      * daemon ~
+      * Private method that creates a named daemon thread for the background executors
+      * @param Runnable runnable, String name
+      * @return Thread that does not keep the program running
+      */
+
+   private static Thread daemon(Runnable runnable, String name) {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+   }
+}
@@ -0,0 +1,62 @@
+/**
+
+   * SnackPage --- one page of an inventory listing and the token to resume after it
+   * Tokens follow insertion order, so snacks added or removed between pages neither repeat nor shift the listing
+   * @author Chuckee Kondo (Chaz)
+   */
+
+public class SnackPage {
+
+   public static final long FIRST = 0; // token that starts a listing from the beginning
+
+   private Snack[] snacks; // snacks of this page in insertion order
+   private long nextToken; // token of the page after this one
+   private boolean more; // true if snacks follow this page
+
+   /**
+      * SnackPage Constructor ~
+      * Initializes a page
+      * @params Snack[] snacks, long nextToken, boolean more
+      * the snacks of the page, the token to resume after them and if more snacks follow
+      * @return No return value
+      */
+
+   public SnackPage(Snack[] snacks, long nextToken, boolean more) {
+      this.snacks = snacks;
+      this.nextToken = nextToken;
+      this.more = more;
+   }
+
+   /**
+      * getSnacks ~
+      * Gets the snacks of this page
+      * @param No parameters
+      * @return Snack[] in insertion order
+      */
+
+   public Snack[] getSnacks() {
+      return this.snacks;
+   }
+
+   /**
+      * getNextToken ~
+      * Gets the token to pass to SnackInventory.page for the following page
+      * @param No parameters
+      * @return long resume token
+      */
+
+   public long getNextToken() {
+      return this.nextToken;
+   }
+
+   /**
+      * hasMore ~
+      * Indicates if snacks followed this page when it was read
+      * @param No parameters
+      * @return boolean true if another page is available
+      */
+
+   public boolean hasMore() {
+      return this.more;
+   }
+}
@@ -0,0 +1,268 @@
+/**
+
+   * SnackPrinter --- a buffered writer for listing snacks
+   * Renders snacks straight into one reusable character buffer and writes it out in large chunks
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.IOException; // thrown by the underlying writer
+import java.io.OutputStream; // destination of the rendered text
+import java.io.OutputStreamWriter; // encodes the buffer without building Strings
+import java.io.UncheckedIOException; // rethrows write failures
+import java.io.Writer; // writes the buffer to the destination
+
+public class SnackPrinter {
+
+   private static final int BUFFER_SIZE = 64 * 1024; // characters rendered before writing out
+   private static final String LINE_SEPARATOR = System.lineSeparator(); // same line ending as println
+
+   private Writer out; // destination of the rendered text
+   private char[] buffer; // reusable buffer for rendered text
+   private int length; // number of characters waiting in the buffer
+
+   /**
+      * SnackPrinter Constructor ~
+      * Initializes a printer over an output stream
+      * @params OutputStream out
+      * the stream to write to, usually System.out
+      * @return No return value
+      */
+
+   public SnackPrinter(OutputStream out) {
+      this(out, BUFFER_SIZE);
+   }
+
+   /**
+      * SnackPrinter Constructor ~
+      * Initializes a printer with a chosen buffer size, for callers that keep many printers open at once
+      * @params OutputStream out, int bufferSize
+      * the stream to write to and the number of characters rendered before writing out
+      * @return No return value
+      */
+
+   public SnackPrinter(OutputStream out, int bufferSize) {
+      this.out = new OutputStreamWriter(out);
+      this.buffer = new char[Math.max(bufferSize, 64)];
+   }
+
+   /**
+      * printSnack ~
+      * Renders a snack the same way as println(snack.toString() + "\n")
+      * @param Snack snack
+      * the snack to render
+      * @return No return value
+      */
+
+   public void printSnack(Snack snack) {
+      this.print("Barcode: ");
+      this.print(snack.getBarcode());
+      this.print("\nCalories: ");
+      this.print(snack.getCalories());
+      this.print("\nPrice: ");
+      this.printPrice(snack.getPriceCents());
+      this.print("\nName: ");
+      this.print(snack.getName());
+      this.print("\n");
+      this.println();
+   }
+
+   /**
+      * printPrice ~
+      * Renders a price in the "$#.00" format
+      * @param int cents
+      * the price in cents
+      * @return No return value
+      */
+
+   public void printPrice(int cents) {
+      this.print('$');
+      // "$#.00" leaves out a leading zero for prices under a dollar
+      if (cents >= 100) {
+         this.print(cents / 100);
+      }
+      this.print('.');
+      this.print((char) ('0' + cents % 100 / 10));
+      this.print((char) ('0' + cents % 10));
+   }
+
+   /**
+      * print ~
+      * Renders a non-negative number without building a String
+      * @param int number
+      * the number to render
+      * @return No return value
+      */
+
+   public void print(int number) {
+      if (number < 0) {
+         this.print(Integer.toString(number));
+         return;
+      }
+      // count the digits, then fill them in from the right
+      int digits = 1;
+      for (int rest = number / 10; rest > 0; rest /= 10) {
+         digits++;
+      }
+      this.reserve(digits);
+      for (int i = this.length + digits - 1; i >= this.length; i--) {
+         this.buffer[i] = (char) ('0' + number % 10);
+         number /= 10;
+      }
+      this.length += digits;
+   }
+
+   /**
+      * print ~
+      * Renders a single character
+      * @param char character
+      * the character to render
+      * @return No return value
+      */
+
+   public void print(char character) {
+      this.reserve(1);
+      this.buffer[this.length++] = character;
+   }
+
+   /**
+      * print ~
+      * Renders a String, writing the buffer out first when the text does not fit
+      * @param String text
+      * the text to render
+      * @return No return value
+      */
+
+   public void print(String text) {
+      int start = 0;
+      while (start < text.length()) {
+         if (this.length == this.buffer.length) {
+            this.writeBuffer();
+         }
+         int count = Math.min(text.length() - start, this.buffer.length - this.length);
+         text.getChars(start, start + count, this.buffer, this.length);
+         this.length += count;
+         start += count;
+      }
+   }
+
+   /**
+      * println ~
+      * Renders a String followed by a line separator
+      * @param String text
+      * the text to render
+      * @return No return value
+      */
+
+   public void println(String text) {
+      this.print(text);
+      this.println();
+   }
+
+   /**
+      * println ~
+      * Renders a number followed by a line separator
+      * @param int number
+      * the number to render
+      * @return No return value
+      */
+
+   public void println(int number) {
+      this.print(number);
+      this.println();
+   }
+
+   /**
+      * println ~
+      * Renders a line separator
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void println() {
+      this.print(LINE_SEPARATOR);
+   }
+
+   /**
+      * flush ~
+      * Writes out everything rendered so far
+      * @param No parameters
+      * @exception UncheckedIOException: when the destination cannot be written
+      * @return No return value
+      */
+
+   public void flush() {
+      this.writeBuffer();
+      try {
+         this.out.flush();
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+      * formatPrice ~
+      * Formats a price in the "$#.00" format
+      * @param int cents
+      * the price in cents
+      * @return String of formatted price
+      */
+
+   public static String formatPrice(int cents) {
+      return appendPrice(new StringBuilder(8), cents).toString();
+   }
+
+   /**
+      * appendPrice ~
+      * Appends a price in the "$#.00" format to a StringBuilder
+      * @param StringBuilder builder
+      * the builder to append to
+      * @param int cents
+      * the price in cents
+      * @return StringBuilder the same builder
+      */
+
+   public static StringBuilder appendPrice(StringBuilder builder, int cents) {
+      builder.append('$');
+      // "$#.00" leaves out a leading zero for prices under a dollar
+      if (cents >= 100) {
+         builder.append(cents / 100);
+      }
+      return builder.append('.').append((char) ('0' + cents % 100 / 10)).append((char) ('0' + cents % 10));
+   }
+
+   /**
+      * reserve ~
+      * Private method that writes the buffer out when fewer than count characters are free
+      * @param int count
+      * number of characters about to be rendered, at most a few dozen
+      * @return No return value
+      */
+
+   private void reserve(int count) {
+      if (this.buffer.length - this.length < count) {
+         this.writeBuffer();
+      }
+   }
+
+   /**
+      * writeBuffer ~
+      * Private method that hands the buffered characters to the writer
+      * @param No parameters
+      * @exception UncheckedIOException: when the destination cannot be written
+      * @return No return value
+      */
+
+   private void writeBuffer() {
+      if (this.length == 0) {
+         return;
+      }
+      try {
+         this.out.write(this.buffer, 0, this.length);
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      this.length = 0;
+   }
+}
@@ -0,0 +1,303 @@
+/**
+
+   * SnackServer --- a local TCP front end for a fleet of vending machines
+   * Clients send the BatchRunner commands one per line (add, remove, query, list, seed, machine, ...)
+   * Every reply ends with a line holding a single "." and "quit" closes the connection
+   * "watch" turns the connection into a stream of the changes to the current machine, one SnackChange per line,
+   * until the client sends "quit" or disconnects. A watching client never holds up the machine: one that falls too far behind
+   * is failed by the feed, and one that leaves a batch unread for WATCH_STALL_MILLIS is disconnected
+   * Each connection runs on its own virtual thread, so thousands of mostly idle clients cost little memory
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.BufferedReader; // reads commands from a client
+import java.io.IOException; // thrown when a socket fails
+import java.io.InputStreamReader; // decodes commands from a client
+import java.net.InetAddress; // binds to the loopback address only
+import java.net.ServerSocket; // accepts client connections
+import java.net.Socket; // one client connection
+import java.net.SocketException; // thrown by accept once the server is closed
+import java.net.SocketTimeoutException; // wakes a watching connection to check on its writer
+import java.util.List; // batches of changes streamed by watch
+import java.util.concurrent.Flow; // subscribes watching connections to a machine's change feed
+import java.util.concurrent.ExecutorService; // runs one virtual thread per connection
+import java.util.concurrent.Executors; // creates the connection executor
+
+public class SnackServer {
+
+   private static final int BACKLOG = 4096; // pending connections queued by the operating system
+   private static final int CLIENT_BUFFER_SIZE = 4 * 1024; // characters buffered per connection, kept small for many clients
+   private static final String END_OF_REPLY = "."; // line that ends every reply
+   private static final int WATCH_CHECK_MILLIS = 1000; // how often a watching connection checks on its writer
+   private static final long WATCH_STALL_MILLIS = 10000; // longest a watching client may leave a batch unread before it is disconnected
+
+   private final VendingFleet fleet; // machines shared by every connection
+   private final String machineId; // machine each connection starts on
+   private final ServerSocket serverSocket; // listening socket
+   private final ExecutorService connections; // runs the handler of each connection
+
+   /**
+      * SnackServer Constructor ~
+      * Binds a listening socket on the loopback address
+      * @params VendingFleet fleet, String machineId, int port
+      * the machines to serve, the machine each connection starts on and the port, 0 picks a free one
+      * @exception IOException: when the port cannot be bound
+      * @return No return value
+      */
+
+   public SnackServer(VendingFleet fleet, String machineId, int port) throws IOException {
+      this.fleet = fleet;
+      this.machineId = machineId;
+      this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+      this.connections = Executors.newVirtualThreadPerTaskExecutor();
+   }
+
+   /**
+      * getPort ~
+      * Gets the port the server listens on
+      * @param No parameters
+      * @return int port
+      */
+
+   public int getPort() {
+      return this.serverSocket.getLocalPort();
+   }
+
+   /**
+      * serve ~
+      * Accepts connections until the server is closed
+      * @param No parameters
+      * @exception IOException: when accepting fails for a reason other than close
+      * @return No return value
+      */
+
+   public void serve() throws IOException {
+      while (!this.serverSocket.isClosed()) {
+         Socket socket;
+         try {
+            socket = this.serverSocket.accept();
+         }
+         catch (SocketException e) {
+            if (this.serverSocket.isClosed()) {
+               return; // closed while waiting
+            }
+            throw e;
+         }
+         this.connections.execute(() -> this.handle(socket));
+      }
+   }
+
+   /**
+      * close ~
+      * Stops accepting connections, open connections finish their current command
+      * @param No parameters
+      * @exception IOException: when the listening socket cannot be closed
+      * @return No return value
+      */
+
+   public void close() throws IOException {
+      this.serverSocket.close();
+      this.connections.shutdown();
+   }
+
+   /**
+      * handle ~
+      * Private method that answers the commands of one connection until it quits or disconnects
+      * @param Socket socket
+      * the client connection
+      * @return No return value
+      */
+
+   private void handle(Socket socket) {
+      try (Socket client = socket) {
+         client.setTcpNoDelay(true); // replies are small and sent one at a time
+         BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()), CLIENT_BUFFER_SIZE);
+         SnackPrinter printer = new SnackPrinter(client.getOutputStream(), CLIENT_BUFFER_SIZE);
+         BatchRunner runner = new BatchRunner(this.fleet, this.machineId, printer);
+         runner.disableFileCommands();
+
+         String commandLine = reader.readLine();
+         while (commandLine != null && !commandLine.trim().equals("quit")) {
+            if (commandLine.trim().equals("watch")) {
+               this.watch(runner.getMachineId(), client, reader, printer);
+               return;
+            }
+            runner.runCommand(commandLine);
+            printer.println(END_OF_REPLY);
+            printer.flush();
+            commandLine = reader.readLine();
+         }
+      }
+      catch (Exception e) {
+         // the client went away, its connection is simply dropped
+      }
+   }
+
+   /**
+      * watch ~
+      * Private method that streams the changes of a machine to a connection until it quits or disconnects
+      * Also ends the stream once the feed fails it or the client leaves a batch unread for too long,
+      * the caller then closes the socket, which also ends a write stuck on a client that stopped reading
+      * @param String machineId, Socket client, BufferedReader reader, SnackPrinter printer
+      * the machine to watch, the connection, and its input and output
+      * @exception IOException: when the connection fails while waiting for quit
+      * @return No return value
+      */
+
+   private void watch(String machineId, Socket client, BufferedReader reader, SnackPrinter printer) throws IOException {
+      printer.println("Watching machine " + machineId + ", send quit to stop.");
+      printer.flush();
+      ChangeWriter writer = new ChangeWriter(printer);
+      client.setSoTimeout(WATCH_CHECK_MILLIS);
+      this.fleet.getOrCreateMachine(machineId).watch(writer);
+      try {
+         while (true) {
+            String commandLine;
+            try {
+               commandLine = reader.readLine();
+            }
+            catch (SocketTimeoutException e) {
+               if (writer.isEnded() || writer.isStalled(WATCH_STALL_MILLIS)) {
+                  return;
+               }
+               continue;
+            }
+            if (commandLine == null || commandLine.trim().equals("quit")) {
+               return;
+            }
+         }
+      }
+      finally {
+         writer.cancel();
+      }
+   }
+
+   /**
+      * ChangeWriter --- writes batches of changes to a watching connection
+      * Asks for the next batch only once the previous one was flushed to the socket,
+      * so a slow client is buffered by the feed up to its limit and then failed, never holding up the machine
+      */
+
+   private static final class ChangeWriter implements Flow.Subscriber<List<SnackChange>> {
+
+      private final SnackPrinter printer; // output of the connection, only written by the feed once subscribed
+      private volatile Flow.Subscription subscription; // set by onSubscribe
+      private volatile boolean cancelled; // true once the connection ended
+      private volatile boolean ended; // true once the feed failed or completed the stream
+      private volatile long writingSince; // System.nanoTime when the batch being written was received, 0 while idle
+
+      /**
+         * ChangeWriter Constructor ~
+         * Initializes a writer
+         * @params SnackPrinter printer
+         * output of the connection
+         * @return No return value
+         */
+
+      private ChangeWriter(SnackPrinter printer) {
+         this.printer = printer;
+      }
+
+      /**
+         * onSubscribe ~
+         * Asks for the first batch
+         * @param Flow.Subscription subscription
+         * the subscription to the feed
+         * @return No return value
+         */
+
+      public void onSubscribe(Flow.Subscription subscription) {
+         this.subscription = subscription;
+         if (this.cancelled) {
+            subscription.cancel();
+            return;
+         }
+         subscription.request(1);
+      }
+
+      /**
+         * onNext ~
+         * Writes a batch, one change per line, then asks for the next one
+         * @param List<SnackChange> changes
+         * the batch
+         * @return No return value
+         */
+
+      public void onNext(List<SnackChange> changes) {
+         this.writingSince = System.nanoTime() | 1; // never 0, which means idle
+         try {
+            for (SnackChange change : changes) {
+               change.print(this.printer);
+            }
+            this.printer.flush();
+            this.writingSince = 0;
+            this.subscription.request(1);
+         }
+         catch (Exception e) {
+            this.cancel(); // the client went away
+         }
+      }
+
+      /**
+         * onError ~
+         * Marks the stream as ended, the connection is closed by the thread watching it
+         * @param Throwable error
+         * the failure of the feed, such as the client falling too far behind
+         * @return No return value
+         */
+
+      public void onError(Throwable error) {
+         this.ended = true;
+      }
+
+      /**
+         * onComplete ~
+         * Marks the stream as ended, the connection is closed by the thread watching it
+         * @param No parameters
+         * @return No return value
+         */
+
+      public void onComplete() {
+         this.ended = true;
+      }
+
+      /**
+         * isEnded ~
+         * Indicates if the feed will send nothing more
+         * @param No parameters
+         * @return boolean true after onError or onComplete
+         */
+
+      private boolean isEnded() {
+         return this.ended;
+      }
+
+      /**
+         * isStalled ~
+         * Indicates if writing the current batch has been blocked by the client for too long
+         * @param long limitMillis
+         * the longest a batch may take to write
+         * @return boolean true if a batch has been written for longer than the limit
+         */
+
+      private boolean isStalled(long limitMillis) {
+         long since = this.writingSince;
+         return since != 0 && System.nanoTime() - since > limitMillis * 1000000L;
+      }
+
+      /**
+         * cancel ~
+         * Stops the stream, also when the subscription has not started yet
+         * @param No parameters
+         * @return No return value
+         */
+
+      private void cancel() {
+         this.cancelled = true;
+         Flow.Subscription current = this.subscription;
+         if (current != null) {
+            current.cancel();
+         }
+      }
+   }
+}
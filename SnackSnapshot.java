@@ -0,0 +1,320 @@
+/**
+
+   * SnackSnapshot --- saves and loads an inventory as a compact binary file
+   * Layout, all numbers big-endian:
+   *    header   magic "SNAK", version, snack count, name byte count, journal generation (long, from version 2 on)
+   *    columns  barcodes (int), calories (short), price cents (short), units in stock (int, from version 3 on),
+   *             name offsets (int, count + 1)
+   *    names    every name as UTF-8, back to back
+   *    trailer  CRC32 of everything before it (long)
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.io.IOException; // thrown when the file cannot be read or written
+import java.nio.ByteBuffer; // holds the encoded snapshot
+import java.nio.MappedByteBuffer; // memory-mapped view of a snapshot being loaded
+import java.nio.channels.FileChannel; // used to write and map snapshot files
+import java.nio.charset.StandardCharsets; // names are stored as UTF-8
+import java.nio.file.Files; // used to replace the snapshot atomically
+import java.nio.file.Path; // location of the snapshot
+import java.nio.file.StandardCopyOption; // used to replace the snapshot atomically
+import java.nio.file.StandardOpenOption; // file open modes
+import java.util.zip.CRC32; // checksum of the snapshot
+
+public class SnackSnapshot {
+
+   private static final int MAGIC = 0x534E414B; // "SNAK"
+   private static final int VERSION = 3; // layout version written by save
+   private static final int HEADER_SIZE = 24; // magic, version, count, name byte count and journal generation
+   private static final int OLD_HEADER_SIZE = 16; // header of version 1 files, which have no journal generation
+   private static final int ROW_SIZE = 16; // column bytes of one snack, not counting its name offset
+   private static final int OLD_ROW_SIZE = 12; // column bytes of one snack in files before version 3, which have no stock
+   private static final int TRAILER_SIZE = 8; // CRC32 checksum
+
+   /**
+      * save ~
+      * Writes every snack of an inventory and its stock to a snapshot file, in insertion order
+      * The snacks are copied under one read lock, so the file holds one consistent moment,
+      * stock is read right after as vends never lock
+      * The file is written next to the target and moved over it, so a crash never leaves half a snapshot
+      * @param Path path
+      * the snapshot file
+      * @param SnackInventory inventory
+      * the inventory to save
+      * @exception IOException: when the file cannot be written
+      * @return No return value
+      */
+
+   public static void save(Path path, SnackInventory inventory) throws IOException {
+      save(path, inventory, 0);
+   }
+
+   /**
+      * save ~
+      * Writes every snack of an inventory and its stock to a snapshot file along with the generation of the first
+      * journal not folded into it
+      * @param Path path
+      * the snapshot file
+      * @param SnackInventory inventory
+      * the inventory to save
+      * @param long generation
+      * the journal generation the snapshot is the base of
+      * @exception IOException: when the file cannot be written
+      * @return No return value
+      */
+
+   public static void save(Path path, SnackInventory inventory, long generation) throws IOException {
+      Snack[] snacks = inventory.toArray();
+      int[] stock = new int[snacks.length];
+      for (int i = 0; i < snacks.length; i++) {
+         stock[i] = inventory.getStock(snacks[i].getBarcode());
+      }
+      save(path, snacks, stock, generation);
+   }
+
+   /**
+      * save ~
+      * Writes snacks and their stock to a snapshot file along with the generation of the first journal not folded into it
+      * Lets callers save a copy taken earlier while the inventory keeps changing. A journal replays on top of
+      * the snapshot only if its generation is at least the one saved here
+      * @param Path path
+      * the snapshot file
+      * @param Snack[] snacks, int[] stock
+      * the snacks to save, in order, and the units in stock of each
+      * @param long generation
+      * the journal generation the snapshot is the base of
+      * @exception IOException: when the file cannot be written
+      * @return No return value
+      */
+
+   public static void save(Path path, Snack[] snacks, int[] stock, long generation) throws IOException {
+      int count = snacks.length;
+      int[] barcodes = new int[count];
+      short[] calories = new short[count];
+      short[] prices = new short[count];
+      byte[][] names = new byte[count][];
+
+      // split the snacks into columns
+      int nameBytes = 0;
+      int i;
+      for (i = 0; i < count; i++) {
+         barcodes[i] = snacks[i].getBarcode();
+         calories[i] = (short) snacks[i].getCalories();
+         prices[i] = (short) snacks[i].getPriceCents();
+         names[i] = snacks[i].getName().getBytes(StandardCharsets.UTF_8);
+         nameBytes += names[i].length;
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ROW_SIZE + 4 + nameBytes + TRAILER_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(nameBytes).putLong(generation);
+      for (i = 0; i < count; i++) {
+         buffer.putInt(barcodes[i]);
+      }
+      for (i = 0; i < count; i++) {
+         buffer.putShort(calories[i]);
+      }
+      for (i = 0; i < count; i++) {
+         buffer.putShort(prices[i]);
+      }
+      for (i = 0; i < count; i++) {
+         buffer.putInt(stock[i]);
+      }
+      int offset = 0;
+      for (i = 0; i < count; i++) {
+         buffer.putInt(offset);
+         offset += names[i].length;
+      }
+      buffer.putInt(offset);
+      for (i = 0; i < count; i++) {
+         buffer.put(names[i]);
+      }
+
+      CRC32 checksum = new CRC32();
+      checksum.update(buffer.array(), 0, buffer.position());
+      buffer.putLong(checksum.getValue());
+      buffer.flip();
+
+      Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+         while (buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+         channel.force(true);
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   /**
+      * load ~
+      * Memory-maps a snapshot file, checks it and rebuilds its snacks
+      * Every snack goes through the Snack constructor, so a damaged file cannot load invalid snacks
+      * @param Path path
+      * the snapshot file
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when the file is not a valid snapshot or holds a snack the Snack constructor rejects
+      * @return Snack[] in the order they were saved
+      */
+
+   public static Snack[] load(Path path) throws IOException, SnackException {
+      return load(path, null);
+   }
+
+   /**
+      * load ~
+      * Memory-maps a snapshot file, checks it and rebuilds its snacks and their stock
+      * Files written before version 3 hold no stock, their snacks load with none
+      * @param Path path
+      * the snapshot file
+      * @param StockLevels stock
+      * receives the units in stock of every loaded snack, or null to skip stock
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when the file is not a valid snapshot or holds a snack or stock that is invalid
+      * @return Snack[] in the order they were saved
+      */
+
+   public static Snack[] load(Path path, StockLevels stock) throws IOException, SnackException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         long fileSize = channel.size();
+         if (fileSize < OLD_HEADER_SIZE + 4 + TRAILER_SIZE || fileSize > Integer.MAX_VALUE) {
+            throw new SnackException("Error. Not a snack snapshot: " + path);
+         }
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+         int size = (int) fileSize;
+
+         int version = version(buffer, path);
+         int headerSize = version == 1 ? OLD_HEADER_SIZE : HEADER_SIZE;
+         int rowSize = version < 3 ? OLD_ROW_SIZE : ROW_SIZE;
+         int count = buffer.getInt(8);
+         int nameBytes = buffer.getInt(12);
+         if (count < 0 || nameBytes < 0 || (long) headerSize + (long) count * rowSize + 4 + nameBytes + TRAILER_SIZE != size) {
+            throw new SnackException("Error. Snapshot is truncated or damaged.");
+         }
+
+         CRC32 checksum = new CRC32();
+         checksum.update(buffer.slice(0, size - TRAILER_SIZE));
+         if (checksum.getValue() != buffer.getLong(size - TRAILER_SIZE)) {
+            throw new SnackException("Error. Snapshot checksum does not match.");
+         }
+
+         // column start positions
+         int barcodeColumn = headerSize;
+         int calorieColumn = barcodeColumn + count * 4;
+         int priceColumn = calorieColumn + count * 2;
+         int stockColumn = priceColumn + count * 2;
+         int offsetColumn = stockColumn + (rowSize - OLD_ROW_SIZE) * count;
+         int nameColumn = offsetColumn + (count + 1) * 4;
+
+         byte[] names = new byte[nameBytes];
+         buffer.slice(nameColumn, nameBytes).get(names);
+
+         Snack[] snacks = new Snack[count];
+         BarcodeIndex barcodes = new BarcodeIndex(); // catches duplicate barcodes before anything is restored
+         for (int i = 0; i < count; i++) {
+            int nameStart = buffer.getInt(offsetColumn + i * 4);
+            int nameEnd = buffer.getInt(offsetColumn + (i + 1) * 4);
+            if (nameStart < 0 || nameEnd < nameStart || nameEnd > nameBytes) {
+               throw new SnackException("Error. Snapshot is truncated or damaged.");
+            }
+            // the columns were bounds checked above, so only the Snack constructor can reject a row
+            snacks[i] = new Snack(buffer.getInt(barcodeColumn + i * 4),
+               buffer.getShort(calorieColumn + i * 2),
+               (int) buffer.getShort(priceColumn + i * 2),
+               new String(names, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8));
+            if (barcodes.contains(snacks[i].getBarcode())) {
+               throw new SnackException("Error. Snapshot holds barcode " + snacks[i].getBarcode() + " twice.");
+            }
+            barcodes.put(snacks[i].getBarcode(), i);
+            if (stock != null && rowSize == ROW_SIZE) {
+               int units = buffer.getInt(stockColumn + i * 4);
+               if (units < 0) {
+                  throw new SnackException("Error. Snapshot holds negative stock for barcode " + snacks[i].getBarcode() + ".");
+               }
+               stock.set(snacks[i].getBarcode(), units);
+            }
+         }
+         return snacks;
+      }
+   }
+
+   /**
+      * loadGeneration ~
+      * Reads the journal generation a snapshot file is the base of, version 1 files are generation 0
+      * @param Path path
+      * the snapshot file
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when the file is not a snapshot
+      * @return long journal generation
+      */
+
+   public static long loadGeneration(Path path) throws IOException, SnackException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         while (header.hasRemaining() && channel.read(header) >= 0) {
+            // read until the header is full or the file ends
+         }
+         if (header.position() < HEADER_SIZE) { // even an empty version 1 snapshot is longer
+            throw new SnackException("Error. Not a snack snapshot: " + path);
+         }
+         return version(header, path) == 1 ? 0 : header.getLong(16);
+      }
+   }
+
+   /**
+      * version ~
+      * Private method that checks the magic and version of a snapshot
+      * @param ByteBuffer buffer, Path path
+      * the start of the file and its location for error messages
+      * @exception SnackException: when the file is not a snapshot or has an unknown version
+      * @return int layout version of the file, 1 to VERSION
+      */
+
+   private static int version(ByteBuffer buffer, Path path) throws SnackException {
+      if (buffer.getInt(0) != MAGIC) {
+         throw new SnackException("Error. Not a snack snapshot: " + path);
+      }
+      int version = buffer.getInt(4);
+      if (version < 1 || version > VERSION) {
+         throw new SnackException("Error. Unsupported snapshot version " + version + ".");
+      }
+      return version;
+   }
+
+   /**
+      * restore ~
+      * Replaces the contents of an inventory with the snacks of a snapshot file in one step, then restocks them
+      * The inventory is left untouched if the snapshot cannot be loaded
+      * @param Path path
+      * the snapshot file
+      * @param SnackInventory inventory
+      * the inventory to replace
+      * @exception IOException: when the file cannot be read
+      * @exception SnackException: when the file is not a valid snapshot
+      * @return int number of snacks loaded
+      */
+
+   public static int restore(Path path, SnackInventory inventory) throws IOException, SnackException {
+      StockLevels stock = new StockLevels();
+      Snack[] snacks = load(path, stock);
+      inventory.replaceAll(snacks);
+      restock(inventory, snacks, stock);
+      return snacks.length;
+   }
+
+   /**
+      * restock ~
+      * Gives restored snacks the stock they were saved with
+      * @param SnackInventory inventory, Snack[] snacks, StockLevels stock
+      * the inventory holding the snacks, the snacks and their saved stock
+      * @exception SnackException: when a snack was removed meanwhile
+      * @return No return value
+      */
+
+   public static void restock(SnackInventory inventory, Snack[] snacks, StockLevels stock) throws SnackException {
+      for (Snack snack : snacks) {
+         int units = stock.get(snack.getBarcode());
+         if (units > 0) {
+            inventory.restock(snack.getBarcode(), units);
+         }
+      }
+   }
+}
@@ -0,0 +1,368 @@
+/**
+
+   * SnackStats --- process-wide counters and latency histograms for inventory operations
+   * SnackInventory times its operations and the front ends count the errors they show, by SnackError kind
+   * Start with -Dsnack.stats=false to turn measuring off, the checks then fold away as ENABLED is a constant
+   * Readable through the stats command and over JMX as vendingmachine:type=SnackStats
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.lang.management.ManagementFactory; // platform MBean server
+import java.util.Collections; // makes the watched set safe to share
+import java.util.Map; // watched inventories
+import java.util.WeakHashMap; // forgets watched inventories nobody uses anymore
+import java.util.concurrent.atomic.AtomicLongArray; // count of each error kind
+import javax.management.ObjectName; // name of the MBean
+
+public class SnackStats implements SnackStatsMBean {
+
+   public static final boolean ENABLED = !"false".equals(System.getProperty("snack.stats")); // false turns measuring off
+
+   /**
+      * Operation --- the measured inventory operations
+      */
+
+   public enum Operation {
+      ADD, REMOVE, PRICE_QUERY, CALORIE_QUERY, NAME_SEARCH, LIST, VEND, RESTOCK
+   }
+
+   private static final int OTHER_SNACK_ERROR = SnackError.values().length; // error slot for SnackExceptions without a kind
+   private static final int OTHER_ERROR = OTHER_SNACK_ERROR + 1; // error slot for every other exception, such as bad number input
+   private static final SnackStats INSTANCE = new SnackStats(); // the one set of stats of this process, created after the slots above
+
+   private final LatencyHistogram[] latencies; // one histogram per operation
+   private final AtomicLongArray errors = new AtomicLongArray(OTHER_ERROR + 1); // errors per SnackError kind, then the two other slots
+   private final Map<SnackInventory, Boolean> watched = Collections.synchronizedMap(new WeakHashMap<SnackInventory, Boolean>()); // inventories counted by the snack count, each once
+
+   /**
+      * SnackStats Constructor ~
+      * Private constructor for the single instance
+      * @params No parameters
+      * @return No return value
+      */
+
+   private SnackStats() {
+      this.latencies = new LatencyHistogram[Operation.values().length];
+      for (int i = 0; i < this.latencies.length; i++) {
+         this.latencies[i] = new LatencyHistogram();
+      }
+   }
+
+   /**
+      * get ~
+      * Gets the stats of this process
+      * @param No parameters
+      * @return SnackStats instance
+      */
+
+   public static SnackStats get() {
+      return INSTANCE;
+   }
+
+   /**
+      * start ~
+      * Reads the clock at the start of an operation
+      * @param No parameters
+      * @return long start time to pass to record, 0 when disabled
+      */
+
+   public static long start() {
+      return ENABLED ? System.nanoTime() : 0;
+   }
+
+   /**
+      * record ~
+      * Adds the time since start to the histogram of an operation
+      * @param Operation operation, long start
+      * the operation that ran and the value start returned
+      * @return No return value
+      */
+
+   public static void record(Operation operation, long start) {
+      if (ENABLED) {
+         INSTANCE.latencies[operation.ordinal()].record(System.nanoTime() - start);
+      }
+   }
+
+   /**
+      * recordError ~
+      * Counts an error shown to the user under its SnackError kind
+      * @param Throwable error
+      * the error that ended a command
+      * @return No return value
+      */
+
+   public static void recordError(Throwable error) {
+      if (ENABLED) {
+         INSTANCE.errors.incrementAndGet(errorSlot(error));
+      }
+   }
+
+   /**
+      * watch ~
+      * Adds an inventory to the snack count gauge, watching one twice counts it once
+      * Inventories are held weakly, so one nobody uses anymore drops out on its own
+      * @param SnackInventory inventory
+      * an inventory being served
+      * @return No return value
+      */
+
+   public void watch(SnackInventory inventory) {
+      this.watched.put(inventory, Boolean.TRUE);
+   }
+
+   /**
+      * unwatch ~
+      * Takes an inventory out of the snack count gauge
+      * @param SnackInventory inventory
+      * an inventory no longer served
+      * @return No return value
+      */
+
+   public void unwatch(SnackInventory inventory) {
+      this.watched.remove(inventory);
+   }
+
+   /**
+      * registerMBean ~
+      * Publishes the stats on the platform MBean server, once per process
+      * @param No parameters
+      * @return No return value
+      */
+
+   public static void registerMBean() {
+      try {
+         ObjectName name = new ObjectName("vendingmachine:type=SnackStats");
+         if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+         }
+      }
+      catch (Exception e) {
+         // JMX is optional, the stats command still works
+      }
+   }
+
+   /**
+      * print ~
+      * Prints one line per operation and per error kind that occurred, then the snack count
+      * @param SnackPrinter printer
+      * where to print the view
+      * @return No return value
+      */
+
+   public void print(SnackPrinter printer) {
+      if (!ENABLED) {
+         printer.println("Stats are disabled, start without -Dsnack.stats=false to measure.");
+         return;
+      }
+      printer.println("Operation        count      mean us     p50 us     p99 us     max us");
+      Operation[] operations = Operation.values();
+      for (int i = 0; i < operations.length; i++) {
+         LatencyHistogram latency = this.latencies[i];
+         printer.println(String.format("%-13s %8d %12.2f %10.2f %10.2f %10.2f", operations[i], latency.getCount(),
+            latency.getMean() / 1000.0, latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0));
+      }
+      String[] errorNames = this.getErrorNames();
+      for (int i = 0; i < errorNames.length; i++) {
+         if (this.errors.get(i) > 0) {
+            printer.println("Errors " + errorNames[i] + ": " + this.errors.get(i));
+         }
+      }
+      printer.println("Snacks: " + this.getSnackCount());
+   }
+
+   /**
+      * isEnabled ~
+      * Indicates if operations are being measured
+      * @param No parameters
+      * @return boolean ENABLED
+      */
+
+   public boolean isEnabled() {
+      return ENABLED;
+   }
+
+   /**
+      * getOperationNames ~
+      * Gets the name of every measured operation
+      * @param No parameters
+      * @return String[] operation names
+      */
+
+   public String[] getOperationNames() {
+      Operation[] operations = Operation.values();
+      String[] names = new String[operations.length];
+      for (int i = 0; i < names.length; i++) {
+         names[i] = operations[i].name();
+      }
+      return names;
+   }
+
+   /**
+      * getOperationCounts ~
+      * Gets how often each operation ran
+      * @param No parameters
+      * @return long[] counts
+      */
+
+   public long[] getOperationCounts() {
+      long[] counts = new long[this.latencies.length];
+      for (int i = 0; i < counts.length; i++) {
+         counts[i] = this.latencies[i].getCount();
+      }
+      return counts;
+   }
+
+   /**
+      * getMeanMicros ~
+      * Gets the mean duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   public double[] getMeanMicros() {
+      double[] means = new double[this.latencies.length];
+      for (int i = 0; i < means.length; i++) {
+         means[i] = this.latencies[i].getMean() / 1000.0;
+      }
+      return means;
+   }
+
+   /**
+      * getP50Micros ~
+      * Gets the median duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   public double[] getP50Micros() {
+      return this.percentileMicros(50);
+   }
+
+   /**
+      * getP99Micros ~
+      * Gets the 99th percentile duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   public double[] getP99Micros() {
+      return this.percentileMicros(99);
+   }
+
+   /**
+      * getMaxMicros ~
+      * Gets the longest duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   public double[] getMaxMicros() {
+      double[] maxima = new double[this.latencies.length];
+      for (int i = 0; i < maxima.length; i++) {
+         maxima[i] = this.latencies[i].getMax() / 1000.0;
+      }
+      return maxima;
+   }
+
+   /**
+      * getErrorNames ~
+      * Gets the SnackError kinds followed by the two catch-all slots
+      * @param No parameters
+      * @return String[] error kinds
+      */
+
+   public String[] getErrorNames() {
+      SnackError[] kinds = SnackError.values();
+      String[] names = new String[OTHER_ERROR + 1];
+      for (int i = 0; i < kinds.length; i++) {
+         names[i] = kinds[i].name();
+      }
+      names[OTHER_SNACK_ERROR] = "OTHER_SNACK_ERROR";
+      names[OTHER_ERROR] = "OTHER_ERROR";
+      return names;
+   }
+
+   /**
+      * getErrorCounts ~
+      * Gets how often each error kind reached the user
+      * @param No parameters
+      * @return long[] counts
+      */
+
+   public long[] getErrorCounts() {
+      long[] counts = new long[this.errors.length()];
+      for (int i = 0; i < counts.length; i++) {
+         counts[i] = this.errors.get(i);
+      }
+      return counts;
+   }
+
+   /**
+      * getSnackCount ~
+      * Gets the snack count of the watched inventories
+      * @param No parameters
+      * @return long number of snacks
+      */
+
+   public long getSnackCount() {
+      long count = 0;
+      synchronized (this.watched) {
+         for (SnackInventory inventory : this.watched.keySet()) {
+            count += inventory.size();
+         }
+      }
+      return count;
+   }
+
+   /**
+      * reset ~
+      * Clears every counter and histogram
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void reset() {
+      for (LatencyHistogram latency : this.latencies) {
+         latency.reset();
+      }
+      for (int i = 0; i < this.errors.length(); i++) {
+         this.errors.set(i, 0);
+      }
+   }
+
+   /**
+      * percentileMicros ~
+      * Private method that reads one percentile of every operation
+      * @param double percentile
+      * the share in percent
+      * @return double[] microseconds
+      */
+
+   private double[] percentileMicros(double percentile) {
+      double[] values = new double[this.latencies.length];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = this.latencies[i].getPercentile(percentile) / 1000.0;
+      }
+      return values;
+   }
+
+   /**
+      * errorSlot ~
+      * Private method that finds the counter of an error
+      * The SnackError kinds throw shared instances, so a kind is recognized by identity
+      * @param Throwable error
+      * the error to classify
+      * @return int slot in errors
+      */
+
+   private static int errorSlot(Throwable error) {
+      SnackError[] kinds = SnackError.values();
+      for (int i = 0; i < kinds.length; i++) {
+         if (kinds[i].exception() == error) {
+            return i;
+         }
+      }
+      return error instanceof SnackException ? OTHER_SNACK_ERROR : OTHER_ERROR;
+   }
+}
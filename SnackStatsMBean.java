@@ -0,0 +1,108 @@
+/**
+
+   * SnackStatsMBean --- the JMX view of SnackStats
+   * Registered as vendingmachine:type=SnackStats, arrays are ordered like getOperationNames and getErrorNames
+   * @author Chuckee Kondo (Chaz)
+   */
+
+public interface SnackStatsMBean {
+
+   /**
+      * isEnabled ~
+      * Indicates if operations are being measured
+      * @param No parameters
+      * @return boolean false when started with -Dsnack.stats=false
+      */
+
+   boolean isEnabled();
+
+   /**
+      * getOperationNames ~
+      * Gets the name of every measured operation
+      * @param No parameters
+      * @return String[] operation names
+      */
+
+   String[] getOperationNames();
+
+   /**
+      * getOperationCounts ~
+      * Gets how often each operation ran
+      * @param No parameters
+      * @return long[] counts
+      */
+
+   long[] getOperationCounts();
+
+   /**
+      * getMeanMicros ~
+      * Gets the mean duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   double[] getMeanMicros();
+
+   /**
+      * getP50Micros ~
+      * Gets the median duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   double[] getP50Micros();
+
+   /**
+      * getP99Micros ~
+      * Gets the 99th percentile duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   double[] getP99Micros();
+
+   /**
+      * getMaxMicros ~
+      * Gets the longest duration of each operation
+      * @param No parameters
+      * @return double[] microseconds
+      */
+
+   double[] getMaxMicros();
+
+   /**
+      * getErrorNames ~
+      * Gets the name of every counted error kind
+      * @param No parameters
+      * @return String[] error kinds
+      */
+
+   String[] getErrorNames();
+
+   /**
+      * getErrorCounts ~
+      * Gets how often each error kind reached the user
+      * @param No parameters
+      * @return long[] counts
+      */
+
+   long[] getErrorCounts();
+
+   /**
+      * getSnackCount ~
+      * Gets the number of snacks in the watched inventories
+      * @param No parameters
+      * @return long number of snacks
+      */
+
+   long getSnackCount();
+
+   /**
+      * reset ~
+      * Clears every counter and histogram
+      * @param No parameters
+      * @return No return value
+      */
+
+   void reset();
+}
@@ -0,0 +1,610 @@
+/**
+
+   * SnackTable --- a column store for large snack catalogs, the storage of a columnar SnackInventory
+   * Keeps barcodes, calories and price cents in primitive arrays and the id of every name in a NamePool,
+   * the same columns SnackSnapshot writes, so a row costs about 20 bytes and each distinct name is stored once
+   * Snack objects are only created as views when a row is handed out, so price and calorie scans walk one short[] column
+   * Rows keep insertion order: a removed row is a tombstone until removals outnumber live rows and the rows are compacted
+   * Not thread-safe: SnackInventory guards it with its lock, guard it externally otherwise
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Arrays; // used to grow the columns and find where a page starts
+import java.util.Iterator; // used to walk the rows
+import java.util.Locale; // lowercases names the same way as NameIndex
+import java.util.NoSuchElementException; // thrown past the last row
+import java.util.function.Predicate; // chooses the rows of a bulk removal
+
+public class SnackTable implements Iterable<Snack> {
+
+   private static final int DEFAULT_CAPACITY = 16; // starting number of rows when no hint is given
+   private static final int REMOVED = 0; // barcode of a tombstone, never a valid barcode
+
+   private int[] barcodes; // barcode of each row, REMOVED for a tombstone
+   private short[] calories; // calories of each row
+   private short[] priceCents; // price in cents of each row
+   private long[] sequences; // insertion number of each row, ascending, kept for tombstones too
+   private int[] nameIds; // id of each row's name in names, released when the row is removed
+   private final NamePool names; // distinct names of the rows, possibly shared with other tables
+   private long nextSequence = SnackPage.FIRST + 1; // insertion number of the next added row
+   private int end; // number of rows in use, including tombstones
+   private int size; // number of live rows
+   private BarcodeIndex rowIndex; // barcode to row lookup table
+
+   /**
+      * SnackTable Constructor ~
+      * Initializes an empty table with the default capacity
+      * @params No parameters
+      * @return No return value
+      */
+
+   public SnackTable() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+      * SnackTable Constructor ~
+      * Initializes an empty table sized for an expected number of snacks, with a name pool of its own
+      * @params int initialCapacity
+      * capacity hint for bulk loads
+      * @return No return value
+      */
+
+   public SnackTable(int initialCapacity) {
+      this(initialCapacity, new NamePool());
+   }
+
+   /**
+      * SnackTable Constructor ~
+      * Initializes an empty table sized for an expected number of snacks that stores its names in a given pool
+      * @params int initialCapacity, NamePool names
+      * capacity hint for bulk loads and the pool, which tables of a fleet can share
+      * @return No return value
+      */
+
+   public SnackTable(int initialCapacity, NamePool names) {
+      int capacity = Math.max(initialCapacity, 1);
+      this.barcodes = new int[capacity];
+      this.calories = new short[capacity];
+      this.priceCents = new short[capacity];
+      this.sequences = new long[capacity];
+      this.nameIds = new int[capacity];
+      this.names = names;
+      this.rowIndex = new BarcodeIndex();
+   }
+
+   /**
+      * size ~
+      * Gets the number of snacks in the table
+      * @param No parameters
+      * @return int number of snacks
+      */
+
+   public int size() {
+      return this.size;
+   }
+
+   /**
+      * getNamePool ~
+      * Gets the pool holding the names of the rows
+      * @param No parameters
+      * @return NamePool of this table
+      */
+
+   public NamePool getNamePool() {
+      return this.names;
+   }
+
+   /**
+      * ensureCapacity ~
+      * Grows the columns once so a bulk load does not resize repeatedly
+      * @param int minCapacity
+      * number of snacks the table should hold without growing
+      * @return No return value
+      */
+
+   public void ensureCapacity(int minCapacity) {
+      if (this.end + (minCapacity - this.size) > this.barcodes.length) {
+         this.compact(); // reclaim tombstones before deciding to grow
+         if (minCapacity > this.barcodes.length) {
+            this.resize(minCapacity);
+         }
+      }
+   }
+
+   /**
+      * add ~
+      * Appends a snack as a new row
+      * @param Snack snack
+      * the snack to copy into the table
+      * @exception SnackException: when the barcode already exists
+      * @return No return value
+      */
+
+   public void add(Snack snack) throws SnackException {
+      if (this.rowIndex.contains(snack.getBarcode())) {
+         throw SnackError.BARCODE_DUPLICATE.exception();
+      }
+      this.append(snack.getBarcode(), snack.getCalories(), snack.getPriceCents(), snack.getName());
+   }
+
+   /**
+      * add ~
+      * Validates and appends a row without creating a Snack
+      * @param int barcode, int calories, int priceCents, String name
+      * the values of the new row
+      * @exception SnackException: when a value is invalid or the barcode already exists
+      * @return No return value
+      */
+
+   public void add(int barcode, int calories, int priceCents, String name) throws SnackException {
+      SnackError error = Snack.checkBarcode(barcode);
+      if (error == null) {
+         error = Snack.checkCalories(calories);
+      }
+      if (error == null) {
+         error = Snack.checkPriceCents(priceCents);
+      }
+      if (error == null) {
+         error = Snack.checkName(name);
+      }
+      if (error == null && this.rowIndex.contains(barcode)) {
+         error = SnackError.BARCODE_DUPLICATE;
+      }
+      if (error != null) {
+         throw error.exception();
+      }
+      this.append(barcode, calories, priceCents, name.trim());
+   }
+
+   /**
+      * get ~
+      * Finds the row with a matching barcode
+      * @param int barcode
+      * the barcode of the desired snack
+      * @return Snack view of the row, or null if none exists
+      */
+
+   public Snack get(int barcode) {
+      int row = this.rowIndex.get(barcode);
+      return row == -1 ? null : this.view(row);
+   }
+
+   /**
+      * contains ~
+      * Indicates if a row with the barcode exists, without creating a view
+      * @param int barcode
+      * the barcode to check
+      * @return boolean true if the barcode is taken
+      */
+
+   public boolean contains(int barcode) {
+      return this.rowIndex.contains(barcode);
+   }
+
+   /**
+      * remove ~
+      * Removes the row with a matching barcode
+      * Leaves a tombstone and compacts once tombstones outnumber live rows
+      * @param int barcode
+      * the barcode of the snack to remove
+      * @return Snack view of the removed row, or null if none exists
+      */
+
+   public Snack remove(int barcode) {
+      int row = this.rowIndex.get(barcode);
+      if (row == -1) {
+         return null;
+      }
+      Snack removedSnack = this.view(row);
+      this.bury(row);
+
+      // drop trailing tombstones so appends can reuse the rows right away
+      while (this.end > 0 && this.barcodes[this.end-1] == REMOVED) {
+         this.end--;
+      }
+      if (this.end - this.size > this.size) {
+         this.compact();
+      }
+      return removedSnack;
+   }
+
+   /**
+      * removeIf ~
+      * Removes every row a predicate accepts in one pass that also compacts the rows
+      * @param Predicate<Snack> filter
+      * returns true for the snacks to remove, tested on a view of each row
+      * @return Snack[] of removed snacks in insertion order
+      */
+
+   public Snack[] removeIf(Predicate<Snack> filter) {
+      Snack[] removed = new Snack[16];
+      int count = 0;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] == REMOVED) {
+            continue;
+         }
+         Snack snack = this.view(row);
+         if (filter.test(snack)) {
+            if (count == removed.length) {
+               removed = Arrays.copyOf(removed, count * 2);
+            }
+            removed[count++] = snack;
+            this.bury(row);
+         }
+      }
+      this.compact();
+      return Arrays.copyOf(removed, count);
+   }
+
+   /**
+      * clear ~
+      * Removes every row, keeping the current capacity
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void clear() {
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED) {
+            this.names.release(this.nameIds[row]);
+         }
+      }
+      this.rowIndex.clear();
+      this.end = 0;
+      this.size = 0;
+   }
+
+   /**
+      * barcodes ~
+      * Copies the barcodes of the live rows without creating views
+      * @param No parameters
+      * @return int[] of barcodes in insertion order
+      */
+
+   public int[] barcodes() {
+      int[] live = new int[this.size];
+      int count = 0;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED) {
+            live[count++] = this.barcodes[row];
+         }
+      }
+      return live;
+   }
+
+   /**
+      * cheapest ~
+      * Finds the first added of the cheapest snacks with one pass over the price column
+      * @param No parameters
+      * @return Snack view of the row, or null if the table is empty
+      */
+
+   public Snack cheapest() {
+      int best = -1;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && (best == -1 || this.priceCents[row] < this.priceCents[best])) {
+            best = row;
+         }
+      }
+      return best == -1 ? null : this.view(best);
+   }
+
+   /**
+      * mostExpensive ~
+      * Finds the first added of the most expensive snacks with one pass over the price column
+      * @param No parameters
+      * @return Snack view of the row, or null if the table is empty
+      */
+
+   public Snack mostExpensive() {
+      int best = -1;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && (best == -1 || this.priceCents[row] > this.priceCents[best])) {
+            best = row;
+         }
+      }
+      return best == -1 ? null : this.view(best);
+   }
+
+   /**
+      * findOverPrice ~
+      * Finds the snacks that cost more than a price with two passes over the price column
+      * The first pass counts the matches of each cent value, the second places them, cheapest first
+      * @param int priceCents
+      * the price to compare against in cents
+      * @return Snack[] of matching snacks
+      */
+
+   public Snack[] findOverPrice(int priceCents) {
+      int[] starts = new int[PriceIndex.MAX_CENTS - PriceIndex.MIN_CENTS + 2];
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && this.priceCents[row] > priceCents) {
+            starts[this.priceCents[row] - PriceIndex.MIN_CENTS + 1]++;
+         }
+      }
+      for (int bucket = 1; bucket < starts.length; bucket++) {
+         starts[bucket] += starts[bucket-1];
+      }
+
+      Snack[] matches = new Snack[starts[starts.length - 1]];
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && this.priceCents[row] > priceCents) {
+            matches[starts[this.priceCents[row] - PriceIndex.MIN_CENTS]++] = this.view(row);
+         }
+      }
+      return matches;
+   }
+
+   /**
+      * findCalorieRange ~
+      * Finds the snacks with calories in a range with two passes over the calorie column
+      * The first pass counts the matches of each calorie value, the second places them, fewest calories first
+      * @param int minCalories, int maxCalories
+      * the inclusive calorie range
+      * @return Snack[] of matching snacks
+      */
+
+   public Snack[] findCalorieRange(int minCalories, int maxCalories) {
+      int low = Math.max(minCalories, CalorieIndex.MIN_CALORIES);
+      int high = Math.min(maxCalories, CalorieIndex.MAX_CALORIES);
+      if (low > high) {
+         return new Snack[0];
+      }
+      int[] starts = new int[high - low + 2];
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && this.calories[row] >= low && this.calories[row] <= high) {
+            starts[this.calories[row] - low + 1]++;
+         }
+      }
+      for (int bucket = 1; bucket < starts.length; bucket++) {
+         starts[bucket] += starts[bucket-1];
+      }
+
+      Snack[] matches = new Snack[starts[starts.length - 1]];
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED && this.calories[row] >= low && this.calories[row] <= high) {
+            matches[starts[this.calories[row] - low]++] = this.view(row);
+         }
+      }
+      return matches;
+   }
+
+   /**
+      * findByName ~
+      * Finds snacks whose name contains some text, ignoring case, with one pass over the rows
+      * @param String text, int limit
+      * the text to look for and the most snacks to return
+      * @return Snack[] of matching snacks, names starting with the text first, each group in insertion order
+      */
+
+   public Snack[] findByName(String text, int limit) {
+      String query = text.trim().toLowerCase(Locale.ROOT);
+      if (query.isEmpty() || limit <= 0) {
+         return new Snack[0];
+      }
+      int[] prefixed = new int[Math.min(limit, this.size)]; // rows whose name starts with the text
+      int[] containing = new int[prefixed.length]; // rows whose name holds the text further in
+      int prefixCount = 0;
+      int containCount = 0;
+      for (int row = 0; row < this.end && prefixCount < prefixed.length; row++) {
+         if (this.barcodes[row] == REMOVED) {
+            continue;
+         }
+         String name = this.name(row).toLowerCase(Locale.ROOT);
+         if (name.startsWith(query)) {
+            prefixed[prefixCount++] = row;
+         }
+         else if (containCount < containing.length && name.contains(query)) {
+            containing[containCount++] = row;
+         }
+      }
+      Snack[] matches = new Snack[Math.min(prefixCount + containCount, prefixed.length)];
+      for (int i = 0; i < matches.length; i++) {
+         matches[i] = this.view(i < prefixCount ? prefixed[i] : containing[i - prefixCount]);
+      }
+      return matches;
+   }
+
+   /**
+      * page ~
+      * Reads the rows that follow a resume token, in insertion order
+      * Finds the start with a binary search over the insertion numbers, so a page costs O(log n + pageSize)
+      * @param long after, int pageSize
+      * SnackPage.FIRST or the token of the previous page, and the most snacks to return
+      * @exception SnackException: when the token was never handed out by this table
+      * @return SnackPage of snacks and the token of the next page
+      */
+
+   public SnackPage page(long after, int pageSize) throws SnackException {
+      if (after < SnackPage.FIRST || after >= this.nextSequence) {
+         throw new SnackException("Error. Unknown page token " + after + ".");
+      }
+      int row = Arrays.binarySearch(this.sequences, 0, this.end, after + 1);
+      if (row < 0) {
+         row = -row - 1;
+      }
+      Snack[] snacks = new Snack[Math.max(0, Math.min(pageSize, this.size))];
+      int count = 0;
+      long nextToken = after;
+      while (row < this.end && count < snacks.length) {
+         if (this.barcodes[row] != REMOVED) {
+            snacks[count++] = this.view(row);
+            nextToken = this.sequences[row];
+         }
+         row++;
+      }
+      // skip tombstones to learn if another page exists
+      while (row < this.end && this.barcodes[row] == REMOVED) {
+         row++;
+      }
+      return new SnackPage(count == snacks.length ? snacks : Arrays.copyOf(snacks, count), nextToken, row < this.end);
+   }
+
+   /**
+      * toArray ~
+      * Creates a view of every live row
+      * @param No parameters
+      * @return Snack[] in insertion order
+      */
+
+   public Snack[] toArray() {
+      Snack[] snacks = new Snack[this.size];
+      int count = 0;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED) {
+            snacks[count++] = this.view(row);
+         }
+      }
+      return snacks;
+   }
+
+   /**
+      * iterator ~
+      * Walks the live rows in insertion order, creating each view as it is reached
+      * The table must not change during the walk
+      * @param No parameters
+      * @return Iterator of snacks
+      */
+
+   public Iterator<Snack> iterator() {
+      return new Iterator<Snack>() {
+         private int next = this.skip(0); // next live row to view
+
+         public boolean hasNext() {
+            return this.next < SnackTable.this.end;
+         }
+
+         public Snack next() {
+            if (this.next >= SnackTable.this.end) {
+               throw new NoSuchElementException();
+            }
+            Snack snack = SnackTable.this.view(this.next);
+            this.next = this.skip(this.next + 1);
+            return snack;
+         }
+
+         private int skip(int row) {
+            while (row < SnackTable.this.end && SnackTable.this.barcodes[row] == REMOVED) {
+               row++;
+            }
+            return row;
+         }
+      };
+   }
+
+   /**
+      * view ~
+      * Private method that creates a Snack from one row
+      * The row was validated when it was added, so creating the snack never fails
+      * @param int row
+      * the row to view
+      * @return Snack with the values of the row
+      */
+
+   private Snack view(int row) {
+      try {
+         return new Snack(this.barcodes[row], this.calories[row], (int) this.priceCents[row], this.name(row));
+      }
+      catch (SnackException e) {
+         throw new IllegalStateException("Error. Row " + row + " holds an invalid snack.", e);
+      }
+   }
+
+   /**
+      * name ~
+      * Private method that decodes the name of one row
+      * @param int row
+      * the row to read
+      * @return String name of the row
+      */
+
+   private String name(int row) {
+      return this.names.get(this.nameIds[row]);
+   }
+
+   /**
+      * append ~
+      * Private method that writes checked values to a new row after the last one
+      * @param int barcode, int calories, int priceCents, String name
+      * values that passed the check methods, the barcode is free and the name is trimmed
+      * @return No return value
+      */
+
+   private void append(int barcode, int calories, int priceCents, String name) {
+      if (this.end == this.barcodes.length) {
+         // reuse rows held by tombstones before growing
+         if (this.end - this.size >= this.barcodes.length / 4 && this.end > this.size) {
+            this.compact();
+         }
+         else {
+            this.resize(this.barcodes.length * 2);
+         }
+      }
+      this.barcodes[this.end] = barcode;
+      this.calories[this.end] = (short) calories;
+      this.priceCents[this.end] = (short) priceCents;
+      this.sequences[this.end] = this.nextSequence++;
+      this.nameIds[this.end] = this.names.acquire(name);
+      this.rowIndex.put(barcode, this.end);
+      this.end++;
+      this.size++;
+   }
+
+   /**
+      * bury ~
+      * Private method that turns a live row into a tombstone, the caller trims or compacts the rows
+      * @param int row
+      * the live row to remove
+      * @return No return value
+      */
+
+   private void bury(int row) {
+      this.rowIndex.remove(this.barcodes[row]);
+      this.barcodes[row] = REMOVED;
+      this.names.release(this.nameIds[row]);
+      this.size--;
+   }
+
+   /**
+      * compact ~
+      * Private method that slides live rows over tombstones in one pass
+      * Keeps insertion order and updates rowIndex
+      * @param No parameters
+      * @return No return value
+      */
+
+   private void compact() {
+      int live = 0;
+      for (int row = 0; row < this.end; row++) {
+         if (this.barcodes[row] != REMOVED) {
+            if (live != row) {
+               this.barcodes[live] = this.barcodes[row];
+               this.calories[live] = this.calories[row];
+               this.priceCents[live] = this.priceCents[row];
+               this.sequences[live] = this.sequences[row];
+               this.nameIds[live] = this.nameIds[row];
+               this.rowIndex.put(this.barcodes[live], live);
+            }
+            live++;
+         }
+      }
+      this.end = live;
+   }
+
+   /**
+      * resize ~
+      * Private method that moves every column into new arrays
+      * @param int newCapacity
+      * number of rows the columns can hold
+      * @return No return value
+      */
+
+   private void resize(int newCapacity) {
+      this.barcodes = Arrays.copyOf(this.barcodes, newCapacity);
+      this.calories = Arrays.copyOf(this.calories, newCapacity);
+      this.priceCents = Arrays.copyOf(this.priceCents, newCapacity);
+      this.sequences = Arrays.copyOf(this.sequences, newCapacity);
+      this.nameIds = Arrays.copyOf(this.nameIds, newCapacity);
+   }
+}
@@ -0,0 +1,304 @@
+/**
+
+   * SnackTrie --- an immutable map from barcode to snack that shares structure between versions
+   * A hash array mapped trie keyed by the barcode itself: 4 levels of 32-way nodes cover every valid barcode,
+   * and each node stores only its present children behind a 32-bit bitmap, so a sparse trie stays small
+   * Changes copy the at most 4 nodes on the path to the barcode and return a new trie, so every trie is a snapshot
+   * that can be read for as long as needed while newer versions are built beside it
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.Iterator; // walks the snacks in barcode order
+import java.util.NoSuchElementException; // thrown past the last snack
+
+public class SnackTrie implements Iterable<Snack> {
+
+   private static final int BITS = 5; // barcode bits consumed per level
+   private static final int WIDTH = 1 << BITS; // children per node
+   private static final int LEVELS = 4; // 20 bits cover the 89999 barcodes counted from MIN_BARCODE
+   private static final int TOP_SHIFT = (LEVELS - 1) * BITS; // shift of the bits chosen by the root
+
+   public static final SnackTrie EMPTY = new SnackTrie(null, 0); // the trie without snacks
+
+   private final Node root; // top node, null when empty
+   private final int size; // number of snacks
+
+   /**
+      * Node --- one immutable level of the trie
+      * entries holds the present children in bit order, Nodes above the last level and Snacks on it
+      */
+
+   private static final class Node {
+
+      private final int bitmap; // bit i is set when child i is present
+      private final Object[] entries; // present children, packed
+
+      /**
+         * Node Constructor ~
+         * Initializes a node
+         * @params int bitmap, Object[] entries
+         * the present children and the packed children themselves
+         * @return No return value
+         */
+
+      private Node(int bitmap, Object[] entries) {
+         this.bitmap = bitmap;
+         this.entries = entries;
+      }
+   }
+
+   /**
+      * TrieIterator --- walks the snacks below a root depth first, which visits barcodes in ascending order
+      */
+
+   private static final class TrieIterator implements Iterator<Snack> {
+
+      private final Node[] path = new Node[LEVELS]; // node being walked on each level
+      private final int[] positions = new int[LEVELS]; // next entry to visit on each level
+      private int depth; // level being walked, -1 once done
+      private Snack next; // snack to return next, null once done
+
+      /**
+         * TrieIterator Constructor ~
+         * Initializes a walk and finds the first snack
+         * @params Node root
+         * the top node, or null for an empty trie
+         * @return No return value
+         */
+
+      private TrieIterator(Node root) {
+         this.path[0] = root;
+         this.depth = root == null ? -1 : 0;
+         this.next = this.advance();
+      }
+
+      /**
+         * hasNext ~
+         * Indicates if snacks remain
+         * @param No parameters
+         * @return boolean true if next returns a snack
+         */
+
+      public boolean hasNext() {
+         return this.next != null;
+      }
+
+      /**
+         * next ~
+         * Gets the next snack in barcode order
+         * @param No parameters
+         * @exception NoSuchElementException: when every snack was returned
+         * @return Snack next snack
+         */
+
+      public Snack next() {
+         if (this.next == null) {
+            throw new NoSuchElementException();
+         }
+         Snack snack = this.next;
+         this.next = this.advance();
+         return snack;
+      }
+
+      /**
+         * advance ~
+         * Private method that moves to the following snack
+         * @param No parameters
+         * @return Snack following snack, or null when done
+         */
+
+      private Snack advance() {
+         while (this.depth >= 0) {
+            Node node = this.path[this.depth];
+            if (this.positions[this.depth] == node.entries.length) {
+               this.depth--;
+               continue;
+            }
+            Object entry = node.entries[this.positions[this.depth]++];
+            if (this.depth == LEVELS - 1) {
+               return (Snack) entry;
+            }
+            this.depth++;
+            this.path[this.depth] = (Node) entry;
+            this.positions[this.depth] = 0;
+         }
+         return null;
+      }
+   }
+
+   /**
+      * SnackTrie Constructor ~
+      * Private constructor for a version
+      * @params Node root, int size
+      * the top node and the number of snacks below it
+      * @return No return value
+      */
+
+   private SnackTrie(Node root, int size) {
+      this.root = root;
+      this.size = size;
+   }
+
+   /**
+      * size ~
+      * Gets the number of snacks
+      * @param No parameters
+      * @return int number of snacks
+      */
+
+   public int size() {
+      return this.size;
+   }
+
+   /**
+      * isEmpty ~
+      * Indicates if the trie holds no snacks
+      * @param No parameters
+      * @return boolean true if empty
+      */
+
+   public boolean isEmpty() {
+      return this.size == 0;
+   }
+
+   /**
+      * get ~
+      * Finds the snack with a barcode in at most 4 steps
+      * @param int barcode
+      * the barcode to look up
+      * @return Snack with the barcode, or null if none exists
+      */
+
+   public Snack get(int barcode) {
+      if (barcode < BarcodeIndex.MIN_BARCODE || barcode > BarcodeIndex.MAX_BARCODE) {
+         return null;
+      }
+      int key = barcode - BarcodeIndex.MIN_BARCODE;
+      Node node = this.root;
+      for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+         int bit = 1 << ((key >>> shift) & (WIDTH - 1));
+         if ((node.bitmap & bit) == 0) {
+            return null;
+         }
+         Object entry = node.entries[Integer.bitCount(node.bitmap & (bit - 1))];
+         if (shift == 0) {
+            return (Snack) entry;
+         }
+         node = (Node) entry;
+      }
+      return null;
+   }
+
+   /**
+      * with ~
+      * Gets a version that also maps the barcode of a snack to it, replacing any snack with that barcode
+      * @param Snack snack
+      * a snack with a valid barcode
+      * @return SnackTrie new version, this one is unchanged
+      */
+
+   public SnackTrie with(Snack snack) {
+      boolean replaces = this.get(snack.getBarcode()) != null;
+      Node newRoot = with(this.root, snack.getBarcode() - BarcodeIndex.MIN_BARCODE, TOP_SHIFT, snack);
+      return new SnackTrie(newRoot, replaces ? this.size : this.size + 1);
+   }
+
+   /**
+      * without ~
+      * Gets a version without the snack of a barcode
+      * @param int barcode
+      * the barcode to drop
+      * @return SnackTrie new version, or this one if the barcode is free
+      */
+
+   public SnackTrie without(int barcode) {
+      if (this.get(barcode) == null) {
+         return this;
+      }
+      Node newRoot = without(this.root, barcode - BarcodeIndex.MIN_BARCODE, TOP_SHIFT);
+      return newRoot == null ? EMPTY : new SnackTrie(newRoot, this.size - 1);
+   }
+
+   /**
+      * toArray ~
+      * Copies the snacks into a new array
+      * @param No parameters
+      * @return Snack[] in barcode order
+      */
+
+   public Snack[] toArray() {
+      Snack[] snacks = new Snack[this.size];
+      int count = 0;
+      for (Snack snack : this) {
+         snacks[count++] = snack;
+      }
+      return snacks;
+   }
+
+   /**
+      * iterator ~
+      * Walks the snacks in barcode order, newer versions never affect the walk
+      * @param No parameters
+      * @return Iterator of snacks
+      */
+
+   public Iterator<Snack> iterator() {
+      return new TrieIterator(this.root);
+   }
+
+   /**
+      * with ~
+      * Private method that copies the path to a key and places a snack at its end
+      * @param Node node, int key, int shift, Snack snack
+      * the node on this level or null, the barcode counted from MIN_BARCODE, the shift of this level and the snack
+      * @return Node copy of node holding the snack
+      */
+
+   private static Node with(Node node, int key, int shift, Snack snack) {
+      int bit = 1 << ((key >>> shift) & (WIDTH - 1));
+      int bitmap = node == null ? 0 : node.bitmap;
+      int position = Integer.bitCount(bitmap & (bit - 1));
+      boolean present = (bitmap & bit) != 0;
+      Object child = shift == 0 ? snack : with(present ? (Node) node.entries[position] : null, key, shift - BITS, snack);
+      Object[] entries;
+      if (present) {
+         entries = node.entries.clone();
+      }
+      else {
+         entries = new Object[Integer.bitCount(bitmap) + 1];
+         if (node != null) {
+            System.arraycopy(node.entries, 0, entries, 0, position);
+            System.arraycopy(node.entries, position, entries, position + 1, node.entries.length - position);
+         }
+      }
+      entries[position] = child;
+      return new Node(bitmap | bit, entries);
+   }
+
+   /**
+      * without ~
+      * Private method that copies the path to a present key and drops the snack at its end
+      * Nodes left without children are dropped too
+      * @param Node node, int key, int shift
+      * the node on this level, the barcode counted from MIN_BARCODE and the shift of this level
+      * @return Node copy of node without the snack, or null if nothing is left
+      */
+
+   private static Node without(Node node, int key, int shift) {
+      int bit = 1 << ((key >>> shift) & (WIDTH - 1));
+      int position = Integer.bitCount(node.bitmap & (bit - 1));
+      Object child = shift == 0 ? null : without((Node) node.entries[position], key, shift - BITS);
+      if (child != null) {
+         Object[] entries = node.entries.clone();
+         entries[position] = child;
+         return new Node(node.bitmap, entries);
+      }
+      if (node.entries.length == 1) {
+         return null;
+      }
+      Object[] entries = new Object[node.entries.length - 1];
+      System.arraycopy(node.entries, 0, entries, 0, position);
+      System.arraycopy(node.entries, position + 1, entries, position, entries.length - position);
+      return new Node(node.bitmap & ~bit, entries);
+   }
+}
@@ -0,0 +1,161 @@
+/**
+
+   * StockLevels --- lock-free stock counters for every barcode
+   * One atomic counter per barcode [10001 - 99999], allocated in pages of 1024 barcodes on first use
+   * Counters are packed four bytes each, so a fully stocked machine needs about 360 KB, but striped across the page:
+   * the 16 counters sharing a 64-byte cache line belong to barcodes 64 apart, so buyers of neighbouring barcodes
+   * do not slow each other down through false sharing, and buyers of the same snack only race on its counter
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.concurrent.atomic.AtomicIntegerArray; // stock counters of one page
+import java.util.concurrent.atomic.AtomicReferenceArray; // pages, created once and shared by every thread
+
+public class StockLevels {
+
+   private static final int LINE_INTS = 16; // ints per 64-byte cache line
+   private static final int LINES = BarcodeIndex.PAGE_SIZE / LINE_INTS; // cache lines per page, also the barcode distance between counters of one line
+
+   private final AtomicReferenceArray<AtomicIntegerArray> pages; // stock of each barcode, null pages hold no stock
+
+   /**
+      * StockLevels Constructor ~
+      * Initializes counters that start at zero for every barcode
+      * @params No parameters
+      * @return No return value
+      */
+
+   public StockLevels() {
+      this.pages = new AtomicReferenceArray<AtomicIntegerArray>(BarcodeIndex.PAGE_COUNT);
+   }
+
+   /**
+      * get ~
+      * Gets the stock of a barcode
+      * @param int barcode
+      * a validated barcode
+      * @return int units in stock
+      */
+
+   public int get(int barcode) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      AtomicIntegerArray page = this.pages.get(slot >>> BarcodeIndex.PAGE_SHIFT);
+      if (page == null) {
+         return 0;
+      }
+      return page.get(index(slot));
+   }
+
+   /**
+      * add ~
+      * Adds units to the stock of a barcode
+      * @param int barcode, int quantity
+      * a validated barcode and the number of units to add
+      * @exception SnackException: when the stock would overflow
+      * @return int units in stock afterwards
+      */
+
+   public int add(int barcode, int quantity) throws SnackException {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      AtomicIntegerArray page = this.page(slot);
+      int index = index(slot);
+      while (true) {
+         int stock = page.get(index);
+         if (stock > Integer.MAX_VALUE - quantity) {
+            throw new SnackException("Error. Stock cannot exceed " + Integer.MAX_VALUE + ".");
+         }
+         if (page.compareAndSet(index, stock, stock + quantity)) {
+            return stock + quantity;
+         }
+      }
+   }
+
+   /**
+      * takeOne ~
+      * Removes one unit from the stock of a barcode unless it is sold out
+      * @param int barcode
+      * a validated barcode
+      * @return int units in stock right after this unit was taken, or -1 if the barcode had no stock
+      */
+
+   public int takeOne(int barcode) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      AtomicIntegerArray page = this.pages.get(slot >>> BarcodeIndex.PAGE_SHIFT);
+      if (page == null) {
+         return -1;
+      }
+      int index = index(slot);
+      while (true) {
+         int stock = page.get(index);
+         if (stock <= 0) {
+            return -1;
+         }
+         if (page.compareAndSet(index, stock, stock - 1)) {
+            return stock - 1; // what this vend left, a later read could already see other vends
+         }
+      }
+   }
+
+   /**
+      * set ~
+      * Sets the stock of a barcode, used when stock is restored from a snapshot or journal
+      * @param int barcode, int units
+      * a validated barcode and its units in stock, not negative
+      * @return No return value
+      */
+
+   public void set(int barcode, int units) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      this.page(slot).set(index(slot), units);
+   }
+
+   /**
+      * reset ~
+      * Sets the stock of a barcode back to zero
+      * @param int barcode
+      * a validated barcode
+      * @return No return value
+      */
+
+   public void reset(int barcode) {
+      int slot = barcode - BarcodeIndex.MIN_BARCODE;
+      AtomicIntegerArray page = this.pages.get(slot >>> BarcodeIndex.PAGE_SHIFT);
+      if (page != null) {
+         page.set(index(slot), 0);
+      }
+   }
+
+   /**
+      * page ~
+      * Private method that gets the page of a slot, creating it if needed
+      * Racing creators agree on one page through compareAndSet
+      * @param int slot
+      * barcode minus MIN_BARCODE
+      * @return AtomicIntegerArray page holding the slot
+      */
+
+   private AtomicIntegerArray page(int slot) {
+      int pageIndex = slot >>> BarcodeIndex.PAGE_SHIFT;
+      AtomicIntegerArray page = this.pages.get(pageIndex);
+      if (page == null) {
+         // one spare line in front keeps the counters off the line holding the array header
+         this.pages.compareAndSet(pageIndex, null, new AtomicIntegerArray(BarcodeIndex.PAGE_SIZE + LINE_INTS));
+         page = this.pages.get(pageIndex);
+      }
+      return page;
+   }
+
+   /**
+      * index ~
+      * Private method that finds the counter of a slot within its page
+      * Consecutive slots go to consecutive cache lines, and a line fills up with slots LINES apart
+      * @param int slot
+      * barcode minus MIN_BARCODE
+      * @return int array index of the counter
+      */
+
+   private static int index(int slot) {
+      int offset = slot & (BarcodeIndex.PAGE_SIZE - 1);
+      return LINE_INTS + (offset % LINES) * LINE_INTS + offset / LINES;
+   }
+}
@@ -0,0 +1,273 @@
+/**
+
+   * VendingFleet --- a set of vending machines keyed by machine id
+   * Machines are spread over one shard per core, each shard owning its own worker thread
+   * Fleet-wide queries scan every shard in parallel and merge the results
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import java.util.ArrayList; // collects machine ids before sorting
+import java.util.Arrays; // sorts merged machine ids
+import java.util.List; // per-shard query results
+import java.util.Map; // fleet-wide price query results
+import java.util.TreeMap; // keeps merged results ordered by machine id
+import java.util.concurrent.CompletableFuture; // runs one query per shard
+import java.util.concurrent.ConcurrentHashMap; // machines of a shard, safe to read while others are added
+import java.util.concurrent.ExecutorService; // worker thread of a shard
+import java.util.concurrent.Executors; // creates the shard workers
+import java.util.function.Function; // query run against every shard
+
+public class VendingFleet {
+
+   private final Shard[] shards; // machines grouped by the hash of their id
+
+   /**
+      * VendingFleet Constructor ~
+      * Initializes an empty fleet with one shard per available core
+      * @params No parameters
+      * @return No return value
+      */
+
+   public VendingFleet() {
+      this(Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+      * VendingFleet Constructor ~
+      * Initializes an empty fleet with a chosen number of shards
+      * @params int shardCount
+      * number of shards, each with its own worker thread
+      * @return No return value
+      */
+
+   public VendingFleet(int shardCount) {
+      this.shards = new Shard[Math.max(shardCount, 1)];
+      for (int i = 0; i < this.shards.length; i++) {
+         this.shards[i] = new Shard(i);
+      }
+   }
+
+   /**
+      * addMachine ~
+      * Adds a machine to the fleet
+      * @param VendingMachine machine
+      * the machine to add
+      * @exception SnackException: when a machine with the same id is already in the fleet
+      * @return No return value
+      */
+
+   public void addMachine(VendingMachine machine) throws SnackException {
+      if (this.shardOf(machine.getId()).machines.putIfAbsent(machine.getId(), machine) != null) {
+         throw new SnackException("Error. Machine " + machine.getId() + " already exists.");
+      }
+      SnackStats.get().watch(machine.getInventory());
+   }
+
+   /**
+      * getOrCreateMachine ~
+      * Finds a machine by id, adding an empty one if the fleet has none
+      * @param String machineId
+      * the id of the machine
+      * @return VendingMachine with the id
+      */
+
+   public VendingMachine getOrCreateMachine(String machineId) {
+      return this.shardOf(machineId).machines.computeIfAbsent(machineId, id -> {
+         VendingMachine machine = new VendingMachine(id, new SnackInventory());
+         SnackStats.get().watch(machine.getInventory());
+         return machine;
+      });
+   }
+
+   /**
+      * getMachine ~
+      * Finds a machine by id
+      * @param String machineId
+      * the id of the machine
+      * @return VendingMachine with the id, or null if none exists
+      */
+
+   public VendingMachine getMachine(String machineId) {
+      return this.shardOf(machineId).machines.get(machineId);
+   }
+
+   /**
+      * removeMachine ~
+      * Removes a machine from the fleet
+      * @param String machineId
+      * the id of the machine
+      * @return VendingMachine that was removed, or null if none exists
+      */
+
+   public VendingMachine removeMachine(String machineId) {
+      VendingMachine machine = this.shardOf(machineId).machines.remove(machineId);
+      if (machine != null) {
+         SnackStats.get().unwatch(machine.getInventory());
+      }
+      return machine;
+   }
+
+   /**
+      * size ~
+      * Gets the number of machines in the fleet
+      * @param No parameters
+      * @return int number of machines
+      */
+
+   public int size() {
+      int size = 0;
+      for (Shard shard : this.shards) {
+         size += shard.machines.size();
+      }
+      return size;
+   }
+
+   /**
+      * machineIds ~
+      * Lists the id of every machine
+      * @param No parameters
+      * @return String[] of machine ids in sorted order
+      */
+
+   public String[] machineIds() {
+      List<String> ids = new ArrayList<String>();
+      for (Shard shard : this.shards) {
+         ids.addAll(shard.machines.keySet());
+      }
+      String[] sorted = ids.toArray(new String[0]);
+      Arrays.sort(sorted);
+      return sorted;
+   }
+
+   /**
+      * findOverPrice ~
+      * Finds the snacks that cost more than a price in every machine
+      * Each shard searches its machines on its own worker, then the results are merged
+      * @param int priceCents
+      * the price to compare against in cents
+      * @return Map of machine id to matching snacks, cheapest first, ordered by machine id and without machines that have no match
+      */
+
+   public Map<String, Snack[]> findOverPrice(int priceCents) {
+      List<Map<String, Snack[]>> shardResults = this.queryShards(shard -> {
+         Map<String, Snack[]> matches = new TreeMap<String, Snack[]>();
+         for (VendingMachine machine : shard.machines.values()) {
+            Snack[] snacks = machine.getInventory().findOverPrice(priceCents);
+            if (snacks.length > 0) {
+               matches.put(machine.getId(), snacks);
+            }
+         }
+         return matches;
+      });
+
+      Map<String, Snack[]> merged = new TreeMap<String, Snack[]>();
+      for (Map<String, Snack[]> matches : shardResults) {
+         merged.putAll(matches);
+      }
+      return merged;
+   }
+
+   /**
+      * findMachinesHolding ~
+      * Finds the machines that hold a snack with a barcode
+      * Each shard searches its machines on its own worker using lock-free barcode lookups
+      * @param int barcode
+      * the barcode to look for
+      * @return String[] of machine ids in sorted order
+      */
+
+   public String[] findMachinesHolding(int barcode) {
+      List<List<String>> shardResults = this.queryShards(shard -> {
+         List<String> ids = new ArrayList<String>();
+         for (VendingMachine machine : shard.machines.values()) {
+            if (machine.getInventory().contains(barcode)) {
+               ids.add(machine.getId());
+            }
+         }
+         return ids;
+      });
+
+      List<String> merged = new ArrayList<String>();
+      for (List<String> ids : shardResults) {
+         merged.addAll(ids);
+      }
+      String[] sorted = merged.toArray(new String[0]);
+      Arrays.sort(sorted);
+      return sorted;
+   }
+
+   /**
+      * close ~
+      * Stops the shard workers, machines stay readable afterwards
+      * @param No parameters
+      * @return No return value
+      */
+
+   public void close() {
+      for (Shard shard : this.shards) {
+         shard.worker.shutdown();
+      }
+   }
+
+   /**
+      * queryShards ~
+      * Private method that runs a query on every shard worker at once and waits for all of them
+      * @param Function query
+      * the query to run against one shard
+      * @return List of the results of each shard, in shard order
+      */
+
+   private <T> List<T> queryShards(Function<Shard, T> query) {
+      List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(this.shards.length);
+      for (Shard shard : this.shards) {
+         futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), shard.worker));
+      }
+      List<T> results = new ArrayList<T>(this.shards.length);
+      for (CompletableFuture<T> future : futures) {
+         results.add(future.join());
+      }
+      return results;
+   }
+
+   /**
+      * shardOf ~
+      * Private method that picks the shard owning a machine id
+      * @param String machineId
+      * the id of the machine
+      * @return Shard owning the id
+      */
+
+   private Shard shardOf(String machineId) {
+      int hash = machineId.hashCode();
+      hash ^= hash >>> 16; // spread ids that differ only in their last characters
+      return this.shards[Math.floorMod(hash, this.shards.length)];
+   }
+
+   /**
+
+      * Shard --- the machines owned by one core
+      * @author Chuckee Kondo (Chaz)
+      */
+
+   private static class Shard {
+
+      private final ConcurrentHashMap<String, VendingMachine> machines = new ConcurrentHashMap<String, VendingMachine>(); // machines of this shard by id
+      private final ExecutorService worker; // runs the queries of this shard
+
+      /**
+         * Shard Constructor ~
+         * Initializes an empty shard and its daemon worker thread
+         * @params int index
+         * position of the shard, used to name its thread
+         * @return No return value
+         */
+
+      private Shard(int index) {
+         this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "fleet-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+   }
+}
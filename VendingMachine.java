@@ -3,36 +3,149 @@
    * Vending Machine --- a software representation
    * An application for the input of snacks
    * Includes add, remove, view, and more
+   * Each instance is one machine keyed by its id, so a VendingFleet can run thousands in one process
    * @author Chuckee Kondo (Chaz)
    */
 
 import java.util.Scanner; // used for scnr
-import java.text.DecimalFormat; // used for price format
-import java.math.RoundingMode; // used to ensure price format rounds down
+import java.io.FileReader; // used to read batch scripts
+import java.io.InputStreamReader; // used to read batch scripts from stdin
+import java.io.Reader; // source of batch scripts
+import java.nio.file.Paths; // used to locate CSV and snapshot files
+import java.util.List; // batches of changes handed to watchers
+import java.util.concurrent.Flow; // subscribes watchers to the change feed
    
 public class VendingMachine {
 
-   private static boolean isMenuVisible = false; // the state of menu visibility
-   private static boolean secretMenuToggled = false; // the state of the secret menu visibility
-   private static Snack[] snackList; // the snack list arr of the current vending machine state
-   private static Scanner scnr; // scanner to view user input
-   private static String userInput = "init"; // initial user input arbitrarily set to "init"
+   static final String LOCAL_MACHINE_ID = "local"; // id of the machine driven by the menu or --batch
+   static final int NAME_SEARCH_LIMIT = 20; // most snacks shown by a name search
+   static final int LIST_PAGE_SIZE = 20; // snacks shown per page of a listing
+   
+   private static SnackPrinter printer = new SnackPrinter(System.out); // buffered output for snack listings, shared by every machine
+   
+   private final String machineId; // the id of this machine within its fleet
+   private final SnackInventory snackList; // the snack inventory of the current vending machine state
+   private boolean isMenuVisible = false; // the state of menu visibility
+   private boolean secretMenuToggled = false; // the state of the secret menu visibility
+   private Scanner scnr; // scanner to view user input
+   private String userInput = "init"; // initial user input arbitrarily set to "init"
+   private String snapshotPath; // snapshot file loaded at start and saved at exit, null when unused
+   private SnackJournal journal; // journal of changes made since the snapshot, null when unused
+   private SnackFeed feed; // change feed of snackList, opened by the first watcher and closed by the last one, guarded by this
+   
+   /**
+      * VendingMachine Constructor ~
+      * Initializes a machine over an inventory
+      * @params String machineId, SnackInventory snackList
+      * the id of the machine and the snacks it holds
+      * @return No return value
+      */
+   
+   public VendingMachine(String machineId, SnackInventory snackList) {
+      this.machineId = machineId;
+      this.snackList = snackList;
+   }
+   
+   /**
+      * getId ~
+      * Gets the id of this machine
+      * @param No parameters
+      * @return String machine id
+      */
+   
+   public String getId() {
+      return this.machineId;
+   }
+   
+   /**
+      * getInventory ~
+      * Gets the snack inventory of this machine
+      * @param No parameters
+      * @return SnackInventory of this machine
+      */
+   
+   public SnackInventory getInventory() {
+      return this.snackList;
+   }
+   
+   /**
+      * watch ~
+      * Subscribes to the changes of this machine, opening a feed when none is open
+      * The feed closes itself once its last subscriber leaves, so nobody watching costs the inventory nothing
+      * @param Flow.Subscriber subscriber
+      * the subscriber, each request(n) asks for n more batches of changes
+      * @return No return value
+      */
+   
+   public synchronized void watch(Flow.Subscriber<? super List<SnackChange>> subscriber) {
+      if (this.feed == null || !this.feed.trySubscribe(subscriber)) {
+         this.feed = SnackFeed.open(this.snackList);
+         this.feed.trySubscribe(subscriber);
+      }
+   }
    
    /** Driver Class -
       * Initializes the Vending Machine program
       * @params String[] args
       * includes the command line arguments
+      * --batch <file> runs a command script instead of the menu, use - for stdin
+      * --snapshot <file> restores the inventory at start, journals every change next to it and saves it at exit
+      * --serve <port> answers commands from local TCP clients instead of the menu, until the process is stopped
+      * --storage columns keeps the snacks in primitive columns and hands out Snack views, objects is the default
       * @exception throws SnackException
       * @return No return value
       */
       
    public static void main(String[] args) throws Exception {
+      // initialize a machine with an empty snack inventory, kept in columns IF started with --storage columns
+      String storage = argumentValue(args, "--storage");
+      if (storage != null && !storage.equals("columns") && !storage.equals("objects")) {
+         throw new SnackException("Error. Storage must be columns or objects.");
+      }
+      SnackInventory inventory = "columns".equals(storage) ? SnackInventory.columnar(16) : new SnackInventory();
+      VendingMachine machine = new VendingMachine(LOCAL_MACHINE_ID, inventory);
+      
+      // publish operation stats over JMX, reporting the snacks of this machine
+      SnackStats.registerMBean();
+      SnackStats.get().watch(machine.snackList);
+      
+      // restore the last saved inventory IF started with --snapshot <file>
+      machine.restoreSnapshot(argumentValue(args, "--snapshot"));
+      
+      // run a command script without the menu IF started with --batch <file>
+      String batchPath = argumentValue(args, "--batch");
+      if (batchPath != null) {
+         int failures = machine.runBatch(batchPath);
+         machine.saveSnapshot();
+         if (failures > 0) {
+            System.exit(1);
+         }
+         return;
+      }
+      
+      // answer commands from local network clients IF started with --serve <port>
+      String servePort = argumentValue(args, "--serve");
+      if (servePort != null) {
+         machine.serve(Integer.parseInt(servePort));
+         return;
+      }
+      
+      machine.run();
+      machine.saveSnapshot();
+      endProgram();
+   }
+   
+   /**
+      * run ~
+      * Runs the interactive menu of this machine until the user chooses 0
+      * @param No parameters
+      * @return No return value
+      */
+   
+   public void run() {
       // print welcome message
       System.out.println("Welcome to the Snack Vending Machine!\n");
       
-      // initialize snack array to 0 length
-      snackList = new Snack[0];
-      
       // initialize menu loop
       while (!userInput.equals("0")) {
          // if statement to check secret menu state
@@ -43,6 +156,7 @@ public class VendingMachine {
                runVendingMachine();
             }
             catch (Exception e) {
+                SnackStats.recordError(e); // count the error by kind
                 System.out.println("\n\nOops, an error occurred - \n" + e + "\n");
                 System.out.println("Restarting...\n");
                 reset(); // helper method to reset variables to initial states
@@ -52,8 +166,124 @@ public class VendingMachine {
             activateSecretMenu();
          }
       }
+   }
+   
+   /**
+      * argumentValue ~
+      * Finds the value following a command line option
+      * @param String[] args, String option
+      * the command line arguments and the option to look for
+      * @return String value of the option, or null if it was not given
+      */
+   
+   private static String argumentValue(String[] args, String option) {
+      for (int i = 0; i < args.length - 1; i++) {
+         if (args[i].equals(option)) {
+            return args[i+1];
+         }
+      }
+      return null;
+   }
+   
+   /**
+      * restoreSnapshot ~
+      * Loads snackList from a snapshot and its journal IF a snapshot path was given
+      * Every change after this point is journaled until saveSnapshot
+      * @param String path
+      * the snapshot file, or null when the machine is not persisted
+      * @exception Passes exceptions for unreadable or damaged snapshots to the driver class
+      * @return No return value
+      */
+   
+   private void restoreSnapshot(String path) throws Exception {
+      snapshotPath = path;
+      if (snapshotPath != null) {
+         journal = SnackJournal.open(Paths.get(snapshotPath), snackList);
+         if (!snackList.isEmpty()) {
+            System.out.println("Restored " + snackList.size() + " snacks from " + snapshotPath + "\n");
+         }
+      }
+   }
+   
+   /**
+      * saveSnapshot ~
+      * Saves snackList to snapshotPath and clears the journal IF a snapshot path was given
+      * @param No parameters
+      * @return No return value
+      */
+   
+   private void saveSnapshot() {
+      if (journal != null) {
+         try {
+            journal.close();
+         }
+         catch (Exception e) {
+            System.out.println("Unable to save snacks to " + snapshotPath + " - " + e);
+         }
+      }
+   }
+   
+   /**
+      * runBatch ~
+      * Runs a command script against snackList using BatchRunner
+      * The script starts on this machine and can create and switch to others in a fleet
+      * @param String path
+      * the script file, or - to read from stdin
+      * @exception Passes IOException thrown while reading the script to the driver class
+      * @return int number of failed commands
+      */
+   
+   private int runBatch(String path) throws Exception {
+      VendingFleet fleet = new VendingFleet();
+      fleet.addMachine(this);
+      BatchRunner runner = new BatchRunner(fleet, machineId, printer);
       
-      endProgram();
+      // choose the script source
+      Reader script;
+      if (path.equals("-")) {
+         script = new InputStreamReader(System.in);
+      }
+      else {
+         script = new FileReader(path);
+      }
+      
+      try {
+         return runner.run(script);
+      }
+      finally {
+         script.close();
+         fleet.close();
+      }
+   }
+   
+   /**
+      * serve ~
+      * Serves this machine, and any machine clients create, over a local TCP port using SnackServer
+      * The snapshot is saved when the process is stopped
+      * @param int port
+      * the port to listen on, 0 picks a free one
+      * @exception Passes IOException thrown while binding or accepting to the driver class
+      * @return No return value
+      */
+   
+   private void serve(int port) throws Exception {
+      VendingFleet fleet = new VendingFleet();
+      fleet.addMachine(this);
+      SnackServer server = new SnackServer(fleet, machineId, port);
+      
+      // save the snapshot on Ctrl-C or kill
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+         try {
+            server.close();
+         }
+         catch (Exception e) {
+            // already closed
+         }
+         saveSnapshot();
+      }));
+      
+      System.out.println("Serving snacks on localhost:" + server.getPort());
+      server.serve();
    }
    
    /**
@@ -65,7 +295,7 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void runVendingMachine() throws Exception {
+   private void runVendingMachine() throws Exception {
       // start program
       if (!isMenuVisible) {
          printMenu();
@@ -84,6 +314,31 @@ public class VendingMachine {
             case "4":  
                printAllSnacks(); // print all snacks
                break;
+            case "5":
+               vendSnack(); // vend snack
+               break;
+            case "6":
+               printItemsInCalorieRange(); // print snacks within a user calorie range
+               break;
+            case "7":
+               searchSnacksByName(); // print snacks whose name contains user text
+               break;
+            case "8":
+            case "restock":
+               restockSnack(); // add units to the stock of a snack
+               break;
+            case "9":
+            case "import":
+               importSnacks(); // add snacks from a CSV catalog
+               break;
+            case "10":
+            case "report":
+               printReport(); // print inventory totals
+               break;
+            case "11":
+            case "stats":
+               printStats(); // print operation stats
+               break;
             case "seed":
                addSeedSnacks(); // helper method
                break;
@@ -106,13 +361,20 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void printMenu() {
+   private void printMenu() {
       scnr = new Scanner(System.in);
       System.out.println("Menu\n");
       System.out.println("1. Add a snack");
       System.out.println("2. Remove a snack");
       System.out.println("3. Print snacks that cost more than a given price");
       System.out.println("4. Print all the snacks");
+      System.out.println("5. Vend a snack");
+      System.out.println("6. Print snacks within a calorie range");
+      System.out.println("7. Search snacks by name");
+      System.out.println("8. Restock a snack");
+      System.out.println("9. Import snacks from a CSV file");
+      System.out.println("10. Print an inventory report");
+      System.out.println("11. Print operation stats");
       System.out.println("0. End this program");
       
       isMenuVisible = true;
@@ -128,13 +390,13 @@ public class VendingMachine {
    /**
       * addSnack ~
       * Allows for the creation of new snacks
-      * Guides the user to add a new snack to the current instantiated snackList[]
+      * Guides the user to add a new snack to the current instantiated snackList
       * @param No parameters
       * @exception Passes exceptions thrown from within to runVendingMachine()
       * @return No return value
       */
       
-   private static void addSnack() throws Exception {
+   private void addSnack() throws Exception {
       // print basic instruction for user
       System.out.println("\n\n\n\n\nPlease enter a snack\n");
       
@@ -146,8 +408,7 @@ public class VendingMachine {
       
       // check if the barcode already exist and throw an error if necessary
       if (isBarcodeDuplicate(barcode)) {
-         SnackException barcodeDuplicateError = new SnackException("Error. Barcode already exists.");
-         throw barcodeDuplicateError; 
+         throw SnackError.BARCODE_DUPLICATE.exception();
       }
       
       // ask user for the calories of the new snack
@@ -171,7 +432,7 @@ public class VendingMachine {
       // create the snack obj
       Snack newSnack = new Snack(barcode, calories, price, name);
       
-      // add to the snackList[] arr
+      // add to snackList
       addToSnackArr(newSnack);
 
       // print success message
@@ -185,18 +446,18 @@ public class VendingMachine {
    
    /**
       * deleteSnackByBarcode ~
-      * Allows for the deletion/removal of snacks currently within snackList[]
+      * Allows for the deletion/removal of snacks currently within snackList
       * Guides the user to remove a snack by its barcode int
       * @param No parameters
       * @exception Passes exceptions thrown from within to runVendingMachine()
       * @return No return value
       */
    
-   private static void deleteSnackByBarcode() throws Exception {
+   private void deleteSnackByBarcode() throws Exception {
       boolean continueFunction = true; // dictates if this function should end early due to various circumstances
       
-      // exit back to main menu IF snackList[] length is 0
-      if (snackList.length == 0) {
+      // exit back to main menu IF snackList is empty
+      if (snackList.isEmpty()) {
          reset(); // reset variables
          
          // tell user no snacks are available and therefore nothing was removed
@@ -219,50 +480,17 @@ public class VendingMachine {
          // prevalidate immediately for program efficiecny 
          int barcode = prevalidateBarcode(); // validation method
          
-         // find the index of the snack object the user wants to remove
-         int index = findSnackByBarcode(barcode); // helper method
+         // remove the snack object the user chose, if it exists
+         Snack removedSnack = snackList.remove(barcode);
          
-         if (index != -1) { // indicates the index exists
-         
-            // keep of a reference to the item being removed to notify the user
-            String removedSnackName = snackList[index].getName();
-            
-            // create snackListCopy[] arr to dynamically reflect the snackList length with the removed item
-            Snack[] snackListCopy = new Snack[snackList.length-1];
+         if (removedSnack != null) { // indicates the snack existed
+            reset();
             
-            // sets snackList[] arr to snackListCopy[] with length 0 IF there is only one snack
-            if (snackList.length == 1) {
-               snackList = snackListCopy;
-               reset();
-               
-               // print success message and end function
-               System.out.print("\n" + removedSnackName + " successfully removed!\n\n");
-               continueFunction = false; // exit while loop
-            }
-            else { // indicates that there are more than one snack in snackList[]
-               // loop through snackList[] to copy snacks into snackListCopy[]
-               for (int i = 0; i < snackList.length-1; i++) {
-                  // copy snack over IF "i" index is less than the index of the removed snack
-                  if (i < index) {
-                     snackListCopy[i] = snackList[i];
-                  }
-                  // copy over the next snack index (i+1) IF "i" index is equal
-                  // or greater than the index of the removed snack
-                  else {
-                     snackListCopy[i] = snackList[i+1];
-                  }
-               }
-               
-               // set snackList[] to snackListCopy[] to reflect the correct removal of the snack 
-               snackList = snackListCopy;
-               reset();
-               
-               // print out success message and end function
-               System.out.print("\n" + removedSnackName + " successfully removed!\n\n");
-               continueFunction = false; // exit while loop
-            }
+            // print success message and end function
+            System.out.print("\n" + removedSnack.getName() + " successfully removed!\n\n");
+            continueFunction = false; // exit while loop
          }
-         else { // indicates the index doesn't exist
+         else { // indicates the snack doesn't exist
          
             // print that no matching barcode was found, therefore nothing was removed
             System.out.println("Sorry, no snack with that matching barcode was found.");
@@ -285,12 +513,12 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void printItemsOverInput() throws Exception {
+   private void printItemsOverInput() throws Exception {
       boolean continueFunction = true; // dictates if this function should end early due to various circumstances
       boolean noItemFound = true; // dictates if any snack over the user inputted price is found
       
-      // exit back to main menu IF snackList[] length is 0
-      if (snackList.length == 0) {
+      // exit back to main menu IF snackList is empty
+      if (snackList.isEmpty()) {
          reset();
          
          // tell user no snacks are available and therefore nothing is viewable
@@ -314,24 +542,27 @@ public class VendingMachine {
             throw e;
          }
          
+         int userPriceCents = toThresholdCents(userPrice); // whole cents for exact comparisons
+         
          // print a user friendly title for the following snacks
-         System.out.println("Showing all items above " + formatPrice(userPrice) + ":\n");
+         printer.println("Showing all items above " + formatPrice(userPrice) + ":\n");
          
-         // loop through snackList[] and print items that have a price greater than userInput
-         for (int i = 0; i < snackList.length; i++) {
-            if (snackList[i].getPrice() > userPrice) {
-               System.out.println(snackList[i].toString() + "\n");
-               // keep track of if no items match
-               if (noItemFound) {
-                  noItemFound = false;
-               }
-            }
+         // look up the items that have a price greater than userInput and print them
+         Snack[] snacksOverPrice = snackList.findOverPrice(userPriceCents);
+         for (int i = 0; i < snacksOverPrice.length; i++) {
+            printer.printSnack(snacksOverPrice[i]);
+         }
+         
+         // keep track of if no items match
+         if (snacksOverPrice.length > 0) {
+            noItemFound = false;
          }
          
          // print "None" IF no items were printed in the previous for loop
          if (noItemFound) {
-            System.out.println("None\n");
+            printer.println("None\n");
          }
+         printer.flush();
          
          // end function
          reset();
@@ -339,26 +570,144 @@ public class VendingMachine {
       }
    }
    
+   /**
+      * printItemsInCalorieRange ~
+      * Displays all snacks whose calories fall within a user inputted range, fewest calories first
+      * @param No parameters
+      * @exception Passes exceptions thrown from within to runVendingMachine()
+      * @return No return value
+      */
+   
+   private void printItemsInCalorieRange() throws Exception {
+      // exit back to main menu IF snackList is empty
+      if (snackList.isEmpty()) {
+         reset();
+         System.out.println("\nNo snacks available to compare calories.\n");
+         return;
+      }
+      
+      // ask user for both ends of the range
+      System.out.println("Please enter the minimum calories. \nValid range is [0 - 2000].");
+      int minCalories = prevalidateCalories(); // validation method
+      System.out.println("Please enter the maximum calories. \nValid range is [0 - 2000].");
+      int maxCalories = prevalidateCalories(); // validation method
+      checkCalorieRange(minCalories, maxCalories);
+      
+      // print a user friendly title and the matching snacks from the calorie index
+      printer.println("Showing all items from " + minCalories + " to " + maxCalories + " calories:\n");
+      Snack[] snacksInRange = snackList.findCalorieRange(minCalories, maxCalories);
+      for (int i = 0; i < snacksInRange.length; i++) {
+         printer.printSnack(snacksInRange[i]);
+      }
+      
+      // print "None" IF no items were printed in the previous for loop
+      if (snacksInRange.length == 0) {
+         printer.println("None\n");
+      }
+      printer.flush();
+      reset();
+   }
+   
+   /**
+      * searchSnacksByName ~
+      * Displays snacks whose name contains user inputted text, ignoring case
+      * Names starting with the text are shown first, up to NAME_SEARCH_LIMIT snacks
+      * @param No parameters
+      * @exception Passes exceptions thrown from within to runVendingMachine()
+      * @return No return value
+      */
+   
+   private void searchSnacksByName() throws Exception {
+      // ask user for part of a name
+      System.out.println("Please enter part of a snack name");
+      String text = scnr.nextLine().trim();
+      reset();
+      if (text.isEmpty()) {
+         System.out.println("\nNothing to search for.\n");
+         return;
+      }
+      
+      // print a user friendly title and the matches from the name index
+      printer.println("Showing snacks matching \"" + text + "\":\n");
+      Snack[] matches = snackList.findByName(text, NAME_SEARCH_LIMIT);
+      for (int i = 0; i < matches.length; i++) {
+         printer.printSnack(matches[i]);
+      }
+      
+      // print "None" IF nothing matched
+      if (matches.length == 0) {
+         printer.println("None\n");
+      }
+      printer.flush();
+   }
+   
+   /**
+      * vendSnack ~
+      * Sells one unit of a snack chosen by barcode
+      * @param No parameters
+      * @exception Passes exceptions thrown from within to runVendingMachine()
+      * @return No return value
+      */
+   
+   private void vendSnack() throws Exception {
+      // exit back to main menu IF snackList is empty
+      if (snackList.isEmpty()) {
+         reset();
+         System.out.println("\nNo snacks available to vend.\n");
+         return;
+      }
+      
+      // print basic instruction for the user
+      System.out.println("Please enter the barcode of the snack you would like to buy");
+      
+      // prevalidate immediately for program efficiency
+      int barcode = prevalidateBarcode(); // validation method
+      
+      // reset before vending so a sold out snack still returns to the menu cleanly
+      reset();
+      
+      // take one unit from stock, throws IF the snack does not exist or is sold out
+      Snack vendedSnack = snackList.vend(barcode);
+      System.out.print("\nEnjoy your " + vendedSnack.getName() + "! " + snackList.getStock(barcode) + " left.\n\n");
+   }
+   
    /**
       * printAllSnacks ~
-      * Displays all snacks in the current instantiation of snackList[]
+      * Displays the snacks in the current instantiation of snackList one page at a time
+      * Each page is read from where the previous one ended, so the first screen appears right away
       * @param No parameters
-      * @exception No exceptions
+      * @exception Exception: never in practice, every token comes from the page before
       * @return No return value
       */
    
-   private static void printAllSnacks() {
+   private void printAllSnacks() throws Exception {
       // print appropriate message if there are no snacks
-      if (snackList.length == 0) {
+      if (snackList.isEmpty()) {
          System.out.println("\nSorry, no snacks available. Please add a snack.\n");
       } else {
          
          // print a user friendly title for the following snacks
-         System.out.println("\nCurrent snacks available: \n");
-         for (int i = 0; i < snackList.length; i++) {
-            System.out.println(snackList[i].toString() + "\n");
+         printer.println("\nCurrent snacks available: \n");
+         long token = SnackPage.FIRST;
+         boolean showNextPage = true;
+         while (showNextPage) {
+            SnackPage page = snackList.page(token, LIST_PAGE_SIZE);
+            Snack[] snacks = page.getSnacks();
+            for (int i = 0; i < snacks.length; i++) {
+               printer.printSnack(snacks[i]);
+            }
+            printer.flush();
+            token = page.getNextToken();
+            
+            // wait for the user before printing the next page
+            showNextPage = false;
+            if (page.hasMore()) {
+               System.out.println("Press Enter for more snacks, or type anything else to stop.");
+               showNextPage = scnr.nextLine().isEmpty();
+            }
          }
-         System.out.println(); // extra user friendly formatting
+         printer.println(); // extra user friendly formatting
+         printer.flush();
       }
       reset(); // reset prior to break in runVendingMachine()
    }
@@ -371,50 +720,127 @@ public class VendingMachine {
    
    /**
       * addSeedSnacks ~
-      * Adds three premade snacks to snackList[]
+      * Adds three premade snacks to snackList
       * First performs barcode check
       * @param No parameters
       * @exception No exceptions
       * @return No return value
       */
    
-   private static void addSeedSnacks() throws Exception {
-      boolean seedInfoExists = false; // dictates if a matching barcode already exists
-      
-      // loop and search snackList[] for barcodes 10001, 10002, and 10003
-      for (int i = 0; i < snackList.length; i++) {
-         if (snackList[i].getBarcode() == 10001) {
-            seedInfoExists = true;
-         }
-         if (snackList[i].getBarcode() == 10002) {
-            seedInfoExists = true;
-         }
-         if (snackList[i].getBarcode() == 10003) {
-            seedInfoExists = true;
-         }
-      }
-      
-      // print that the program is unable to seed IF seedInfoExists is true
-      if (seedInfoExists) {
+   private void addSeedSnacks() throws Exception {
+      // print that the program is unable to seed IF a seeded barcode already exists
+      if (!seedSnacks(snackList)) {
          System.out.println("Unable to seed snacks. One or more seeded barcodes exist.\n");
       } 
       else {
-         // create and add three premade snacks to snackList[]
-         Snack apple = new Snack(10001, 100, 1.10, "Apple");
-         addToSnackArr(apple);
-         
-         Snack orange = new Snack(10002, 100, 2.00, "Orange");
-         addToSnackArr(orange);
-         
-         Snack chocolateBar = new Snack(10003, 100, 3.55, "Chocolate Bar");
-         addToSnackArr(chocolateBar);
-         
          // print success message
          System.out.println("Successfully injected seed snacks.\n");
       }
       reset(); // reset prior to break
    }
    
+   /**
+      * importSnacks ~
+      * Bulk loads snacks from a CSV file of barcode,calories,price,name rows
+      * Prints how many snacks were imported and why any rows were rejected
+      * @param No parameters
+      * @exception Passes exceptions thrown while reading the file to runVendingMachine()
+      * @return No return value
+      */
+   
+   private void importSnacks() throws Exception {
+      // ask user for the path of the CSV file
+      System.out.println("Please enter the path of the CSV file");
+      String path = scnr.nextLine().trim();
+      
+      // import the file and print the reject report
+      SnackCsvImporter.Result result = SnackCsvImporter.importFile(Paths.get(path), snackList);
+      result.print(printer);
+      printer.println();
+      printer.flush();
+      reset(); // reset prior to break
+   }
+   
+   /**
+      * restockSnack ~
+      * Adds units to the stock of a snack chosen by barcode
+      * @param No parameters
+      * @exception Passes exceptions thrown from within to runVendingMachine()
+      * @return No return value
+      */
+   
+   private void restockSnack() throws Exception {
+      // ask user for the barcode and the number of units
+      System.out.println("Please enter the barcode of the snack to restock");
+      int barcode = prevalidateBarcode(); // validation method
+      System.out.println("Please enter the number of units to add");
+      int quantity;
+      try {
+         quantity = scnr.nextInt();
+      }
+      catch (Exception mismatch) {
+         System.out.print("Program is expecting a positive integer.");
+         throw mismatch;
+      }
+      
+      reset(); // reset prior to break
+      int stock = snackList.restock(barcode, quantity);
+      System.out.print("\nRestocked! " + stock + " in stock.\n\n");
+   }
+   
+   /**
+      * printStats ~
+      * Prints the operation counts, latencies and error counts gathered by SnackStats
+      * @param No parameters
+      * @return No return value
+      */
+   
+   private void printStats() {
+      printer.println();
+      SnackStats.get().print(printer);
+      printer.println();
+      printer.flush();
+      reset(); // reset prior to break
+   }
+   
+   /**
+      * printReport ~
+      * Prints the snack count, price and calorie totals and the cheapest and most expensive snacks
+      * @param No parameters
+      * @return No return value
+      */
+   
+   private void printReport() {
+      printer.println();
+      snackList.report().print(printer);
+      printer.println();
+      printer.flush();
+      reset(); // reset prior to break
+   }
+   
+   /**
+      * seedSnacks ~
+      * Adds three premade snacks to an inventory
+      * Shared by the seed menu command and BatchRunner
+      * @param SnackInventory inventory
+      * the inventory to seed
+      * @exception Passes exceptions thrown from within to the parent method
+      * @return boolean false if one of the seeded barcodes already exists
+      */
+   
+   static boolean seedSnacks(SnackInventory inventory) throws Exception {
+      // check inventory for barcodes 10001, 10002, and 10003
+      if (inventory.contains(10001) || inventory.contains(10002) || inventory.contains(10003)) {
+         return false;
+      }
+      
+      // create and add three premade snacks to inventory
+      inventory.add(new Snack(10001, 100, 1.10, "Apple"));
+      inventory.add(new Snack(10002, 100, 2.00, "Orange"));
+      inventory.add(new Snack(10003, 100, 3.55, "Chocolate Bar"));
+      return true;
+   }
+   
    /**
       * catchDefaultCase ~
       * Catches invalid user inputs
@@ -425,7 +851,7 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void catchDefaultCase() {
+   private void catchDefaultCase() {
       // implement try/catch block to catch invallid userInput types and throw to runVendingMachine()
       try {
          // print error message for user
@@ -475,63 +901,39 @@ public class VendingMachine {
       }
    }
    
-   /**
-      * findSnackByBarcode ~
-      * Finds a snack object in snackList[] with matching barcode param
-      * @param int barcode
-      * The int representing the barcode of the desired snack within snackList[]
-      * @return int
-      * An int representing the index of the desired snack object within snackList[]
-      */
-      
-   private static int findSnackByBarcode(int barcode) {
-      // loop through snackList[] and return the snack that matches the barcode
-      for (int i = 0; i < snackList.length; i++) {
-         if (barcode == snackList[i].getBarcode()) {
-            return i;
-         }
-      }
-      // return -1 as an indication that no item was found
-      return -1; // -1 to represent the index does not exist
-   }
-   
    /**
       * displayCurrentBarcodes ~
-      * Displays all the barcodes currently in snackList[]
+      * Displays the first page of barcodes currently in snackList
       * @param No parameters
+      * @exception Exception: never in practice, the first page token is always valid
       * @return No return value
       */
    
-   private static void displayCurrentBarcodes() {
-      // loop through snackList[] and print all barcodes
-      for (int i = 0; i < snackList.length; i++) {
-         System.out.println(snackList[i].getBarcode());
+   private void displayCurrentBarcodes() throws Exception {
+      // print the barcodes of the first page and how many were left out
+      Snack[] snacks = snackList.page(SnackPage.FIRST, LIST_PAGE_SIZE).getSnacks();
+      for (int i = 0; i < snacks.length; i++) {
+         printer.println(snacks[i].getBarcode());
       }
+      int hidden = snackList.size() - snacks.length;
+      if (hidden > 0) {
+         printer.println("... and " + hidden + " more");
+      }
+      printer.flush();
    }
    
    /**
       * addToSnackArr ~
-      * Adds newSnack to snackList[]
+      * Adds newSnack to snackList
       * @param Snack newSnack
-      * The int representing the barcode of the desired snack within snackList[]
+      * The snack to append to snackList
+      * @exception Passes SnackException thrown for duplicate barcodes to the parent method
       * @return No return value
       */
    
-   private static void addToSnackArr(Snack newSnack) {
-      // initialize newList arr and
-      // set it to be a greater length than the current snackList
-      Snack[] newList = new Snack[snackList.length+1];
-      
-      // copy items from current snackList to the newList arr
-      for (int j = 0; j < snackList.length; j++) {
-         newList[j] = snackList[j];
-      }
-      
-      // add the newly added item
-      newList[snackList.length] = newSnack;
-      
-      // let the original list reflect the new list
-      snackList = newList;
+   private void addToSnackArr(Snack newSnack) throws Exception {
+      // append to the inventory, which grows its storage only when full
+      snackList.add(newSnack);
    }
    
    /**
@@ -541,30 +943,43 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void reset() {
+   private void reset() {
       isMenuVisible = false; // allows runVendingMachine() to choose the printMenu() path
       userInput = "init"; // resets any user input
    }
    
+   /**
+      * toThresholdCents ~
+      * Converts a user inputted price to whole cents for exact comparisons
+      * Rounds down so that a snack costs more than the price exactly when it costs more than the cents
+      * @param double price
+      * the user inputted price
+      * @return int largest number of cents not above the price
+      */
+   
+   static int toThresholdCents(double price) {
+      // round first so values like 2.3 (stored as 2.2999...) map to 230
+      int cents = (int) Math.round(price * 100);
+      
+      // step down one cent IF rounding went above the price (ex: 4.456 -> 446 -> 445)
+      if (cents / 100.0 > price) {
+         cents--;
+      }
+      return cents;
+   }
+   
    /**
       * formatPrice ~
-      * Private method for formatting price using the DecimalFormat class
-      * Utilizes private helper method: formatPrice
+      * Private method for formatting a user inputted price
+      * Utilizes helper methods: toThresholdCents and SnackPrinter.formatPrice
       * @param double price
       * actual value of price to be rounded down and displayed nicely
       * @return String of formatted price
       */
    
-   private static String formatPrice(double price) {
-      // set the desired return format
-      DecimalFormat formatter = new DecimalFormat("$#.00");
-      
+   static String formatPrice(double price) {
       // make sure digits past the hundreths spot doesn't round the price up by one penny
-      formatter.setRoundingMode(RoundingMode.DOWN);
-      
-      // declare output and return the value
-      String output = formatter.format(price);
-      return output;
+      return SnackPrinter.formatPrice(toThresholdCents(price));
    }
    
    
@@ -578,11 +993,11 @@ public class VendingMachine {
       * Prevalidates user inputted barcode
       * @param No parameters
       * @exception Throws Exception mismatch to parent method
-      * @exception Throws SnackException barcodeError to parent method
+      * @exception Throws the shared SnackError.BARCODE_RANGE exception to parent method
       * @return int representing validated barcode
       */
       
-   private static int prevalidateBarcode() throws Exception {
+   private int prevalidateBarcode() throws Exception {
       int barcode; // declare new barcode
       
       // try to set barcode to next integer from user
@@ -597,9 +1012,8 @@ public class VendingMachine {
       }
       
       // throw error IF out of range
-      if (barcode > 99999 || barcode < 10001) {
-         SnackException barcodeError = new SnackException("Error. Valid barcode range is [10001 - 99999]");
-         throw barcodeError; 
+      if (Snack.checkBarcode(barcode) != null) {
+         throw SnackError.BARCODE_RANGE.exception();
       }
       
       // if no error thrown, return validated barcode
@@ -608,21 +1022,16 @@ public class VendingMachine {
    
    /**
       * isBarcodeDuplicate ~
-      * Indicates if a user inputted barcode already exists within snackList[]
+      * Indicates if a user inputted barcode already exists within snackList
       * @param int barcode
       * The barcode representing the user input of the new snack being added
       * @return boolean
       * Returns true if barcode is a duplicate and false if it's not
       */
    
-   private static boolean isBarcodeDuplicate(int barcode) {
-      // loop through snackList and check for barcode matches
-      for (int i = 0; i < snackList.length; i++) {
-         if (barcode == snackList[i].getBarcode()) {
-            return true; // match found
-         }
-      }
-      return false; // match not found
+   private boolean isBarcodeDuplicate(int barcode) {
+      // check the barcode slot directly
+      return snackList.contains(barcode);
    }
    
    /**
@@ -630,11 +1039,11 @@ public class VendingMachine {
       * Prevalidates user inputted calories
       * @param No parameters
       * @exception Throws Exception mismatch to parent method
-      * @exception Throws SnackException calorieError to parent method
+      * @exception Throws the shared SnackError.CALORIE_RANGE exception to parent method
       * @return int representing validated calories
       */
    
-   private static int prevalidateCalories() throws Exception {
+   private int prevalidateCalories() throws Exception {
       int calories; // declare new calories
       
       // try to set calories to next integer from user
@@ -648,9 +1057,8 @@ public class VendingMachine {
       }
    
       // throw exception IF out of range
-      if (calories < 0 || calories > 2000) {
-         SnackException calorieError = new SnackException("Error. Valid calorie range is [0, 2000]");
-         throw calorieError; 
+      if (Snack.checkCalories(calories) != null) {
+         throw SnackError.CALORIE_RANGE.exception();
       }
       
       // if no error thrown, return validated calories
@@ -662,11 +1070,11 @@ public class VendingMachine {
       * Prevalidates user inputted price
       * @param No parameters
       * @exception Throws Exception mismatch to parent method
-      * @exception Throws SnackException priceError to parent method
+      * @exception Throws the shared SnackError.PRICE_RANGE exception to parent method
       * @return double representing validated price
       */
    
-   private static double prevalidatePrice() throws Exception {
+   private double prevalidatePrice() throws Exception {
       double price; // declare new price
       
       // try to set price to next double from user
@@ -681,9 +1089,8 @@ public class VendingMachine {
       }
       
       // throw exception IF out of range
-      if (price < 1.00 || price > 5.00) {
-         SnackException priceError = new SnackException("Error. Valid price range is [1.00, 5.00]");
-         throw priceError; 
+      if (Snack.checkPrice(price) != null) {
+         throw SnackError.PRICE_RANGE.exception();
       }
       
       // if no error thrown, return validated price
@@ -695,11 +1102,11 @@ public class VendingMachine {
       * Prevalidates user inputted name
       * @param No parameters
       * @exception Throws Exception mismatch to parent method
-      * @exception Throws SnackException nameError to parent method
+      * @exception Throws the shared SnackError.NAME_LENGTH exception to parent method
       * @return String representing validated name
       */
    
-   private static String prevalidateName() throws Exception {
+   private String prevalidateName() throws Exception {
       String name; // declare new name
       scnr = new Scanner(System.in); // reset scnr
       
@@ -718,8 +1125,7 @@ public class VendingMachine {
       
       // throw exception IF length is below 2 characters
       if (trimmedName.length() <= 1) {
-         SnackException nameError = new SnackException("Error. Name must be two or more characters.");
-         throw nameError; 
+         throw SnackError.NAME_LENGTH.exception();
       }
       
       // if no error thrown, return validated name
@@ -731,11 +1137,11 @@ public class VendingMachine {
       * Validates user inputted price for price check
       * @param No parameters
       * @exception Throws Exception mismatch to parent method
-      * @exception Throws SnackException userPriceError to parent method
+      * @exception Throws the shared SnackError.PRICE_QUERY_RANGE exception to parent method
       * @return double representing validated price
       */
    
-   private static double validatePriceComparison () throws Exception {
+   private double validatePriceComparison () throws Exception {
       double userPrice; // declare new userPrice
       
       // try to set userPrice to next double from user
@@ -749,16 +1155,51 @@ public class VendingMachine {
          throw mismatch;
       }
       
+      // if no error thrown, return validated price
+      return checkPriceComparison(userPrice);
+   }
+   
+   /**
+      * checkPriceComparison ~
+      * Validates a price used for price check
+      * Shared by validatePriceComparison and BatchRunner
+      * @param double userPrice
+      * the price to validate
+      * @exception Throws the shared SnackError.PRICE_QUERY_RANGE exception to parent method
+      * @return double representing validated price
+      */
+   
+   static double checkPriceComparison(double userPrice) throws SnackException {
       // throw exception IF out of range
       if (userPrice < 0 || userPrice > 5.00) {
-         SnackException userPriceError = new SnackException("Error: Out of range. Snack prices only range from 1.00 to 5.00.");
-         throw userPriceError; 
+         throw SnackError.PRICE_QUERY_RANGE.exception();
       }
-      
-      // if no error thrown, return validated price
       return userPrice;
    }
    
+   /**
+      * checkCalorieRange ~
+      * Validates the ends of a calorie range query
+      * Shared by printItemsInCalorieRange and BatchRunner
+      * @param int minCalories, int maxCalories
+      * the inclusive calorie range
+      * @exception Throws the shared SnackError exception of the first problem to parent method
+      * @return No return value
+      */
+   
+   static void checkCalorieRange(int minCalories, int maxCalories) throws SnackException {
+      SnackError error = Snack.checkCalories(minCalories);
+      if (error == null) {
+         error = Snack.checkCalories(maxCalories);
+      }
+      if (error == null && minCalories > maxCalories) {
+         error = SnackError.CALORIE_QUERY_ORDER;
+      }
+      if (error != null) {
+         throw error.exception();
+      }
+   }
+   
    
    
                /*   Just For Fun   */
@@ -773,7 +1214,7 @@ public class VendingMachine {
       * @return No return value
       */
       
-   private static void triggerSecret() throws Exception {
+   private void triggerSecret() throws Exception {
       System.out.println("\n\n\n\n\nSecret Found\n\n\n\n\n");
       Thread.sleep(1500);
       secretMenuToggled = true;
@@ -787,7 +1228,7 @@ public class VendingMachine {
       * @return No return value
       */
    
-   private static void activateSecretMenu() {
+   private void activateSecretMenu() {
       scnr = new Scanner(System.in);
       System.out.println("`~~Secret Menu~~`\n");
       System.out.println("1. Meme 1 url");
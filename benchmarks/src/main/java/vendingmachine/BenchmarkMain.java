@@ -0,0 +1,38 @@
+/**
+
+   * BenchmarkMain --- runs the JMH benchmarks with the gc profiler always on
+   * Takes the usual JMH command line, so "-p size=1000" or a benchmark name filter still work
+   * @author Chuckee Kondo (Chaz)
+   */
+
+package vendingmachine;
+
+import org.openjdk.jmh.Main; // handles help and listing options
+import org.openjdk.jmh.profile.GCProfiler; // reports the allocation rate of each benchmark
+import org.openjdk.jmh.runner.Runner; // runs the selected benchmarks
+import org.openjdk.jmh.runner.options.CommandLineOptions; // parses the JMH command line
+import org.openjdk.jmh.runner.options.OptionsBuilder; // adds the gc profiler to the parsed options
+
+public class BenchmarkMain {
+
+   /** Driver Class -
+      * Runs the benchmarks selected on the command line
+      * @params String[] args
+      * JMH command line options
+      * @exception throws Exception when the options are invalid or a benchmark fails
+      * @return No return value
+      */
+
+   public static void main(String[] args) throws Exception {
+      CommandLineOptions options = new CommandLineOptions(args);
+
+      // let JMH answer options that do not run anything
+      if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+            || options.shouldListProfilers() || options.shouldListResultFormats()) {
+         Main.main(args);
+         return;
+      }
+
+      new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+   }
+}
@@ -0,0 +1,150 @@
+/**
+
+   * InventoryBenchmark --- measures the inventory operations behind the menu
+   * Each benchmark names the VendingMachine method it stands for
+   * Inventories hold from 10 snacks up to 89999, every barcode in [10001 - 99999]
+   * and keep them as Snack objects or in the primitive columns of a SnackTable
+   * @author Chuckee Kondo (Chaz)
+   */
+
+package vendingmachine;
+
+import java.io.OutputStream; // discards rendered listings
+import java.util.Random; // picks the barcodes to look up
+import java.util.concurrent.TimeUnit; // unit of the reported scores
+
+import org.openjdk.jmh.annotations.Benchmark; // marks a measured method
+import org.openjdk.jmh.annotations.BenchmarkMode; // reports throughput and latency
+import org.openjdk.jmh.annotations.Fork; // runs each benchmark in a fresh JVM
+import org.openjdk.jmh.annotations.Measurement; // measured iterations
+import org.openjdk.jmh.annotations.Mode; // throughput and sampled latency
+import org.openjdk.jmh.annotations.OutputTimeUnit; // unit of the reported scores
+import org.openjdk.jmh.annotations.Param; // inventory sizes
+import org.openjdk.jmh.annotations.Scope; // one inventory per benchmark thread
+import org.openjdk.jmh.annotations.Setup; // fills the inventory
+import org.openjdk.jmh.annotations.State; // holds the inventory between calls
+import org.openjdk.jmh.annotations.Warmup; // warmup iterations
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+
+   private static final int PROBE_COUNT = 1024; // barcodes looked up in turn, a power of two
+   private static final int QUERY_PRICE_CENTS = 300; // price for the price queries, about half the snacks cost more
+
+   @Param({"10", "100", "1000", "10000", "89999"})
+   public int size; // number of snacks in the inventory
+
+   @Param({"objects", "columns"})
+   public String storage; // how the inventory keeps its snacks
+
+   private SnackInventory inventory; // the inventory under test
+   private Snack[] snacks; // every snack in the inventory
+   private int[] probes; // random barcodes, some taken and some free
+   private SnackPrinter printer; // renders listings into nothing
+   private int next; // position of the next snack or probe
+
+   /**
+      * setUp ~
+      * Fills the inventory with snacks spread over the barcode range and every price
+      * @param No parameters
+      * @exception Exception: never, the snacks are valid
+      * @return No return value
+      */
+
+   @Setup
+   public void setUp() throws Exception {
+      this.inventory = this.storage.equals("columns") ? SnackInventory.columnar(this.size) : new SnackInventory(this.size);
+      this.snacks = new Snack[this.size];
+      int barcodeCount = BarcodeIndex.MAX_BARCODE - BarcodeIndex.MIN_BARCODE + 1;
+      for (int i = 0; i < this.size; i++) {
+         int barcode = BarcodeIndex.MIN_BARCODE + (int) ((long) i * barcodeCount / this.size);
+         this.snacks[i] = new Snack(barcode, i % 2001, 100 + i % 401, "Snack " + i);
+         this.inventory.add(this.snacks[i]);
+      }
+
+      Random random = new Random(42);
+      this.probes = new int[PROBE_COUNT];
+      for (int i = 0; i < PROBE_COUNT; i++) {
+         this.probes[i] = BarcodeIndex.MIN_BARCODE + random.nextInt(barcodeCount);
+      }
+
+      this.printer = new SnackPrinter(OutputStream.nullOutputStream());
+   }
+
+   /**
+      * removeThenAdd ~
+      * deleteSnackByBarcode and addToSnackArr together: removes a snack and adds it back, so the inventory keeps its size
+      * Add is only measured this way, a single add is too short to free its barcode in a per-invocation setup
+      * without the setup and timer overhead swamping the result
+      * @param No parameters
+      * @exception SnackException: never, the snack was just removed
+      * @return Snack that was added back
+      */
+
+   @Benchmark
+   public Snack removeThenAdd() throws SnackException {
+      Snack snack = this.snacks[this.next++ % this.size];
+      this.inventory.remove(snack.getBarcode());
+      this.inventory.add(snack);
+      return snack;
+   }
+
+   /**
+      * get ~
+      * findSnackByBarcode: looks up a random barcode
+      * @param No parameters
+      * @return Snack with the barcode, or null
+      */
+
+   @Benchmark
+   public Snack get() {
+      return this.inventory.get(this.probes[this.next++ & (PROBE_COUNT - 1)]);
+   }
+
+   /**
+      * contains ~
+      * isBarcodeDuplicate: checks if a random barcode is taken
+      * @param No parameters
+      * @return boolean true if the barcode is taken
+      */
+
+   @Benchmark
+   public boolean contains() {
+      return this.inventory.contains(this.probes[this.next++ & (PROBE_COUNT - 1)]);
+   }
+
+   /**
+      * findOverPrice ~
+      * The query behind printItemsOverInput, without rendering
+      * @param No parameters
+      * @return Snack[] of snacks over the price
+      */
+
+   @Benchmark
+   public Snack[] findOverPrice() {
+      return this.inventory.findOverPrice(QUERY_PRICE_CENTS);
+   }
+
+   /**
+      * printItemsOverInput ~
+      * printItemsOverInput: queries the snacks over a price and renders them the way the menu does
+      * @param No parameters
+      * @return int number of snacks rendered
+      */
+
+   @Benchmark
+   public int printItemsOverInput() {
+      Snack[] snacksOverPrice = this.inventory.findOverPrice(QUERY_PRICE_CENTS);
+      this.printer.println("Showing all items above " + SnackPrinter.formatPrice(QUERY_PRICE_CENTS) + ":\n");
+      for (int i = 0; i < snacksOverPrice.length; i++) {
+         this.printer.printSnack(snacksOverPrice[i]);
+      }
+      this.printer.flush();
+      return snacksOverPrice.length;
+   }
+}
@@ -0,0 +1,70 @@
+/**
+
+   * SnackFormatBenchmark --- measures how snacks and prices are turned into text
+   * @author Chuckee Kondo (Chaz)
+   */
+
+package vendingmachine;
+
+import java.util.concurrent.TimeUnit; // unit of the reported scores
+
+import org.openjdk.jmh.annotations.Benchmark; // marks a measured method
+import org.openjdk.jmh.annotations.BenchmarkMode; // reports throughput and latency
+import org.openjdk.jmh.annotations.Fork; // runs each benchmark in a fresh JVM
+import org.openjdk.jmh.annotations.Measurement; // measured iterations
+import org.openjdk.jmh.annotations.Mode; // throughput and sampled latency
+import org.openjdk.jmh.annotations.OutputTimeUnit; // unit of the reported scores
+import org.openjdk.jmh.annotations.Scope; // one snack per benchmark thread
+import org.openjdk.jmh.annotations.Setup; // creates the snack
+import org.openjdk.jmh.annotations.State; // holds the snack between calls
+import org.openjdk.jmh.annotations.Warmup; // warmup iterations
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnackFormatBenchmark {
+
+   private Snack snack; // the snack to render
+   private double userPrice; // a user inputted price with more than two decimals
+
+   /**
+      * setUp ~
+      * Creates a typical snack and user price
+      * @param No parameters
+      * @exception Exception: never, the snack is valid
+      * @return No return value
+      */
+
+   @Setup
+   public void setUp() throws Exception {
+      this.snack = new Snack(10003, 100, 3.55, "Chocolate Bar");
+      this.userPrice = 4.456;
+   }
+
+   /**
+      * snackToString ~
+      * Snack.toString, used by the add confirmation and every listing before SnackPrinter
+      * @param No parameters
+      * @return String rendering of the snack
+      */
+
+   @Benchmark
+   public String snackToString() {
+      return this.snack.toString();
+   }
+
+   /**
+      * formatPrice ~
+      * VendingMachine.formatPrice, used for the title of price queries
+      * @param No parameters
+      * @return String formatted price
+      */
+
+   @Benchmark
+   public String formatPrice() {
+      return VendingMachine.formatPrice(this.userPrice);
+   }
+}
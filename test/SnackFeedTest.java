@@ -0,0 +1,422 @@
+/**
+
+   * SnackFeedTest --- checks that a SnackFeed never lets its subscribers hold up the inventory
+   * Subscribers that never request or never return from onNext must not slow vends and writers down,
+   * they are failed instead, and a feed nobody watches closes itself
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import static org.junit.jupiter.api.Assertions.assertEquals; // compares delivered changes
+import static org.junit.jupiter.api.Assertions.assertFalse; // checks a closed feed refuses subscribers
+import static org.junit.jupiter.api.Assertions.assertTrue; // checks timings and outcomes
+
+import java.util.ArrayList; // collects the worker threads and delivered changes
+import java.util.List; // the item type of the stream
+import java.util.concurrent.CountDownLatch; // waits for the end of a stream and holds a subscriber stuck
+import java.util.concurrent.Flow; // the subscribers under test
+import java.util.concurrent.TimeUnit; // bounds every wait
+import java.util.concurrent.atomic.AtomicReference; // first failure of any thread
+
+import org.junit.jupiter.api.Test; // marks a test
+import org.junit.jupiter.api.Timeout; // fails a test that hangs
+
+public class SnackFeedTest {
+
+   private static final int PRODUCERS = 4; // threads changing the inventory at once
+   private static final int SNACKS_PER_PRODUCER = 50; // snacks each producer vends, restocks and replaces
+   private static final int STEPS_PER_PRODUCER = 50000; // changes each producer makes
+   private static final long MAX_PRODUCE_MILLIS = 30000; // longest the producers may take, far more than they need
+
+   /**
+      * Collector --- a subscriber that asks for everything and keeps it, or one that stops reading
+      */
+
+   private static final class Collector implements Flow.Subscriber<List<SnackChange>> {
+
+      private final long initialRequest; // batches requested on subscribe, 0 never reads
+      private final CountDownLatch stuck; // onNext waits on it before returning, null returns at once
+      private final List<SnackChange> changes = new ArrayList<SnackChange>(); // delivered changes, guarded by this
+      private final CountDownLatch ended = new CountDownLatch(1); // released by onError or onComplete
+      private volatile Flow.Subscription subscription; // set by onSubscribe
+      private volatile Throwable error; // set by onError
+
+      /**
+         * Collector Constructor ~
+         * Initializes a collector
+         * @params long initialRequest, CountDownLatch stuck
+         * the batches to request on subscribe and a latch that holds onNext, or null
+         * @return No return value
+         */
+
+      private Collector(long initialRequest, CountDownLatch stuck) {
+         this.initialRequest = initialRequest;
+         this.stuck = stuck;
+      }
+
+      /**
+         * onSubscribe ~
+         * Keeps the subscription and makes the initial request, if any
+         * @param Flow.Subscription subscription
+         * the subscription to the feed
+         * @return No return value
+         */
+
+      public void onSubscribe(Flow.Subscription subscription) {
+         this.subscription = subscription;
+         if (this.initialRequest > 0) {
+            subscription.request(this.initialRequest);
+         }
+      }
+
+      /**
+         * onNext ~
+         * Keeps a batch, then waits on the stuck latch if there is one
+         * @param List<SnackChange> batch
+         * the delivered changes
+         * @return No return value
+         */
+
+      public void onNext(List<SnackChange> batch) {
+         synchronized (this) {
+            this.changes.addAll(batch);
+         }
+         if (this.stuck != null) {
+            try {
+               this.stuck.await();
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      }
+
+      /**
+         * onError ~
+         * Keeps the error and ends the stream
+         * @param Throwable error
+         * the failure of the feed
+         * @return No return value
+         */
+
+      public void onError(Throwable error) {
+         this.error = error;
+         this.ended.countDown();
+      }
+
+      /**
+         * onComplete ~
+         * Ends the stream
+         * @param No parameters
+         * @return No return value
+         */
+
+      public void onComplete() {
+         this.ended.countDown();
+      }
+
+      /**
+         * getChanges ~
+         * Copies the changes delivered so far
+         * @param No parameters
+         * @return List<SnackChange> in delivery order
+         */
+
+      private synchronized List<SnackChange> getChanges() {
+         return new ArrayList<SnackChange>(this.changes);
+      }
+   }
+
+   /**
+      * subscribersThatNeverReadDoNotBlockProducers ~
+      * Changes the inventory from many threads while one subscriber never requests and another never returns,
+      * then checks the producers finished quickly and both subscribers were failed
+      * @param No parameters
+      * @exception Exception: when a producer fails or is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(120)
+   public void subscribersThatNeverReadDoNotBlockProducers() throws Exception {
+      VendingMachine machine = new VendingMachine("feed", new SnackInventory());
+      SnackInventory inventory = machine.getInventory();
+      CountDownLatch release = new CountDownLatch(1);
+      Collector neverRequests = new Collector(0, null);
+      Collector neverReturns = new Collector(1, release);
+      machine.watch(neverRequests);
+      machine.watch(neverReturns);
+
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      List<Thread> producers = new ArrayList<Thread>();
+      long start = System.nanoTime();
+      for (int p = 0; p < PRODUCERS; p++) {
+         int firstBarcode = 10001 + p * SNACKS_PER_PRODUCER;
+         Thread thread = new Thread(() -> {
+            try {
+               produce(inventory, firstBarcode);
+            }
+            catch (Throwable e) {
+               failure.compareAndSet(null, e);
+            }
+         });
+         thread.start();
+         producers.add(thread);
+      }
+      for (Thread thread : producers) {
+         thread.join();
+      }
+      long elapsedMillis = (System.nanoTime() - start) / 1000000;
+      if (failure.get() != null) {
+         throw new AssertionError("A producer failed.", failure.get());
+      }
+      assertTrue(elapsedMillis <= MAX_PRODUCE_MILLIS, "producers took " + elapsedMillis + " ms with stuck subscribers");
+
+      assertTrue(neverRequests.ended.await(30, TimeUnit.SECONDS), "subscriber that never requests was not failed");
+      assertTrue(neverRequests.error instanceof SnackException, "subscriber that never requests got " + neverRequests.error);
+      assertEquals(0, neverRequests.getChanges().size(), "changes delivered without a request");
+      release.countDown();
+      assertTrue(neverReturns.ended.await(30, TimeUnit.SECONDS), "subscriber stuck in onNext was not failed");
+      assertTrue(neverReturns.error instanceof SnackException, "subscriber stuck in onNext got " + neverReturns.error);
+   }
+
+   /**
+      * lastSubscriberLeavingClosesTheFeed ~
+      * Cancels the only subscriber and checks the feed closed, then that watching again opens a working feed
+      * @param No parameters
+      * @exception Exception: when the inventory rejects a change or a wait is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(60)
+   public void lastSubscriberLeavingClosesTheFeed() throws Exception {
+      SnackInventory inventory = new SnackInventory();
+      SnackFeed feed = SnackFeed.open(inventory);
+      Collector first = new Collector(Long.MAX_VALUE, null);
+      assertTrue(feed.trySubscribe(first), "open feed refused a subscriber");
+      assertEquals(1, feed.getSubscriberCount(), "subscribers");
+      first.subscription.cancel();
+      assertTrue(feed.isClosed(), "feed stayed open without subscribers");
+      assertFalse(feed.trySubscribe(new Collector(Long.MAX_VALUE, null)), "closed feed took a subscriber");
+
+      VendingMachine machine = new VendingMachine("feed", inventory);
+      Collector second = new Collector(Long.MAX_VALUE, null);
+      machine.watch(second);
+      inventory.add(new Snack(10001, 100, 1.50, "Chips"));
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (second.getChanges().isEmpty() && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      List<SnackChange> changes = second.getChanges();
+      assertEquals(1, changes.size(), "changes after watching again");
+      assertEquals(1, changes.get(0).getSequence(), "sequence of the first change");
+      assertEquals(SnackChange.Kind.ADDED, changes.get(0).getKind(), "kind of the first change");
+      second.subscription.cancel();
+   }
+
+   /**
+      * updatesNeverFollowTheRemovalOfTheirSnack ~
+      * Vends and restocks snacks while they are removed and added again, then checks every delivered change
+      * is numbered without gaps and no UPDATED change of a snack arrives between its REMOVED and its next ADDED
+      * @param No parameters
+      * @exception Exception: when a producer fails or a wait is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(120)
+   public void updatesNeverFollowTheRemovalOfTheirSnack() throws Exception {
+      VendingMachine machine = new VendingMachine("feed", new SnackInventory());
+      SnackInventory inventory = machine.getInventory();
+      Collector collector = new Collector(Long.MAX_VALUE, null);
+      machine.watch(collector);
+
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      List<Thread> producers = new ArrayList<Thread>();
+      for (int p = 0; p < PRODUCERS; p++) {
+         // pairs of producers share their snacks, so vends race the removals of the other one
+         int firstBarcode = 10001 + (p / 2) * SNACKS_PER_PRODUCER;
+         Thread thread = new Thread(() -> {
+            try {
+               produce(inventory, firstBarcode);
+            }
+            catch (Throwable e) {
+               failure.compareAndSet(null, e);
+            }
+         });
+         thread.start();
+         producers.add(thread);
+      }
+      for (Thread thread : producers) {
+         thread.join();
+      }
+      if (failure.get() != null) {
+         throw new AssertionError("A producer failed.", failure.get());
+      }
+      inventory.add(new Snack(99999, 1, 1.00, "Last"));
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+      List<SnackChange> changes = collector.getChanges();
+      while (!endsWith(changes, 99999) && System.nanoTime() < deadline && collector.error == null) {
+         Thread.sleep(10);
+         changes = collector.getChanges();
+      }
+      assertTrue(collector.error == null, "subscriber failed: " + collector.error);
+      assertTrue(endsWith(changes, 99999), "last change never arrived");
+
+      Snack[] removed = new Snack[BarcodeIndex.MAX_BARCODE + 1]; // snack last removed from each barcode and not added since
+      for (int i = 0; i < changes.size(); i++) {
+         SnackChange change = changes.get(i);
+         assertEquals(i + 1, change.getSequence(), "sequence of change " + i);
+         int barcode = change.getSnack().getBarcode();
+         if (change.getKind() == SnackChange.Kind.REMOVED) {
+            removed[barcode] = change.getSnack();
+         }
+         else if (change.getKind() == SnackChange.Kind.ADDED) {
+            removed[barcode] = null;
+         }
+         else if (change.getKind() == SnackChange.Kind.UPDATED) {
+            assertTrue(removed[barcode] != change.getSnack(), "UPDATED of " + barcode + " after its REMOVED, change " + change.getSequence());
+         }
+      }
+      collector.subscription.cancel();
+   }
+
+   /**
+      * aLargeReplacementIsOneChange ~
+      * Replaces the inventory with every possible barcode, more snacks than the queue holds changes,
+      * then checks the subscriber got them as one REPLACED change instead of being failed
+      * @param No parameters
+      * @exception Exception: when the inventory rejects a change or a wait is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(60)
+   public void aLargeReplacementIsOneChange() throws Exception {
+      VendingMachine machine = new VendingMachine("feed", new SnackInventory());
+      SnackInventory inventory = machine.getInventory();
+      Collector collector = new Collector(Long.MAX_VALUE, null);
+      machine.watch(collector);
+
+      Snack[] snacks = new Snack[BarcodeIndex.MAX_BARCODE - BarcodeIndex.MIN_BARCODE + 1];
+      for (int i = 0; i < snacks.length; i++) {
+         snacks[i] = new Snack(BarcodeIndex.MIN_BARCODE + i, 100, 1.50, "Snack " + i);
+      }
+      inventory.replaceAll(snacks);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (collector.getChanges().isEmpty() && collector.error == null && System.nanoTime() < deadline) {
+         Thread.sleep(10);
+      }
+      assertTrue(collector.error == null, "subscriber failed: " + collector.error);
+      List<SnackChange> changes = collector.getChanges();
+      assertEquals(1, changes.size(), "changes for one replacement");
+      assertEquals(SnackChange.Kind.REPLACED, changes.get(0).getKind(), "kind of the replacement");
+      assertEquals(snacks.length, changes.get(0).getSnacks().size(), "snacks of the replacement");
+      collector.subscription.cancel();
+   }
+
+   /**
+      * lastUpdateCarriesTheCurrentStock ~
+      * Vends one snack from many threads at once, then checks the last UPDATED change of the snack
+      * carries the stock the inventory ends with, however the vends raced
+      * @param No parameters
+      * @exception Exception: when a vend fails or a wait is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(120)
+   public void lastUpdateCarriesTheCurrentStock() throws Exception {
+      VendingMachine machine = new VendingMachine("feed", new SnackInventory());
+      SnackInventory inventory = machine.getInventory();
+      inventory.add(new Snack(10001, 100, 1.50, "Chips"));
+      inventory.restock(10001, PRODUCERS * STEPS_PER_PRODUCER);
+      Collector collector = new Collector(Long.MAX_VALUE, null);
+      machine.watch(collector);
+
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      List<Thread> producers = new ArrayList<Thread>();
+      for (int p = 0; p < PRODUCERS; p++) {
+         Thread thread = new Thread(() -> {
+            try {
+               for (int step = 0; step < STEPS_PER_PRODUCER / 10; step++) {
+                  inventory.vend(10001);
+               }
+            }
+            catch (Throwable e) {
+               failure.compareAndSet(null, e);
+            }
+         });
+         thread.start();
+         producers.add(thread);
+      }
+      for (Thread thread : producers) {
+         thread.join();
+      }
+      if (failure.get() != null) {
+         throw new AssertionError("A producer failed.", failure.get());
+      }
+      inventory.add(new Snack(99999, 1, 1.00, "Last"));
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+      List<SnackChange> changes = collector.getChanges();
+      while (!endsWith(changes, 99999) && System.nanoTime() < deadline && collector.error == null) {
+         Thread.sleep(10);
+         changes = collector.getChanges();
+      }
+      assertTrue(collector.error == null, "subscriber failed: " + collector.error);
+      assertTrue(endsWith(changes, 99999), "last change never arrived");
+      assertEquals(SnackChange.Kind.UPDATED, changes.get(changes.size() - 2).getKind(), "kind of the last vend");
+      assertEquals(inventory.getStock(10001), changes.get(changes.size() - 2).getStock(), "stock of the last update");
+      collector.subscription.cancel();
+   }
+
+   /**
+      * produce ~
+      * Private method that adds, restocks, vends and removes a block of snacks over and over
+      * @param SnackInventory inventory, int firstBarcode
+      * the inventory to change and the first barcode of the block
+      * @exception SnackException: when a snack cannot be created
+      * @return No return value
+      */
+
+   private static void produce(SnackInventory inventory, int firstBarcode) throws SnackException {
+      for (int step = 0; step < STEPS_PER_PRODUCER; step++) {
+         int barcode = firstBarcode + step % SNACKS_PER_PRODUCER;
+         try {
+            switch (step / SNACKS_PER_PRODUCER % 4) {
+               case 0:
+                  inventory.tryAdd(new Snack(barcode, 100, 1.50, "Snack " + barcode));
+                  break;
+               case 1:
+                  inventory.restock(barcode, 2);
+                  break;
+               case 2:
+                  inventory.vend(barcode);
+                  break;
+               default:
+                  inventory.remove(barcode);
+                  break;
+            }
+         }
+         catch (SnackException e) {
+            // sold out or already removed by the other producer of the block
+         }
+      }
+   }
+
+   /**
+      * endsWith ~
+      * Private method that checks if the last delivered change added a barcode
+      * @param List<SnackChange> changes, int barcode
+      * the delivered changes and the barcode
+      * @return boolean true if the last change is the ADDED of the barcode
+      */
+
+   private static boolean endsWith(List<SnackChange> changes, int barcode) {
+      if (changes.isEmpty()) {
+         return false;
+      }
+      SnackChange last = changes.get(changes.size() - 1);
+      return last.getKind() == SnackChange.Kind.ADDED && last.getSnack().getBarcode() == barcode;
+   }
+}
@@ -0,0 +1,319 @@
+/**
+
+   * SnackInventoryStressTest --- hammers one SnackInventory from many threads at once
+   * Writers add and remove snacks in barcode ranges of their own, so the final state is known exactly,
+   * while vend, restock and query threads run against the same inventory. Every thread uses a fixed seed,
+   * so a failing round can be repeated. Afterwards every index, the totals and the stock must agree
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import static org.junit.jupiter.api.Assertions.assertEquals; // compares the final state
+import static org.junit.jupiter.api.Assertions.assertNotNull; // checks lookups of live snacks
+import static org.junit.jupiter.api.Assertions.assertTrue; // checks invariants seen while running
+
+import java.util.ArrayList; // collects the worker threads
+import java.util.Arrays; // sorts barcodes for comparison
+import java.util.List; // collects the worker threads
+import java.util.Random; // seeded choices of every thread
+import java.util.TreeMap; // snacks each writer expects to be left
+import java.util.concurrent.CountDownLatch; // starts every thread at once
+import java.util.concurrent.atomic.AtomicBoolean; // tells the readers to stop
+import java.util.concurrent.atomic.AtomicLongArray; // units vended and restocked per stock snack
+import java.util.concurrent.atomic.AtomicReference; // first failure of any thread
+
+import org.junit.jupiter.api.Test; // marks a test
+import org.junit.jupiter.api.Timeout; // fails a round that hangs
+
+public class SnackInventoryStressTest {
+
+   private static final int ROUNDS = 3; // rounds per test, each with a fresh inventory
+   private static final int WRITERS = 4; // threads adding and removing
+   private static final int WRITER_RANGE = 2000; // barcodes owned by each writer
+   private static final int WRITER_STEPS = 20000; // adds and removes per writer
+   private static final int STOCK_SNACKS = 64; // snacks that are vended and restocked but never removed
+   private static final int STOCK_FIRST_BARCODE = 90001; // barcode of the first stock snack
+   private static final int VENDERS = 4; // threads vending stock snacks
+   private static final int RESTOCKERS = 2; // threads restocking stock snacks
+   private static final int READERS = 3; // threads querying while the others change the inventory
+
+   /**
+      * concurrentChangesKeepIndexesAndTotalsConsistent ~
+      * Runs every kind of operation at once, then compares the inventory against what the writers expect
+      * @param No parameters
+      * @exception Exception: when a worker fails or is interrupted
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(120)
+   public void concurrentChangesKeepIndexesAndTotalsConsistent() throws Exception {
+      for (int round = 0; round < ROUNDS; round++) {
+         this.runRound(round);
+      }
+   }
+
+   /**
+      * runRound ~
+      * Private method that runs one round against a fresh inventory
+      * @param int round
+      * the round number, mixed into every seed
+      * @exception Exception: when a worker fails or is interrupted
+      * @return No return value
+      */
+
+   private void runRound(int round) throws Exception {
+      SnackInventory inventory = new SnackInventory();
+      for (int i = 0; i < STOCK_SNACKS; i++) {
+         inventory.add(new Snack(STOCK_FIRST_BARCODE + i, i, 100 + i, "Stock " + i));
+      }
+
+      List<TreeMap<Integer, Snack>> expected = new ArrayList<TreeMap<Integer, Snack>>();
+      AtomicLongArray vended = new AtomicLongArray(STOCK_SNACKS);
+      AtomicLongArray restocked = new AtomicLongArray(STOCK_SNACKS);
+      AtomicBoolean running = new AtomicBoolean(true);
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> writers = new ArrayList<Thread>();
+      List<Thread> others = new ArrayList<Thread>();
+
+      for (int w = 0; w < WRITERS; w++) {
+         TreeMap<Integer, Snack> mine = new TreeMap<Integer, Snack>();
+         expected.add(mine);
+         int firstBarcode = 10001 + w * WRITER_RANGE;
+         long seed = round * 1000L + w;
+         writers.add(worker(start, failure, () -> write(inventory, mine, firstBarcode, new Random(seed))));
+      }
+      for (int v = 0; v < VENDERS; v++) {
+         long seed = round * 1000L + 100 + v;
+         others.add(worker(start, failure, () -> vend(inventory, vended, running, new Random(seed))));
+      }
+      for (int r = 0; r < RESTOCKERS; r++) {
+         long seed = round * 1000L + 200 + r;
+         others.add(worker(start, failure, () -> restock(inventory, restocked, running, new Random(seed))));
+      }
+      for (int r = 0; r < READERS; r++) {
+         long seed = round * 1000L + 300 + r;
+         others.add(worker(start, failure, () -> read(inventory, running, new Random(seed))));
+      }
+
+      start.countDown();
+      for (Thread writer : writers) {
+         writer.join();
+      }
+      running.set(false);
+      for (Thread other : others) {
+         other.join();
+      }
+      if (failure.get() != null) {
+         throw new AssertionError("Round " + round + " failed in a worker.", failure.get());
+      }
+
+      // the live snacks are exactly what the writers left plus the stock snacks
+      List<Snack> live = new ArrayList<Snack>();
+      for (TreeMap<Integer, Snack> mine : expected) {
+         live.addAll(mine.values());
+      }
+      for (int i = 0; i < STOCK_SNACKS; i++) {
+         live.add(inventory.get(STOCK_FIRST_BARCODE + i));
+      }
+      int[] expectedBarcodes = live.stream().mapToInt(Snack::getBarcode).sorted().toArray();
+      assertEquals(expectedBarcodes.length, inventory.size(), "size");
+      assertTrue(Arrays.equals(expectedBarcodes, barcodes(inventory.toArray())), "toArray holds the expected snacks");
+      assertTrue(Arrays.equals(expectedBarcodes, barcodes(inventory.snapshot().toArray())), "snapshot holds the expected snacks");
+      for (Snack snack : live) {
+         assertEquals(snack, inventory.get(snack.getBarcode()), "lookup of " + snack.getBarcode());
+      }
+
+      // every index answers for every live snack
+      assertEquals(expectedBarcodes.length, inventory.findOverPrice(99).length, "price index");
+      assertEquals(expectedBarcodes.length, inventory.findCalorieRange(0, 2000).length, "calorie index");
+      assertEquals(expectedBarcodes.length, pageThrough(inventory), "pages");
+
+      // the running totals match a recount
+      long totalPriceCents = 0;
+      long totalCalories = 0;
+      for (Snack snack : live) {
+         totalPriceCents += snack.getPriceCents();
+         totalCalories += snack.getCalories();
+      }
+      InventoryReport report = inventory.report();
+      assertEquals(expectedBarcodes.length, report.getCount(), "report count");
+      assertEquals(totalPriceCents, report.getTotalPriceCents(), "report total price");
+      assertEquals(totalCalories, report.getTotalCalories(), "report total calories");
+
+      // no unit was lost or sold twice
+      for (int i = 0; i < STOCK_SNACKS; i++) {
+         assertEquals(restocked.get(i) - vended.get(i), inventory.getStock(STOCK_FIRST_BARCODE + i), "stock of " + (STOCK_FIRST_BARCODE + i));
+      }
+   }
+
+   /**
+      * write ~
+      * Private method run by a writer, toggles random barcodes of its range and now and then removes a block at once
+      * @param SnackInventory inventory, TreeMap<Integer, Snack> mine, int firstBarcode, Random random
+      * the inventory, the snacks this writer expects to be live, its first barcode and its choices
+      * @exception Exception: when the inventory disagrees with the writer
+      * @return No return value
+      */
+
+   private static void write(SnackInventory inventory, TreeMap<Integer, Snack> mine, int firstBarcode, Random random) throws Exception {
+      for (int step = 0; step < WRITER_STEPS; step++) {
+         int barcode = firstBarcode + random.nextInt(WRITER_RANGE);
+         if (step % 1000 == 999) {
+            Snack[] removed = inventory.removeBarcodeRange(barcode, barcode + 31);
+            assertEquals(mine.subMap(barcode, true, barcode + 31, true).size(), removed.length, "bulk removal");
+            mine.subMap(barcode, true, barcode + 31, true).clear();
+         }
+         else if (mine.containsKey(barcode)) {
+            assertEquals(mine.remove(barcode), inventory.remove(barcode), "removed snack");
+         }
+         else {
+            Snack snack = new Snack(barcode, random.nextInt(2001), 100 + random.nextInt(401), "Snack " + barcode);
+            inventory.add(snack);
+            mine.put(barcode, snack);
+         }
+      }
+   }
+
+   /**
+      * vend ~
+      * Private method run by a vender, buys random stock snacks and counts the units it got
+      * @param SnackInventory inventory, AtomicLongArray vended, AtomicBoolean running, Random random
+      * the inventory, units vended per stock snack, the stop flag and its choices
+      * @exception Exception: never, sold out snacks are expected
+      * @return No return value
+      */
+
+   private static void vend(SnackInventory inventory, AtomicLongArray vended, AtomicBoolean running, Random random) throws Exception {
+      while (running.get()) {
+         int i = random.nextInt(STOCK_SNACKS);
+         try {
+            inventory.vend(STOCK_FIRST_BARCODE + i);
+            vended.incrementAndGet(i);
+         }
+         catch (SnackException e) {
+            // sold out
+         }
+      }
+   }
+
+   /**
+      * restock ~
+      * Private method run by a restocker, adds a few units to random stock snacks
+      * @param SnackInventory inventory, AtomicLongArray restocked, AtomicBoolean running, Random random
+      * the inventory, units added per stock snack, the stop flag and its choices
+      * @exception Exception: when a stock snack is missing
+      * @return No return value
+      */
+
+   private static void restock(SnackInventory inventory, AtomicLongArray restocked, AtomicBoolean running, Random random) throws Exception {
+      while (running.get()) {
+         int i = random.nextInt(STOCK_SNACKS);
+         int quantity = 1 + random.nextInt(3);
+         inventory.restock(STOCK_FIRST_BARCODE + i, quantity);
+         restocked.addAndGet(i, quantity);
+         Thread.yield(); // let the venders drain the stock now and then
+      }
+   }
+
+   /**
+      * read ~
+      * Private method run by a reader, checks what every query returns while the inventory changes
+      * @param SnackInventory inventory, AtomicBoolean running, Random random
+      * the inventory, the stop flag and its choices
+      * @exception Exception: when a query returns something inconsistent
+      * @return No return value
+      */
+
+   private static void read(SnackInventory inventory, AtomicBoolean running, Random random) throws Exception {
+      while (running.get()) {
+         int barcode = 10001 + random.nextInt(WRITERS * WRITER_RANGE);
+         Snack snack = inventory.get(barcode);
+         assertTrue(snack == null || snack.getBarcode() == barcode, "lookup returned another barcode");
+
+         SnackTrie snapshot = inventory.snapshot();
+         assertEquals(snapshot.size(), snapshot.toArray().length, "snapshot size");
+
+         InventoryReport report = inventory.report();
+         assertTrue(report.getCount() >= STOCK_SNACKS, "report lost the stock snacks");
+         for (Snack cheap : inventory.findOverPrice(99)) {
+            assertNotNull(cheap, "price index returned null");
+         }
+         int minCalories = random.nextInt(2001);
+         for (Snack match : inventory.findCalorieRange(minCalories, minCalories + 100)) {
+            assertTrue(match.getCalories() >= minCalories && match.getCalories() <= minCalories + 100, "calorie index returned a snack out of range");
+         }
+         SnackPage page = inventory.page(SnackPage.FIRST, 50);
+         assertTrue(page.getSnacks().length <= 50, "page too long");
+      }
+   }
+
+   /**
+      * pageThrough ~
+      * Private method that counts the snacks of every page
+      * @param SnackInventory inventory
+      * the inventory to list
+      * @exception SnackException: when a token is rejected
+      * @return int number of snacks listed
+      */
+
+   private static int pageThrough(SnackInventory inventory) throws SnackException {
+      int count = 0;
+      long token = SnackPage.FIRST;
+      while (true) {
+         SnackPage page = inventory.page(token, 100);
+         count += page.getSnacks().length;
+         if (!page.hasMore()) {
+            return count;
+         }
+         token = page.getNextToken();
+      }
+   }
+
+   /**
+      * barcodes ~
+      * Private method that lists the barcodes of some snacks in ascending order
+      * @param Snack[] snacks
+      * the snacks
+      * @return int[] sorted barcodes
+      */
+
+   private static int[] barcodes(Snack[] snacks) {
+      int[] barcodes = new int[snacks.length];
+      for (int i = 0; i < snacks.length; i++) {
+         barcodes[i] = snacks[i].getBarcode();
+      }
+      Arrays.sort(barcodes);
+      return barcodes;
+   }
+
+   /**
+      * Work --- the body of a worker thread
+      */
+
+   private interface Work {
+      void run() throws Exception;
+   }
+
+   /**
+      * worker ~
+      * Private method that starts a thread which waits for the start signal, runs some work and records its failure
+      * @param CountDownLatch start, AtomicReference<Throwable> failure, Work work
+      * the start signal, where to record the first failure and the work
+      * @return Thread already started
+      */
+
+   private static Thread worker(CountDownLatch start, AtomicReference<Throwable> failure, Work work) {
+      Thread thread = new Thread(() -> {
+         try {
+            start.await();
+            work.run();
+         }
+         catch (Throwable e) {
+            failure.compareAndSet(null, e);
+         }
+      });
+      thread.start();
+      return thread;
+   }
+}
@@ -0,0 +1,163 @@
+/**
+
+   * SnackServerLatencyTest --- drives a SnackServer on a local port with thousands of clients at once
+   * Every client connects before any starts, so the server holds all the connections open together.
+   * Each client then adds, restocks, vends and checks snacks of its own and times every round trip,
+   * so the test fails when replies go wrong or the slowest replies stop being interactive
+   * @author Chuckee Kondo (Chaz)
+   */
+
+import static org.junit.jupiter.api.Assertions.assertEquals; // checks every reply
+import static org.junit.jupiter.api.Assertions.assertTrue; // checks the latency bound
+
+import java.io.BufferedReader; // reads replies
+import java.io.InputStreamReader; // decodes replies
+import java.io.OutputStreamWriter; // encodes commands
+import java.io.PrintWriter; // sends commands
+import java.net.InetAddress; // connects to the loopback address
+import java.net.Socket; // one client connection
+import java.nio.charset.StandardCharsets; // commands and replies are UTF-8
+import java.util.ArrayList; // collects the client threads
+import java.util.Arrays; // sorts the round trip times
+import java.util.List; // collects the client threads
+import java.util.concurrent.CountDownLatch; // waits for every connection, then starts every client at once
+import java.util.concurrent.atomic.AtomicReference; // first failure of any client
+
+import org.junit.jupiter.api.Test; // marks a test
+import org.junit.jupiter.api.Timeout; // fails a run that hangs
+
+public class SnackServerLatencyTest {
+
+   private static final int CLIENTS = 4000; // connections open at once, one virtual thread each on both ends
+   private static final int SNACKS_PER_CLIENT = 20; // snacks each client adds, restocks, vends and checks, all barcodes stay valid
+   private static final int COMMANDS_PER_SNACK = 4; // add, restock, vend and stock
+   private static final long MAX_P99_MILLIS = 500; // slowest round trip allowed for 99% of the commands
+
+   /**
+      * manyClientsGetCorrectRepliesQuickly ~
+      * Runs every client at once against one machine and checks the replies and the 99th percentile round trip
+      * @param No parameters
+      * @exception Exception: when the server cannot start or a client fails
+      * @return No return value
+      */
+
+   @Test
+   @Timeout(300)
+   public void manyClientsGetCorrectRepliesQuickly() throws Exception {
+      VendingFleet fleet = new VendingFleet();
+      SnackServer server = new SnackServer(fleet, "local", 0);
+      Thread acceptor = new Thread(() -> {
+         try {
+            server.serve();
+         }
+         catch (Exception e) {
+            // closed by the test
+         }
+      });
+      acceptor.start();
+
+      long[][] roundTrips = new long[CLIENTS][];
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      CountDownLatch connected = new CountDownLatch(CLIENTS);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> clients = new ArrayList<Thread>();
+      try {
+         for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            Thread thread = Thread.ofVirtual().start(() -> {
+               try {
+                  roundTrips[client] = runClient(server.getPort(), 10001 + client * SNACKS_PER_CLIENT, connected, start);
+               }
+               catch (Throwable e) {
+                  failure.compareAndSet(null, e);
+                  connected.countDown(); // never hold up the other clients
+               }
+            });
+            clients.add(thread);
+         }
+         connected.await();
+         start.countDown();
+         for (Thread thread : clients) {
+            thread.join();
+         }
+      }
+      finally {
+         server.close();
+         acceptor.join();
+         fleet.close();
+      }
+      if (failure.get() != null) {
+         throw new AssertionError("A client failed.", failure.get());
+      }
+
+      assertEquals(CLIENTS * SNACKS_PER_CLIENT, fleet.getMachine("local").getInventory().size(), "snacks added");
+      long[] all = new long[CLIENTS * SNACKS_PER_CLIENT * COMMANDS_PER_SNACK];
+      for (int c = 0; c < CLIENTS; c++) {
+         System.arraycopy(roundTrips[c], 0, all, c * roundTrips[c].length, roundTrips[c].length);
+      }
+      Arrays.sort(all);
+      long p50 = all[all.length / 2];
+      long p99 = all[(int) (all.length * 0.99)];
+      System.out.println("SnackServer round trips of " + CLIENTS + " clients: p50 " + p50 / 1000 + " us, p99 " + p99 / 1000
+         + " us, max " + all[all.length - 1] / 1000 + " us");
+      assertTrue(p99 <= MAX_P99_MILLIS * 1000000, "p99 round trip of " + p99 / 1000 + " us is over " + MAX_P99_MILLIS + " ms");
+   }
+
+   /**
+      * runClient ~
+      * Private method that connects, waits for every other client to connect, then adds, restocks, vends
+      * and checks a block of snacks over its connection
+      * @param int port, int firstBarcode, CountDownLatch connected, CountDownLatch begin
+      * the server port, the first barcode of this client's block, the latch counting connections and the start signal
+      * @exception Exception: when the connection fails or a reply is wrong
+      * @return long[] round trip of every command in nanoseconds
+      */
+
+   private static long[] runClient(int port, int firstBarcode, CountDownLatch connected, CountDownLatch begin) throws Exception {
+      long[] roundTrips = new long[SNACKS_PER_CLIENT * COMMANDS_PER_SNACK];
+      int next = 0;
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+         socket.setTcpNoDelay(true);
+         BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+         PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+         connected.countDown();
+         begin.await();
+         for (int i = 0; i < SNACKS_PER_CLIENT; i++) {
+            int barcode = firstBarcode + i;
+            long start = System.nanoTime();
+            assertEquals("Snack " + barcode + " successfully added!", request(reader, writer, "add " + barcode + " 100 1.50 Snack " + barcode));
+            roundTrips[next++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals("Barcode " + barcode + " restocked, 2 in stock.", request(reader, writer, "restock " + barcode + " 2"));
+            roundTrips[next++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals("Vended Snack " + barcode + " for $1.50", request(reader, writer, "vend " + barcode));
+            roundTrips[next++] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            assertEquals("Snack " + barcode + ": 1 in stock.", request(reader, writer, "stock " + barcode));
+            roundTrips[next++] = System.nanoTime() - start;
+         }
+         writer.println("quit");
+      }
+      return roundTrips;
+   }
+
+   /**
+      * request ~
+      * Private method that sends one command and reads its reply up to the closing "." line
+      * @param BufferedReader reader, PrintWriter writer, String command
+      * the connection and the command
+      * @exception Exception: when the connection closes early or the reply is not one line
+      * @return String the reply line
+      */
+
+   private static String request(BufferedReader reader, PrintWriter writer, String command) throws Exception {
+      writer.println(command);
+      String reply = reader.readLine();
+      assertEquals(".", reader.readLine(), "end of the reply to " + command);
+      return reply;
+   }
+}